@@ -0,0 +1,3 @@
+-- Adds the column compressed message content is stored in, for MySQL and MariaDB.
+-- Needed before upgrading whenever the schema is only validated (the prod profile), whether compression is enabled or not.
+ALTER TABLE message_log_content_table ADD COLUMN message_content_compressed VARBINARY(16000);
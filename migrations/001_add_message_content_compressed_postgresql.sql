@@ -0,0 +1,3 @@
+-- Adds the column compressed message content is stored in.
+-- Needed before upgrading whenever the schema is only validated (the prod profile), whether compression is enabled or not.
+ALTER TABLE public.message_log_content_table ADD COLUMN IF NOT EXISTS message_content_compressed BYTEA;
@@ -7,6 +7,7 @@ import io.swagger.v3.oas.annotations.info.License;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.core.Ordered;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @OpenAPIDefinition(
@@ -19,7 +20,9 @@ import org.springframework.scheduling.annotation.EnableScheduling;
         )
 )
 @SpringBootApplication
-@EnableCaching
+// the cache interceptor runs outside the transaction interceptor, so a cache hit on a @Cacheable @Transactional method
+// returns before a transaction is begun and a connection is borrowed from the pool
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
 @EnableScheduling
 public class MainApplication {
 
@@ -0,0 +1,64 @@
+package io.github.eggy03.papertrail.api.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// Redis pub/sub channel over which nodes tell each other to drop near cache entries.
+// Messages are "<origin>|<cacheName>|<key>\n<key>..." with "*" in place of the keys for a full clear.
+@Component
+@Slf4j
+public class CacheInvalidationTopic {
+
+    private static final String TOPIC_NAME = "papertrail:cache-invalidation";
+    private static final String SEPARATOR = "|";
+    private static final String KEY_SEPARATOR = "\n";
+    private static final String CLEAR = "*";
+
+    private final String origin = UUID.randomUUID().toString();
+    private final RTopic topic;
+
+    public CacheInvalidationTopic(RedissonClient redissonClient) {
+        this.topic = redissonClient.getTopic(TOPIC_NAME, StringCodec.INSTANCE);
+    }
+
+    public interface Listener {
+
+        void onInvalidate(String cacheName, List<String> keys);
+
+        void onClear(String cacheName);
+    }
+
+    public void publishInvalidate(String cacheName, Collection<?> keys) {
+        String joinedKeys = keys.stream().map(String::valueOf).collect(Collectors.joining(KEY_SEPARATOR));
+        topic.publishAsync(origin + SEPARATOR + cacheName + SEPARATOR + joinedKeys);
+    }
+
+    public void publishClear(String cacheName) {
+        topic.publishAsync(origin + SEPARATOR + cacheName + SEPARATOR + CLEAR);
+    }
+
+    // messages published by this node are skipped, it has already applied them locally
+    public void subscribe(Listener listener) {
+        topic.addListener(String.class, (channel, message) -> {
+            String[] parts = message.split("\\|", 3);
+            if (parts.length != 3 || origin.equals(parts[0])) {
+                return;
+            }
+
+            if (CLEAR.equals(parts[2])) {
+                listener.onClear(parts[1]);
+            } else {
+                listener.onInvalidate(parts[1], Arrays.asList(parts[2].split(KEY_SEPARATOR)));
+            }
+        });
+    }
+}
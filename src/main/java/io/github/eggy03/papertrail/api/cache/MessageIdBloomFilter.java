@@ -0,0 +1,311 @@
+package io.github.eggy03.papertrail.api.cache;
+
+import io.github.eggy03.papertrail.api.repository.MessageLogContentRepository;
+import io.github.eggy03.papertrail.api.util.AnsiColor;
+import io.github.eggy03.papertrail.api.util.DiscordSnowflake;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBloomFilter;
+import org.redisson.api.RBucket;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Shared (redis) Bloom filter over the logged message IDs, so that lookups for messages that were never logged
+// can be answered without touching the lock or the database.
+// It is split into one filter per UTC day of the snowflake timestamp: a lookup only checks the filter of its own day,
+// the filters stay sized for a day of traffic, and days past retention simply expire.
+// IDs are added before they are written, so the filter never misses a logged message. Deleted IDs stay in it
+// and only cost a database lookup. Until the filter has been built from the table once, every ID might be contained.
+// When filters go missing from redis (restart, flush or eviction), every ID might be contained again until it is rebuilt.
+@Component
+@Slf4j
+public class MessageIdBloomFilter {
+
+    private static final String FILTER_PREFIX = "papertrail:message-ids:";
+    private static final String READY_KEY = FILTER_PREFIX + "ready";
+    private static final String REBUILD_LOCK = FILTER_PREFIX + "rebuild";
+
+    // a little past the 30 day retention of MessageContentCleanupService
+    private static final Duration FILTER_TTL = Duration.ofDays(32);
+    private static final Duration READY_RECHECK_INTERVAL = Duration.ofSeconds(30);
+    private static final int REBUILD_CHUNK_SIZE = 10000;
+
+    private final RedissonClient redissonClient;
+    private final MessageLogContentRepository repository;
+
+    private final boolean enabled;
+    private final long expectedInsertionsPerDay;
+    private final double falseProbability;
+
+    private final Map<LocalDate, RBloomFilter<Long>> filters = new ConcurrentHashMap<>();
+    private final Set<LocalDate> initializedFilters = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready;
+    private volatile long readyCheckedAt;
+    private volatile double sizeInBits;
+
+    private final Counter definiteMisses;
+    private final Counter possibleHits;
+    private final Counter falsePositives;
+
+    public MessageIdBloomFilter(
+            RedissonClient redissonClient,
+            MessageLogContentRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${papertrail.message-content.bloom-filter.enabled:false}") boolean enabled,
+            @Value("${papertrail.message-content.bloom-filter.expected-insertions-per-day:1000000}") long expectedInsertionsPerDay,
+            @Value("${papertrail.message-content.bloom-filter.false-probability:0.01}") double falseProbability) {
+
+        this.redissonClient = redissonClient;
+        this.repository = repository;
+        this.enabled = enabled;
+        this.expectedInsertionsPerDay = expectedInsertionsPerDay;
+        this.falseProbability = falseProbability;
+
+        this.definiteMisses = Counter.builder("papertrail.message.bloom.lookups").tag("result", "absent").register(meterRegistry);
+        this.possibleHits = Counter.builder("papertrail.message.bloom.lookups").tag("result", "present").register(meterRegistry);
+        this.falsePositives = Counter.builder("papertrail.message.bloom.false.positives")
+                .description("Lookups the filter let through for messages that turned out not to be logged")
+                .register(meterRegistry);
+
+        Gauge.builder("papertrail.message.bloom.false.positive.rate", this, MessageIdBloomFilter::observedFalsePositiveRate)
+                .description("Share of the lookups let through by the filter that turned out not to be logged")
+                .register(meterRegistry);
+        Gauge.builder("papertrail.message.bloom.expected.false.positive.rate", () -> falseProbability)
+                .register(meterRegistry);
+        Gauge.builder("papertrail.message.bloom.size", this, filter -> filter.sizeInBits)
+                .baseUnit("bits")
+                .register(meterRegistry);
+    }
+
+    // false only if the message has definitely never been logged
+    public boolean mightContain(Long messageId) {
+        if (!enabled || messageId == null || !isReady()) {
+            return true;
+        }
+
+        LocalDate day = DiscordSnowflake.utcDateOf(messageId);
+        boolean mightContain;
+        try {
+            // days without a live filter are not looked up, so made-up IDs can't pile up filter objects
+            mightContain = !isLive(day) || filterFor(day).contains(messageId);
+        } catch (RuntimeException e) {
+            // no filter for that day (e.g. older than the filter itself) or redis trouble, the database has to answer
+            log.debug("Message ID bloom filter lookup failed for messageID {}", messageId, e);
+            filters.remove(day);
+            mightContain = true;
+        }
+
+        (mightContain ? possibleHits : definiteMisses).increment();
+        return mightContain;
+    }
+
+    public void add(Long messageId) {
+        addAll(List.of(messageId));
+    }
+
+    public void addAll(Collection<Long> messageIds) {
+        if (!enabled || messageIds.isEmpty()) {
+            return;
+        }
+
+        Map<LocalDate, List<Long>> messageIdsByDay = messageIds.stream()
+                .collect(Collectors.groupingBy(DiscordSnowflake::utcDateOf));
+        messageIdsByDay.forEach((day, dayMessageIds) -> {
+            try {
+                initializedFilterFor(day).add(dayMessageIds);
+            } catch (RuntimeException e) {
+                // most likely the filter disappeared from redis since it was initialized here, which redisson reports
+                // as a changed config, so the IDs added before are gone and the filter has to be rebuilt
+                log.warn("{}Message ID bloom filter for {} could not be written, rebuilding it{}", AnsiColor.YELLOW, day, AnsiColor.RESET, e);
+                invalidate();
+                try {
+                    initializedFilterFor(day).add(dayMessageIds);
+                } catch (RuntimeException retryException) {
+                    // the write goes ahead regardless, lookups answer "might contain" until the rebuild
+                    log.warn("{}Message ID bloom filter for {} is unavailable, skipped adding {} messageIDs{}", AnsiColor.YELLOW, day, dayMessageIds.size(), AnsiColor.RESET, retryException);
+                }
+            }
+        });
+    }
+
+    // for lookups that got past the filter but found nothing
+    public void recordFalsePositive() {
+        if (enabled) {
+            falsePositives.increment();
+        }
+    }
+
+    // filters are dropped a whole day at a time, so only days entirely before the cutoff go
+    public void dropBefore(LocalDate cutoffDay) {
+        if (!enabled) {
+            return;
+        }
+
+        for (LocalDate day = cutoffDay.minusDays(FILTER_TTL.toDays()); day.isBefore(cutoffDay); day = day.plusDays(1)) {
+            redissonClient.getBloomFilter(FILTER_PREFIX + day).delete();
+            forget(day);
+        }
+        refreshSize();
+    }
+
+    // the size gauge only reads the last computed size, which takes a round trip per day of retention.
+    // Refreshed after drops and rebuilds here, and periodically for filters other nodes created
+    @Scheduled(fixedDelay = 5, initialDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void refreshSize() {
+        if (!enabled) {
+            return;
+        }
+
+        filters.keySet().removeIf(day -> !isLive(day));
+        initializedFilters.removeIf(day -> !isLive(day));
+
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        try {
+            sizeInBits = today.minusDays(FILTER_TTL.toDays()).datesUntil(today.plusDays(2))
+                    .map(day -> redissonClient.<Long>getBloomFilter(FILTER_PREFIX + day))
+                    .filter(RBloomFilter::isExists)
+                    .mapToLong(RBloomFilter::getSize)
+                    .sum();
+        } catch (RuntimeException e) {
+            log.debug("Message ID bloom filter size could not be read", e);
+        }
+    }
+
+    // the filter is shared, so it is only built by the first node that finds it missing
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfMissing() {
+        if (!enabled || isReady()) {
+            return;
+        }
+
+        startRebuild();
+    }
+
+    private void startRebuild() {
+        Thread.ofVirtual().name("message-id-bloom-filter-rebuild").start(() -> {
+            RLock lock = redissonClient.getLock(REBUILD_LOCK);
+            if (!lock.tryLock()) {
+                return;
+            }
+
+            try {
+                // another node may have built it while this one was waiting
+                if (!redissonClient.getBucket(READY_KEY).isExists()) {
+                    rebuild();
+                }
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    // lookups answer "might contain" until the filter has been rebuilt from the table, on this and every other node
+    private void invalidate() {
+        ready = false;
+        readyCheckedAt = System.currentTimeMillis();
+        filters.clear();
+        initializedFilters.clear();
+
+        try {
+            redissonClient.getBucket(READY_KEY).delete();
+        } catch (RuntimeException e) {
+            log.debug("Message ID bloom filter could not be marked for a rebuild", e);
+            return;
+        }
+        startRebuild();
+    }
+
+    private void rebuild() {
+        log.info("{}Building message ID bloom filter from the message content table{}", AnsiColor.YELLOW, AnsiColor.RESET);
+
+        long afterMessageId = Long.MIN_VALUE;
+        long addedMessageCount = 0;
+
+        List<Long> messageIds;
+        while (!(messageIds = repository.findMessageIdsAfter(afterMessageId, Limit.of(REBUILD_CHUNK_SIZE))).isEmpty()) {
+            addAll(messageIds);
+            addedMessageCount += messageIds.size();
+            afterMessageId = messageIds.getLast();
+        }
+
+        RBucket<Boolean> readyBucket = redissonClient.getBucket(READY_KEY);
+        readyBucket.set(true);
+        ready = true;
+        log.info("{}Built message ID bloom filter with {} messages{}", AnsiColor.GREEN, addedMessageCount, AnsiColor.RESET);
+        refreshSize();
+    }
+
+    // rechecked even once ready, as a redis that lost its data loses the ready marker along with the filters
+    private boolean isReady() {
+        long now = System.currentTimeMillis();
+        if (now - readyCheckedAt < READY_RECHECK_INTERVAL.toMillis()) {
+            return ready;
+        }
+        readyCheckedAt = now;
+
+        boolean wasReady = ready;
+        try {
+            ready = redissonClient.getBucket(READY_KEY).isExists();
+        } catch (RuntimeException e) {
+            log.debug("Message ID bloom filter readiness check failed", e);
+            return false;
+        }
+
+        if (wasReady && !ready) {
+            log.warn("{}Message ID bloom filter went missing from redis, rebuilding it{}", AnsiColor.YELLOW, AnsiColor.RESET);
+            filters.clear();
+            initializedFilters.clear();
+            startRebuild();
+        }
+        return ready;
+    }
+
+    // kept per day, since a filter object caches its configuration and would otherwise read it on every lookup
+    private RBloomFilter<Long> filterFor(LocalDate day) {
+        return filters.computeIfAbsent(day, filterDay -> redissonClient.getBloomFilter(FILTER_PREFIX + filterDay));
+    }
+
+    private RBloomFilter<Long> initializedFilterFor(LocalDate day) {
+        RBloomFilter<Long> filter = filterFor(day);
+        if (initializedFilters.add(day)) {
+            filter.tryInit(expectedInsertionsPerDay, falseProbability);
+            filter.expire(FILTER_TTL);
+        }
+        return filter;
+    }
+
+    private void forget(LocalDate day) {
+        filters.remove(day);
+        initializedFilters.remove(day);
+    }
+
+    private double observedFalsePositiveRate() {
+        double lookupsLetThrough = possibleHits.count();
+        return lookupsLetThrough == 0 ? 0 : falsePositives.count() / lookupsLetThrough;
+    }
+
+    // filters expire FILTER_TTL after creation, and snowflakes a little ahead of the clock land on tomorrow's
+    private static boolean isLive(LocalDate day) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        return !day.isBefore(today.minusDays(FILTER_TTL.toDays())) && !day.isAfter(today.plusDays(1));
+    }
+}
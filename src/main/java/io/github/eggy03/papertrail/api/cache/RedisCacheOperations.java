@@ -0,0 +1,276 @@
+package io.github.eggy03.papertrail.api.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.util.ByteUtils;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// Multi-key operations over the RedisCacheManager caches, using the same key prefix and serializers as
+// @Cacheable / @CachePut / @CacheEvict so that entries written by either side stay interchangeable.
+// Writes made here bypass the near caches, so they invalidate them through the TwoLevelCacheManager.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RedisCacheOperations {
+
+    private static final String LEASE_SUFFIX = "::lease";
+    private static final Duration LEASE_TTL = Duration.ofSeconds(10);
+    private static final String TOMBSTONE_SUFFIX = "::deleted";
+    // comfortably longer than the time between a write's commit and its cache put
+    private static final Duration TOMBSTONE_TTL = Duration.ofMinutes(1);
+
+    // KEYS[1] = cache key, KEYS[2] = lease key, ARGV[1] = lease token, ARGV[2] = value, ARGV[3] = ttl in ms (0 = no expiry)
+    private static final byte[] PUT_IF_LEASED_SCRIPT = """
+            if redis.call('GET', KEYS[2]) ~= ARGV[1] then
+                return 0
+            end
+            redis.call('DEL', KEYS[2])
+            if tonumber(ARGV[3]) > 0 then
+                redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+            else
+                redis.call('SET', KEYS[1], ARGV[2])
+            end
+            return 1
+            """.getBytes(StandardCharsets.UTF_8);
+
+    // KEYS[1] = cache key, KEYS[2] = lease key, KEYS[3] = tombstone key, ARGV[1] = value, ARGV[2] = ttl in ms (0 = no expiry)
+    private static final byte[] REVOKE_LEASE_AND_PUT_SCRIPT = """
+            redis.call('DEL', KEYS[2])
+            if redis.call('EXISTS', KEYS[3]) == 1 then
+                redis.call('DEL', KEYS[1])
+                return 0
+            end
+            if tonumber(ARGV[2]) > 0 then
+                redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+            else
+                redis.call('SET', KEYS[1], ARGV[1])
+            end
+            return 1
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final RedisCacheManager redisCacheManager;
+    private final RedisConnectionFactory connectionFactory;
+    private final TwoLevelCacheManager cacheManager;
+
+    public <V> V get(String cacheName, Object key, Class<V> valueType) {
+        return getAll(cacheName, List.of(key), valueType).get(key);
+    }
+
+    // resolves all keys with a single MGET, keys without a cached value of the given type are left out of the result
+    public <K, V> Map<K, V> getAll(String cacheName, List<K> keys, Class<V> valueType) {
+
+        Map<K, V> hits = new HashMap<>();
+        if (keys.isEmpty()) {
+            return hits;
+        }
+
+        RedisCacheConfiguration config = configurationFor(cacheName);
+        byte[][] rawKeys = keys.stream()
+                .map(key -> serializeKey(cacheName, config, key))
+                .toArray(byte[][]::new);
+
+        List<byte[]> rawValues;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            rawValues = connection.stringCommands().mGet(rawKeys);
+        }
+
+        if (rawValues == null) {
+            return hits;
+        }
+
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] rawValue = rawValues.get(i);
+            if (rawValue == null) {
+                continue;
+            }
+
+            Object value = config.getValueSerializationPair().read(ByteBuffer.wrap(rawValue));
+            if (valueType.isInstance(value)) {
+                hits.put(keys.get(i), valueType.cast(value));
+            }
+        }
+
+        log.debug("Resolved {} of {} keys from cache {}", hits.size(), keys.size(), cacheName);
+        return hits;
+    }
+
+    // also revokes any lease on the evicted keys, in the same DEL
+    public void evictAll(String cacheName, Collection<?> keys) {
+
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        RedisCacheConfiguration config = configurationFor(cacheName);
+        byte[][] rawKeys = keys.stream()
+                .flatMap(key -> Stream.of(serializeKey(cacheName, config, key), serializeLeaseKey(cacheName, config, key)))
+                .toArray(byte[][]::new);
+
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Long evicted = connection.keyCommands().del(rawKeys);
+            log.debug("Evicted {} of {} keys from cache {}", evicted, keys.size(), cacheName);
+        }
+        cacheManager.invalidate(cacheName, keys);
+    }
+
+    // For entries whose rows were deleted: evicts them like evictAll, and leaves a short-lived tombstone behind, so that
+    // a write without a lock that committed before the delete can't put its content back afterwards (revokeLeaseAndPut)
+    public void evictDeleted(String cacheName, Collection<?> keys) {
+
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        RedisCacheConfiguration config = configurationFor(cacheName);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            keys.forEach(key -> {
+                connection.keyCommands().del(serializeKey(cacheName, config, key), serializeLeaseKey(cacheName, config, key));
+                connection.stringCommands().set(
+                        serializeTombstoneKey(cacheName, config, key),
+                        new byte[]{1},
+                        Expiration.from(TOMBSTONE_TTL),
+                        RedisStringCommands.SetOption.upsert()
+                );
+            });
+            connection.closePipeline();
+            log.debug("Evicted {} deleted keys from cache {}", keys.size(), cacheName);
+        }
+        cacheManager.invalidate(cacheName, keys);
+    }
+
+    public void putAll(String cacheName, Map<?, ?> entries) {
+
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        RedisCacheConfiguration config = configurationFor(cacheName);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            entries.forEach((key, value) -> connection.stringCommands().set(
+                    serializeKey(cacheName, config, key),
+                    serializeValue(config, value),
+                    expirationFor(config, key, value),
+                    RedisStringCommands.SetOption.upsert()
+            ));
+            connection.closePipeline();
+            log.debug("Put {} entries into cache {}", entries.size(), cacheName);
+        }
+        cacheManager.invalidate(cacheName, entries.keySet());
+    }
+
+    // Leases guard cache fills of reads that don't hold a lock: a reader takes a lease before reading from the database
+    // and may only fill the cache while it still holds it. Every write revokes the lease after it has committed,
+    // so a fill carrying content read before that commit gets rejected. Returns null if another reader holds the lease.
+    public String acquireLease(String cacheName, Object key) {
+
+        RedisCacheConfiguration config = configurationFor(cacheName);
+        String token = UUID.randomUUID().toString();
+
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Boolean acquired = connection.stringCommands().set(
+                    serializeLeaseKey(cacheName, config, key),
+                    token.getBytes(StandardCharsets.UTF_8),
+                    Expiration.from(LEASE_TTL),
+                    RedisStringCommands.SetOption.ifAbsent()
+            );
+            return Boolean.TRUE.equals(acquired) ? token : null;
+        }
+    }
+
+    public boolean putIfLeased(String cacheName, Object key, Object value, String token) {
+
+        RedisCacheConfiguration config = configurationFor(cacheName);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Long filled = connection.scriptingCommands().eval(
+                    PUT_IF_LEASED_SCRIPT,
+                    ReturnType.INTEGER,
+                    2,
+                    serializeKey(cacheName, config, key),
+                    serializeLeaseKey(cacheName, config, key),
+                    token.getBytes(StandardCharsets.UTF_8),
+                    serializeValue(config, value),
+                    ttlMillisFor(config, key, value)
+            );
+            if (!Long.valueOf(1).equals(filled)) {
+                return false;
+            }
+        }
+        cacheManager.invalidate(cacheName, List.of(key));
+        return true;
+    }
+
+    // false if the entry was deleted in the meantime (see evictDeleted), it is then evicted instead of put
+    public boolean revokeLeaseAndPut(String cacheName, Object key, Object value) {
+
+        RedisCacheConfiguration config = configurationFor(cacheName);
+        Long put;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            put = connection.scriptingCommands().eval(
+                    REVOKE_LEASE_AND_PUT_SCRIPT,
+                    ReturnType.INTEGER,
+                    3,
+                    serializeKey(cacheName, config, key),
+                    serializeLeaseKey(cacheName, config, key),
+                    serializeTombstoneKey(cacheName, config, key),
+                    serializeValue(config, value),
+                    ttlMillisFor(config, key, value)
+            );
+        }
+        cacheManager.invalidate(cacheName, List.of(key));
+        return Long.valueOf(1).equals(put);
+    }
+
+    private RedisCacheConfiguration configurationFor(String cacheName) {
+        RedisCacheConfiguration config = redisCacheManager.getCacheConfigurations().get(cacheName);
+        if (config == null) {
+            throw new IllegalStateException("No redis cache configuration found for cache " + cacheName);
+        }
+        return config;
+    }
+
+    private byte[] serializeKey(String cacheName, RedisCacheConfiguration config, Object key) {
+        return ByteUtils.getBytes(config.getKeySerializationPair().write(config.getKeyPrefixFor(cacheName) + key));
+    }
+
+    private byte[] serializeLeaseKey(String cacheName, RedisCacheConfiguration config, Object key) {
+        return ByteUtils.getBytes(config.getKeySerializationPair().write(config.getKeyPrefixFor(cacheName) + key + LEASE_SUFFIX));
+    }
+
+    private byte[] serializeTombstoneKey(String cacheName, RedisCacheConfiguration config, Object key) {
+        return ByteUtils.getBytes(config.getKeySerializationPair().write(config.getKeyPrefixFor(cacheName) + key + TOMBSTONE_SUFFIX));
+    }
+
+    private byte[] serializeValue(RedisCacheConfiguration config, Object value) {
+        return ByteUtils.getBytes(config.getValueSerializationPair().write(value));
+    }
+
+    private Expiration expirationFor(RedisCacheConfiguration config, Object key, Object value) {
+        Duration ttl = config.getTtlFunction().getTimeToLive(key, value);
+        return ttl.isZero() || ttl.isNegative() ? Expiration.persistent() : Expiration.from(ttl);
+    }
+
+    private byte[] ttlMillisFor(RedisCacheConfiguration config, Object key, Object value) {
+        Duration ttl = config.getTtlFunction().getTimeToLive(key, value);
+        long ttlMillis = ttl.isNegative() ? 0 : ttl.toMillis();
+        return String.valueOf(ttlMillis).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,327 @@
+package io.github.eggy03.papertrail.api.cache;
+
+import io.github.eggy03.papertrail.api.repository.QualifiedTableNames;
+import io.github.eggy03.papertrail.api.util.AnsiColor;
+import io.github.eggy03.papertrail.api.util.LongLongHashMap;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongPredicate;
+
+// In-memory copy of the registration tables (guildId -> channelId), so registration lookups are answered without
+// redis or the database. Each table is loaded into a LongLongHashMap at startup and reloaded periodically, in case a
+// change notification got lost. Local changes are applied once their transaction has committed and announced
+// over redis pub/sub, other nodes then re-read the changed guild from the database.
+// Lookups use optimistic reads of a StampedLock, so they never block each other.
+@Component
+@Slf4j
+public class RegistrationSnapshot {
+
+    private static final String TOPIC_NAME = "papertrail:registration-changes";
+    private static final String SEPARATOR = "|";
+    private static final String ALL_GUILDS = "*";
+    private static final long NOT_REGISTERED = Long.MIN_VALUE;
+
+    public enum Registration {
+        AUDIT_LOG("audit_log_table"),
+        MESSAGE_LOG("message_log_registration_table");
+
+        private final String table;
+
+        Registration(String table) {
+            this.table = table;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final QualifiedTableNames tableNames;
+    private final RTopic topic;
+    private final boolean enabled;
+
+    private final String origin = UUID.randomUUID().toString();
+    private final Map<Registration, Table> tables = new EnumMap<>(Registration.class);
+
+    public RegistrationSnapshot(
+            JdbcTemplate jdbcTemplate,
+            QualifiedTableNames tableNames,
+            RedissonClient redissonClient,
+            MeterRegistry meterRegistry,
+            @Value("${papertrail.registration.snapshot.enabled:false}") boolean enabled) {
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.tableNames = tableNames;
+        this.topic = redissonClient.getTopic(TOPIC_NAME, StringCodec.INSTANCE);
+        this.enabled = enabled;
+
+        for (Registration registration : Registration.values()) {
+            Table table = new Table();
+            tables.put(registration, table);
+
+            String name = registration.name().toLowerCase();
+            Gauge.builder("papertrail.registration.snapshot.size", table, Table::size)
+                    .tag("registration", name)
+                    .register(meterRegistry);
+            Gauge.builder("papertrail.registration.snapshot.memory", table, Table::memoryBytes)
+                    .tag("registration", name)
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+        }
+    }
+
+    public boolean isLoaded(Registration registration) {
+        return enabled && tables.get(registration).loaded;
+    }
+
+    // null if the guild is not registered, only meaningful once isLoaded
+    public Long findChannel(Registration registration, long guildId) {
+        long channelId = tables.get(registration).get(guildId);
+        return channelId == NOT_REGISTERED ? null : channelId;
+    }
+
+    // guildId -> channelId of the registered guilds matching the filter, only meaningful once isLoaded
+    public Map<Long, Long> findChannels(Registration registration, LongPredicate guildFilter) {
+        return tables.get(registration).find(guildFilter);
+    }
+
+    public void recordRegistration(Registration registration, long guildId, long channelId) {
+        afterCommit(() -> {
+            tables.get(registration).put(guildId, channelId);
+            topic.publishAsync(origin + SEPARATOR + registration.name() + SEPARATOR + guildId);
+        });
+    }
+
+    public void recordUnregistration(Registration registration, long guildId) {
+        afterCommit(() -> {
+            tables.get(registration).remove(guildId);
+            topic.publishAsync(origin + SEPARATOR + registration.name() + SEPARATOR + guildId);
+        });
+    }
+
+    // after a bulk import, every node reloads the whole table rather than guild by guild
+    public void recordBulkChange(Registration registration) {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            reload(registration);
+        } catch (DataAccessException e) {
+            log.warn("{}Registration Snapshot- Could not reload {}, it is corrected by the next reload{}", AnsiColor.YELLOW, registration.table, AnsiColor.RESET, e);
+        }
+        topic.publishAsync(origin + SEPARATOR + registration.name() + SEPARATOR + ALL_GUILDS);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+
+        topic.addListener(String.class, (channel, message) -> {
+            String[] parts = message.split("\\|", 3);
+            if (parts.length != 3 || origin.equals(parts[0])) {
+                return;
+            }
+            try {
+                if (ALL_GUILDS.equals(parts[2])) {
+                    reload(Registration.valueOf(parts[1]));
+                } else {
+                    reloadGuild(Registration.valueOf(parts[1]), Long.parseLong(parts[2]));
+                }
+            } catch (DataAccessException e) {
+                log.warn("{}Registration Snapshot- Could not reload guild {}, it is corrected by the next reload{}", AnsiColor.YELLOW, parts[2], AnsiColor.RESET, e);
+            }
+        });
+        reloadAll();
+    }
+
+    @Scheduled(fixedDelayString = "${papertrail.registration.snapshot.refresh-interval:15m}", initialDelayString = "${papertrail.registration.snapshot.refresh-interval:15m}")
+    public void reloadAll() {
+        if (!enabled) {
+            return;
+        }
+
+        for (Registration registration : Registration.values()) {
+            try {
+                reload(registration);
+            } catch (DataAccessException e) {
+                log.warn("{}Registration Snapshot- Could not load {}, lookups keep going through the cache{}", AnsiColor.YELLOW, registration.table, AnsiColor.RESET, e);
+            }
+        }
+    }
+
+    // The scheduled reload, pub/sub notifications and bulk changes may all reload the same table at once. They take turns,
+    // so that each reload collects the changes applied while it reads, and an older read never replaces a newer one.
+    private void reload(Registration registration) {
+        Table table = tables.get(registration);
+        Set<Long> changedGuildIds = ConcurrentHashMap.newKeySet();
+
+        table.reloadLock.lock();
+        try {
+            table.changedDuringReload = changedGuildIds;
+            try {
+                Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + tableNames.of(registration.table), Integer.class);
+                LongLongHashMap entries = new LongLongHashMap(count == null ? 0 : count);
+                jdbcTemplate.query("SELECT guild_id, channel_id FROM " + tableNames.of(registration.table),
+                        resultSet -> {
+                            entries.put(resultSet.getLong(1), resultSet.getLong(2));
+                        });
+                table.replace(entries);
+            } finally {
+                table.changedDuringReload = null;
+            }
+
+            // the rows read above may predate changes applied while reading, so those guilds are read once more
+            changedGuildIds.forEach(guildId -> reloadGuild(registration, guildId));
+        } finally {
+            table.reloadLock.unlock();
+        }
+
+        log.info("{}Registration Snapshot- Loaded {} guilds from {}, using {} bytes{}", AnsiColor.GREEN, table.size(), registration.table, table.memoryBytes(), AnsiColor.RESET);
+    }
+
+    private void reloadGuild(Registration registration, long guildId) {
+        List<Long> channelIds = jdbcTemplate.queryForList(
+                "SELECT channel_id FROM " + tableNames.of(registration.table) + " WHERE guild_id = ?", Long.class, guildId);
+
+        Table table = tables.get(registration);
+        if (channelIds.isEmpty()) {
+            table.remove(guildId);
+        } else {
+            table.put(guildId, channelIds.getFirst());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static final class Table {
+
+        private final StampedLock lock = new StampedLock();
+        private final ReentrantLock reloadLock = new ReentrantLock();
+        private LongLongHashMap entries = new LongLongHashMap();
+        private volatile boolean loaded;
+        // the guilds changed during the ongoing reload, null while no reload is reading
+        private volatile Set<Long> changedDuringReload;
+
+        // An optimistic read may see the map halfway through a write, validate() then fails and the read is retried under
+        // the read lock. The table array is read once per lookup and probing is bounded, so such a read can't go wrong first.
+        long get(long guildId) {
+            long stamp = lock.tryOptimisticRead();
+            long channelId = entries.getOrDefault(guildId, NOT_REGISTERED);
+            if (lock.validate(stamp)) {
+                return channelId;
+            }
+
+            stamp = lock.readLock();
+            try {
+                return entries.getOrDefault(guildId, NOT_REGISTERED);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        Map<Long, Long> find(LongPredicate guildFilter) {
+            Map<Long, Long> found = new HashMap<>();
+            long stamp = lock.readLock();
+            try {
+                entries.forEach((guildId, channelId) -> {
+                    if (guildFilter.test(guildId)) {
+                        found.put(guildId, channelId);
+                    }
+                });
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            return found;
+        }
+
+        void put(long guildId, long channelId) {
+            long stamp = lock.writeLock();
+            try {
+                entries.put(guildId, channelId);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            trackChange(guildId);
+        }
+
+        void remove(long guildId) {
+            long stamp = lock.writeLock();
+            try {
+                entries.remove(guildId);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            trackChange(guildId);
+        }
+
+        void replace(LongLongHashMap replacement) {
+            long stamp = lock.writeLock();
+            try {
+                entries = replacement;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            loaded = true;
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return entries.size();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        long memoryBytes() {
+            long stamp = lock.readLock();
+            try {
+                return entries.memoryBytes();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private void trackChange(long guildId) {
+            Set<Long> changedGuildIds = changedDuringReload;
+            if (changedGuildIds != null) {
+                changedGuildIds.add(guildId);
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.eggy03.papertrail.api.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+// An in-process caffeine cache (L1) in front of a redis cache (L2).
+// Writes go to both levels and are announced to the other nodes, which drop their L1 entry for the key.
+// L1 entries are keyed by the string form of the key, the same form the redis keys are built from.
+public class TwoLevelCache implements org.springframework.cache.Cache {
+
+    private final org.springframework.cache.Cache remoteCache;
+    private final Cache<String, ValueWrapper> nearCache;
+    private final CacheInvalidationTopic invalidationTopic;
+
+    // bumped on every invalidation, so that an L2 read which raced one doesn't get stored in L1
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public TwoLevelCache(org.springframework.cache.Cache remoteCache, Cache<String, ValueWrapper> nearCache, CacheInvalidationTopic invalidationTopic) {
+        this.remoteCache = remoteCache;
+        this.nearCache = nearCache;
+        this.invalidationTopic = invalidationTopic;
+    }
+
+    @Override
+    @NonNull
+    public String getName() {
+        return remoteCache.getName();
+    }
+
+    @Override
+    @NonNull
+    public Object getNativeCache() {
+        return remoteCache.getNativeCache();
+    }
+
+    @Override
+    @Nullable
+    public ValueWrapper get(@NonNull Object key) {
+        String nearKey = nearKey(key);
+        ValueWrapper nearValue = nearCache.getIfPresent(nearKey);
+        if (nearValue != null) {
+            return nearValue;
+        }
+
+        long invalidationsBeforeRead = invalidations.get();
+        ValueWrapper remoteValue = remoteCache.get(key);
+        if (remoteValue != null && invalidations.get() == invalidationsBeforeRead) {
+            nearCache.put(nearKey, new SimpleValueWrapper(remoteValue.get()));
+        }
+        return remoteValue;
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T get(@NonNull Object key, @Nullable Class<T> type) {
+        ValueWrapper valueWrapper = get(key);
+        Object value = valueWrapper != null ? valueWrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T get(@NonNull Object key, @NonNull Callable<T> valueLoader) {
+        ValueWrapper valueWrapper = get(key);
+        if (valueWrapper != null) {
+            return (T) valueWrapper.get();
+        }
+
+        long invalidationsBeforeRead = invalidations.get();
+        T value = remoteCache.get(key, valueLoader);
+        if (invalidations.get() == invalidationsBeforeRead) {
+            nearCache.put(nearKey(key), new SimpleValueWrapper(value));
+        }
+        return value;
+    }
+
+    @Override
+    public void put(@NonNull Object key, @Nullable Object value) {
+        remoteCache.put(key, value);
+        invalidateNear(List.of(nearKey(key)));
+        nearCache.put(nearKey(key), new SimpleValueWrapper(value));
+        invalidationTopic.publishInvalidate(getName(), List.of(key));
+    }
+
+    @Override
+    @Nullable
+    public ValueWrapper putIfAbsent(@NonNull Object key, @Nullable Object value) {
+        ValueWrapper existingValue = remoteCache.putIfAbsent(key, value);
+        invalidateNear(List.of(nearKey(key)));
+        invalidationTopic.publishInvalidate(getName(), List.of(key));
+        return existingValue;
+    }
+
+    @Override
+    public void evict(@NonNull Object key) {
+        remoteCache.evict(key);
+        invalidateNear(List.of(nearKey(key)));
+        invalidationTopic.publishInvalidate(getName(), List.of(key));
+    }
+
+    @Override
+    public void clear() {
+        remoteCache.clear();
+        clearNear();
+        invalidationTopic.publishClear(getName());
+    }
+
+    // applies an invalidation to L1 only, for writes that reached L2 without going through this cache
+    public void invalidateNear(List<String> nearKeys) {
+        invalidations.incrementAndGet();
+        nearCache.invalidateAll(nearKeys);
+    }
+
+    public void clearNear() {
+        invalidations.incrementAndGet();
+        nearCache.invalidateAll();
+    }
+
+    public static String nearKey(Object key) {
+        return String.valueOf(key);
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.eggy03.papertrail.api.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Wraps the caches of the remote (redis) cache manager into a TwoLevelCache for every cache that has a near cache spec,
+// other caches are handed out as they are. Near cache specs use the caffeine spec format, e.g. "maximumSize=1000,expireAfterWrite=10m".
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, CacheInvalidationTopic.Listener {
+
+    private final CacheManager remoteCacheManager;
+    private final Map<String, String> nearCacheSpecs;
+    private final CacheInvalidationTopic invalidationTopic;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager remoteCacheManager, Map<String, String> nearCacheSpecs, CacheInvalidationTopic invalidationTopic, MeterRegistry meterRegistry) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.nearCacheSpecs = Map.copyOf(nearCacheSpecs);
+        this.invalidationTopic = invalidationTopic;
+        this.meterRegistry = meterRegistry;
+
+        invalidationTopic.subscribe(this);
+    }
+
+    @Override
+    @Nullable
+    public Cache getCache(@NonNull String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    @NonNull
+    public Collection<String> getCacheNames() {
+        return remoteCacheManager.getCacheNames();
+    }
+
+    // drops L1 entries for keys written to L2 directly (e.g. through RedisCacheOperations) here and on every other node
+    public void invalidate(String cacheName, Collection<?> keys) {
+        if (keys.isEmpty() || !(getCache(cacheName) instanceof TwoLevelCache twoLevelCache)) {
+            return;
+        }
+
+        twoLevelCache.invalidateNear(keys.stream().map(TwoLevelCache::nearKey).toList());
+        invalidationTopic.publishInvalidate(cacheName, keys);
+    }
+
+    @Override
+    public void onInvalidate(String cacheName, List<String> keys) {
+        if (caches.get(cacheName) instanceof TwoLevelCache twoLevelCache) {
+            twoLevelCache.invalidateNear(keys);
+        }
+    }
+
+    @Override
+    public void onClear(String cacheName) {
+        if (caches.get(cacheName) instanceof TwoLevelCache twoLevelCache) {
+            twoLevelCache.clearNear();
+        }
+    }
+
+    private Cache createCache(String name) {
+        Cache remoteCache = remoteCacheManager.getCache(name);
+        String nearCacheSpec = nearCacheSpecs.get(name);
+        if (remoteCache == null || nearCacheSpec == null) {
+            return remoteCache;
+        }
+
+        com.github.benmanes.caffeine.cache.Cache<String, Cache.ValueWrapper> nearCache = Caffeine.from(nearCacheSpec)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, nearCache, name + ".near");
+
+        log.info("Near cache enabled for cache {} with spec {}", name, nearCacheSpec);
+        return new TwoLevelCache(remoteCache, nearCache, invalidationTopic);
+    }
+}
@@ -0,0 +1,30 @@
+package io.github.eggy03.papertrail.api.cache.codec;
+
+import io.github.eggy03.papertrail.api.dto.AuditLogRegistrationDTO;
+
+import java.nio.ByteBuffer;
+
+// version 1: guildId (8) | channelId (8)
+public class AuditLogRegistrationSerializer extends BinaryCacheSerializer<AuditLogRegistrationDTO> {
+
+    private static final byte VERSION = 1;
+
+    public AuditLogRegistrationSerializer() {
+        super(AuditLogRegistrationDTO.class, VERSION);
+    }
+
+    @Override
+    protected ByteBuffer write(AuditLogRegistrationDTO value) {
+        return allocate(2 * Long.BYTES)
+                .putLong(requireLong(value.getGuildId(), "guildId"))
+                .putLong(requireLong(value.getChannelId(), "channelId"));
+    }
+
+    @Override
+    protected AuditLogRegistrationDTO read(ByteBuffer buffer) {
+        AuditLogRegistrationDTO value = new AuditLogRegistrationDTO();
+        value.setGuildId(buffer.getLong());
+        value.setChannelId(buffer.getLong());
+        return value;
+    }
+}
@@ -0,0 +1,122 @@
+package io.github.eggy03.papertrail.api.cache.codec;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Base for the typed cache value codecs: a format version byte followed by the fields of the value,
+// longs as fixed 8 bytes and strings as a 4 byte length (-1 for null) followed by their UTF-8 bytes.
+// Values in any other format (e.g. JSON written before the codec was introduced) are read as a cache miss.
+@Slf4j
+public abstract class BinaryCacheSerializer<T> implements RedisSerializer<T> {
+
+    private final Class<T> type;
+    private final byte version;
+
+    protected BinaryCacheSerializer(Class<T> type, byte version) {
+        this.type = type;
+        this.version = version;
+    }
+
+    // fills a buffer obtained from allocate(...)
+    protected abstract ByteBuffer write(T value);
+
+    protected abstract T read(ByteBuffer buffer);
+
+    // buffer for the given size of the encoded fields, with the version byte already written
+    protected ByteBuffer allocate(int size) {
+        return ByteBuffer.allocate(1 + size).put(version);
+    }
+
+    @Override
+    @Nullable
+    public byte[] serialize(@Nullable T value) {
+        if (value == null) {
+            return null;
+        }
+
+        return write(value).array();
+    }
+
+    @Override
+    @Nullable
+    public T deserialize(@Nullable byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+
+        if (bytes[0] != version) {
+            log.debug("Ignoring cached {} with unknown format {}", type.getSimpleName(), bytes[0]);
+            return null;
+        }
+
+        try {
+            return read(ByteBuffer.wrap(bytes, 1, bytes.length - 1));
+        } catch (BufferUnderflowException e) {
+            throw new SerializationException("Truncated cached " + type.getSimpleName(), e);
+        }
+    }
+
+    @Override
+    @NonNull
+    public Class<?> getTargetType() {
+        return type;
+    }
+
+    protected static long requireLong(@Nullable Long value, String field) {
+        if (value == null) {
+            throw new SerializationException("Cannot cache a value without " + field);
+        }
+        return value;
+    }
+
+    @Nullable
+    protected static byte[] utf8(@Nullable String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    protected static int sizeOfBytes(@Nullable byte[] bytes) {
+        return Integer.BYTES + (bytes != null ? bytes.length : 0);
+    }
+
+    protected static void putBytes(ByteBuffer buffer, @Nullable byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    protected static byte[] getBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Nullable
+    protected static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,45 @@
+package io.github.eggy03.papertrail.api.cache.codec;
+
+import io.github.eggy03.papertrail.api.dto.GuildLoggingConfigDTO;
+
+import java.nio.ByteBuffer;
+
+// version 1: guildId (8) | registered flags (1) | auditLogChannelId (8) | messageLogChannelId (8), unset channels as 0
+public class GuildLoggingConfigSerializer extends BinaryCacheSerializer<GuildLoggingConfigDTO> {
+
+    private static final byte VERSION = 1;
+
+    private static final byte AUDIT_LOG = 1;
+    private static final byte MESSAGE_LOG = 1 << 1;
+
+    public GuildLoggingConfigSerializer() {
+        super(GuildLoggingConfigDTO.class, VERSION);
+    }
+
+    @Override
+    protected ByteBuffer write(GuildLoggingConfigDTO value) {
+        Long auditLogChannelId = value.getAuditLogChannelId();
+        Long messageLogChannelId = value.getMessageLogChannelId();
+        byte flags = (byte) ((auditLogChannelId != null ? AUDIT_LOG : 0) | (messageLogChannelId != null ? MESSAGE_LOG : 0));
+
+        return allocate(3 * Long.BYTES + 1)
+                .putLong(requireLong(value.getGuildId(), "guildId"))
+                .put(flags)
+                .putLong(auditLogChannelId != null ? auditLogChannelId : 0L)
+                .putLong(messageLogChannelId != null ? messageLogChannelId : 0L);
+    }
+
+    @Override
+    protected GuildLoggingConfigDTO read(ByteBuffer buffer) {
+        long guildId = buffer.getLong();
+        byte flags = buffer.get();
+        long auditLogChannelId = buffer.getLong();
+        long messageLogChannelId = buffer.getLong();
+
+        return new GuildLoggingConfigDTO(
+                guildId,
+                (flags & AUDIT_LOG) != 0 ? auditLogChannelId : null,
+                (flags & MESSAGE_LOG) != 0 ? messageLogChannelId : null
+        );
+    }
+}
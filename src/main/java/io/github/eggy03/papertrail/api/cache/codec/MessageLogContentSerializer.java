@@ -0,0 +1,48 @@
+package io.github.eggy03.papertrail.api.cache.codec;
+
+import io.github.eggy03.papertrail.api.compression.MessageContentCompressor;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.ByteBuffer;
+
+// version 2: messageId (8) | authorId (8) | content encoding (1) | content length (4) | content (UTF-8 or compressed)
+public class MessageLogContentSerializer extends BinaryCacheSerializer<MessageLogContentDTO> {
+
+    private static final byte VERSION = 2;
+
+    private static final byte PLAIN = 0;
+    private static final byte COMPRESSED = 1;
+
+    private final MessageContentCompressor compressor;
+
+    public MessageLogContentSerializer(MessageContentCompressor compressor) {
+        super(MessageLogContentDTO.class, VERSION);
+        this.compressor = compressor;
+    }
+
+    @Override
+    protected ByteBuffer write(MessageLogContentDTO value) {
+        byte[] compressed = compressor.compress(value.getMessageContent());
+        byte[] content = compressed != null ? compressed : utf8(value.getMessageContent());
+        ByteBuffer buffer = allocate(2 * Long.BYTES + 1 + sizeOfBytes(content))
+                .putLong(requireLong(value.getMessageId(), "messageId"))
+                .putLong(requireLong(value.getAuthorId(), "authorId"))
+                .put(compressed != null ? COMPRESSED : PLAIN);
+        putBytes(buffer, content);
+        return buffer;
+    }
+
+    @Override
+    protected MessageLogContentDTO read(ByteBuffer buffer) {
+        MessageLogContentDTO value = new MessageLogContentDTO();
+        value.setMessageId(buffer.getLong());
+        value.setAuthorId(buffer.getLong());
+        value.setMessageContent(switch (buffer.get()) {
+            case PLAIN -> getString(buffer);
+            case COMPRESSED -> compressor.decompress(getBytes(buffer));
+            default -> throw new SerializationException("Unknown message content encoding");
+        });
+        return value;
+    }
+}
@@ -0,0 +1,30 @@
+package io.github.eggy03.papertrail.api.cache.codec;
+
+import io.github.eggy03.papertrail.api.dto.MessageLogRegistrationDTO;
+
+import java.nio.ByteBuffer;
+
+// version 1: guildId (8) | channelId (8)
+public class MessageLogRegistrationSerializer extends BinaryCacheSerializer<MessageLogRegistrationDTO> {
+
+    private static final byte VERSION = 1;
+
+    public MessageLogRegistrationSerializer() {
+        super(MessageLogRegistrationDTO.class, VERSION);
+    }
+
+    @Override
+    protected ByteBuffer write(MessageLogRegistrationDTO value) {
+        return allocate(2 * Long.BYTES)
+                .putLong(requireLong(value.getGuildId(), "guildId"))
+                .putLong(requireLong(value.getChannelId(), "channelId"));
+    }
+
+    @Override
+    protected MessageLogRegistrationDTO read(ByteBuffer buffer) {
+        MessageLogRegistrationDTO value = new MessageLogRegistrationDTO();
+        value.setGuildId(buffer.getLong());
+        value.setChannelId(buffer.getLong());
+        return value;
+    }
+}
@@ -0,0 +1,30 @@
+package io.github.eggy03.papertrail.api.compression;
+
+import io.github.eggy03.papertrail.api.entity.MessageLogContent;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+// Keeps the transient messageContent of MessageLogContent in sync with the columns it is stored in.
+// Resolved from the spring context by hibernate, so the compressor configuration applies.
+@Component
+@RequiredArgsConstructor
+public class MessageContentCompressionListener {
+
+    private final MessageContentCompressor compressor;
+
+    @PrePersist
+    @PreUpdate
+    public void compress(MessageLogContent messageLogContent) {
+        MessageContentCompressor.EncodedContent encoded = compressor.encode(messageLogContent.getMessageContent());
+        messageLogContent.setPlainContent(encoded.plainContent());
+        messageLogContent.setCompressedContent(encoded.compressedContent());
+    }
+
+    @PostLoad
+    public void decompress(MessageLogContent messageLogContent) {
+        messageLogContent.setMessageContent(compressor.decode(messageLogContent.getPlainContent(), messageLogContent.getCompressedContent()));
+    }
+}
@@ -0,0 +1,126 @@
+package io.github.eggy03.papertrail.api.compression;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Compresses message content with raw deflate primed with a preset dictionary of common chat text,
+// which is what makes short and medium messages compress at all. Compressed content starts with a format byte
+// naming the dictionary, so that a new dictionary can be introduced while content compressed with the old one is still readable.
+// Content below the threshold, or that doesn't get smaller, is left uncompressed.
+@Component
+public class MessageContentCompressor {
+
+    private static final byte FORMAT_DEFLATE_DICTIONARY_V1 = 1;
+    private static final byte[] DICTIONARY_V1 = loadDictionary("compression/message-content-dictionary-v1.txt");
+
+    private final boolean enabled;
+    private final int threshold;
+
+    public MessageContentCompressor(
+            @Value("${papertrail.message-content.compression.enabled:false}") boolean enabled,
+            @Value("${papertrail.message-content.compression.threshold:128}") int threshold) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+    }
+
+    // content is stored in exactly one of the two forms
+    public record EncodedContent(@Nullable String plainContent, @Nullable byte[] compressedContent) {
+    }
+
+    public EncodedContent encode(@Nullable String content) {
+        byte[] compressed = compress(content);
+        return compressed != null ? new EncodedContent(null, compressed) : new EncodedContent(content, null);
+    }
+
+    @Nullable
+    public String decode(@Nullable String plainContent, @Nullable byte[] compressedContent) {
+        return compressedContent != null ? decompress(compressedContent) : plainContent;
+    }
+
+    // null if the content should be stored as it is
+    @Nullable
+    public byte[] compress(@Nullable String content) {
+        if (!enabled || content == null) {
+            return null;
+        }
+
+        byte[] input = content.getBytes(StandardCharsets.UTF_8);
+        if (input.length < threshold) {
+            return null;
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setDictionary(DICTIONARY_V1);
+            deflater.setInput(input);
+            deflater.finish();
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length);
+            output.write(FORMAT_DEFLATE_DICTIONARY_V1);
+            byte[] buffer = new byte[Math.max(64, input.length)];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+
+            return output.size() < input.length ? output.toByteArray() : null;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public String decompress(byte[] compressedContent) {
+        if (compressedContent.length == 0 || compressedContent[0] != FORMAT_DEFLATE_DICTIONARY_V1) {
+            throw new IllegalStateException("Unknown message content compression format");
+        }
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setDictionary(DICTIONARY_V1);
+            inflater.setInput(compressedContent, 1, compressedContent.length - 1);
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream(compressedContent.length * 4);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed message content");
+                }
+                output.write(buffer, 0, inflated);
+            }
+
+            return output.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed message content", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // minimum length in characters that content of at least threshold UTF-8 bytes can have
+    public int minimumCompressibleLength() {
+        return Math.max(1, threshold / 4);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private static byte[] loadDictionary(String path) {
+        try (InputStream inputStream = new ClassPathResource(path).getInputStream()) {
+            return inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load compression dictionary " + path, e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.eggy03.papertrail.api.configuration;
+
+import io.github.eggy03.papertrail.api.exceptions.ServiceOverloadedException;
+import io.github.eggy03.papertrail.api.util.AdaptiveConcurrencyLimit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+// With virtual threads every request gets a thread, so a burst isn't held back by the servlet container, it piles up
+// behind the connection pool and the message locks instead. Each operation class gets its own adaptive limit, and
+// requests beyond it are answered with a 503 right away. Registration writes, imports and exports aren't limited.
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final String CONTENT_PREFIX = "/api/v1/content/";
+    private static final String REGISTRATION_PREFIX = "/api/v1/log/";
+
+    enum Operation {
+        REGISTRATION_READ, CONTENT_READ, CONTENT_WRITE
+    }
+
+    private final HandlerExceptionResolver exceptionResolver;
+    private final boolean enabled;
+    private final Map<Operation, AdaptiveConcurrencyLimit> limits = new EnumMap<>(Operation.class);
+    private final Map<Operation, Counter> acceptedRequests = new EnumMap<>(Operation.class);
+    private final Map<Operation, Counter> rejectedRequests = new EnumMap<>(Operation.class);
+
+    public ConcurrencyLimitFilter(
+            @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver,
+            MeterRegistry meterRegistry,
+            @Value("${papertrail.limiter.enabled:false}") boolean enabled,
+            @Value("${papertrail.limiter.initial-limit:20}") int initialLimit,
+            @Value("${papertrail.limiter.min-limit:4}") int minLimit,
+            @Value("${papertrail.limiter.max-limit:200}") int maxLimit,
+            @Value("${papertrail.limiter.latency-threshold:500ms}") Duration latencyThreshold,
+            @Value("${papertrail.limiter.decrease-interval:500ms}") Duration decreaseInterval) {
+
+        this.exceptionResolver = exceptionResolver;
+        this.enabled = enabled;
+
+        for (Operation operation : Operation.values()) {
+            AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, latencyThreshold, decreaseInterval);
+            limits.put(operation, limit);
+
+            String name = operation.name().toLowerCase();
+            Gauge.builder("papertrail.limiter.limit", limit, AdaptiveConcurrencyLimit::limit)
+                    .tag("operation", name)
+                    .register(meterRegistry);
+            Gauge.builder("papertrail.limiter.inflight", limit, AdaptiveConcurrencyLimit::inFlight)
+                    .tag("operation", name)
+                    .register(meterRegistry);
+            acceptedRequests.put(operation, Counter.builder("papertrail.limiter.requests")
+                    .tag("operation", name)
+                    .tag("outcome", "accepted")
+                    .register(meterRegistry));
+            rejectedRequests.put(operation, Counter.builder("papertrail.limiter.requests")
+                    .tag("operation", name)
+                    .tag("outcome", "rejected")
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || classify(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        Operation operation = classify(request);
+        AdaptiveConcurrencyLimit limit = limits.get(operation);
+        if (!limit.tryAcquire()) {
+            rejectedRequests.get(operation).increment();
+            // answered by the GlobalExceptionHandler, like any other error
+            exceptionResolver.resolveException(request, response, null,
+                    new ServiceOverloadedException("Too many concurrent " + operation.name().toLowerCase().replace('_', ' ') + " requests, retry shortly"));
+            return;
+        }
+
+        acceptedRequests.get(operation).increment();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = response.getStatus() >= 500;
+        } finally {
+            limit.release(System.nanoTime() - start, failed);
+        }
+    }
+
+    private static Operation classify(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        String method = request.getMethod();
+
+        if (uri.startsWith(CONTENT_PREFIX)) {
+            boolean read = "GET".equals(method) || uri.endsWith("/batch/fetch");
+            return read ? Operation.CONTENT_READ : Operation.CONTENT_WRITE;
+        }
+        if (uri.startsWith(REGISTRATION_PREFIX) && ("GET".equals(method) || uri.endsWith("/registrations/batch"))) {
+            return Operation.REGISTRATION_READ;
+        }
+        return null;
+    }
+}
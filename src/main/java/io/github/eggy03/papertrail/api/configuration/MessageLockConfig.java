@@ -0,0 +1,29 @@
+package io.github.eggy03.papertrail.api.configuration;
+
+import io.github.eggy03.papertrail.api.lock.LocalMessageLockProvider;
+import io.github.eggy03.papertrail.api.lock.MessageLockProvider;
+import io.github.eggy03.papertrail.api.lock.RedissonMessageLockProvider;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MessageLockConfig {
+
+    @Value("${papertrail.message-content.lock.provider:redisson}")
+    private String provider;
+
+    @Value("${papertrail.message-content.lock.local.stripes:1024}")
+    private int localStripes;
+
+    @Bean
+    public MessageLockProvider messageLockProvider(RedissonClient redissonClient) {
+        return switch (provider) {
+            // the only choice with more than one replica, as the locks have to be shared between them
+            case "redisson" -> new RedissonMessageLockProvider(redissonClient);
+            case "local" -> new LocalMessageLockProvider(localStripes);
+            default -> throw new IllegalStateException("Unknown message lock provider " + provider + ", expected redisson or local");
+        };
+    }
+}
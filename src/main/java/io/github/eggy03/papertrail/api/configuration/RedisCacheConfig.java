@@ -1,9 +1,21 @@
 package io.github.eggy03.papertrail.api.configuration;
 
+import io.github.eggy03.papertrail.api.cache.CacheInvalidationTopic;
+import io.github.eggy03.papertrail.api.cache.TwoLevelCacheManager;
+import io.github.eggy03.papertrail.api.cache.codec.AuditLogRegistrationSerializer;
+import io.github.eggy03.papertrail.api.cache.codec.GuildLoggingConfigSerializer;
+import io.github.eggy03.papertrail.api.cache.codec.MessageLogContentSerializer;
+import io.github.eggy03.papertrail.api.cache.codec.MessageLogRegistrationSerializer;
+import io.github.eggy03.papertrail.api.compression.MessageContentCompressor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.support.NullValue;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
@@ -15,25 +27,68 @@ import java.util.Map;
 @Configuration
 public class RedisCacheConfig {
 
+    private static final Duration REGISTRATION_TTL = Duration.ofDays(30);
+    private static final Duration NOT_REGISTERED_TTL = Duration.ofHours(1);
+
+    @Value("${papertrail.cache.near.enabled:false}")
+    private boolean nearCacheEnabled;
+
+    // Caffeine specs, registrations are read on nearly every event and rarely change. An empty spec leaves the cache to redis alone
+    @Value("${papertrail.cache.near.audit-log-spec:maximumSize=100000,expireAfterWrite=10m}")
+    private String auditLogNearCacheSpec;
+
+    @Value("${papertrail.cache.near.message-log-spec:maximumSize=100000,expireAfterWrite=10m}")
+    private String messageLogNearCacheSpec;
+
+    @Value("${papertrail.cache.near.guild-config-spec:maximumSize=100000,expireAfterWrite=10m}")
+    private String guildConfigNearCacheSpec;
+
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
-        RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
+    public RedisCacheManager redisCacheManager(RedisConnectionFactory connectionFactory, MessageContentCompressor compressor) {
+        RedisCacheConfiguration nullableConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .serializeValuesWith(
                         RedisSerializationContext.SerializationPair.fromSerializer(
                                 new GenericJackson2JsonRedisSerializer()
                         )
-                ).disableCachingNullValues();
+                );
+        RedisCacheConfiguration config = nullableConfig.disableCachingNullValues();
+
+        // registration caches also hold "not registered" markers, which expire sooner than registrations
+        RedisCacheWriter.TtlFunction registrationTtl = (key, value) ->
+                value == null || value instanceof NullValue ? NOT_REGISTERED_TTL : REGISTRATION_TTL;
 
-        //per cache config
+        //per cache config, with a compact binary codec for the value type of each cache
         Map<String, RedisCacheConfiguration> perCacheConfig = new HashMap<>();
-        perCacheConfig.put("auditLog", config.entryTtl(Duration.ofDays(30)));
-        perCacheConfig.put("messageLog", config.entryTtl(Duration.ofDays(30)));
-        perCacheConfig.put("messageContent", config.entryTtl(Duration.ofDays(1)));
+        perCacheConfig.put("auditLog", nullableConfig.entryTtl(registrationTtl)
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new AuditLogRegistrationSerializer())));
+        perCacheConfig.put("messageLog", nullableConfig.entryTtl(registrationTtl)
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new MessageLogRegistrationSerializer())));
+        perCacheConfig.put("guildConfig", nullableConfig.entryTtl(registrationTtl)
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GuildLoggingConfigSerializer())));
+        perCacheConfig.put("messageContent", config.entryTtl(Duration.ofDays(1))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new MessageLogContentSerializer(compressor))));
 
         return RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(config)
                 .withInitialCacheConfigurations(perCacheConfig)
                 .build();
     }
-}
 
+    @Bean
+    @Primary
+    public TwoLevelCacheManager cacheManager(RedisCacheManager redisCacheManager, CacheInvalidationTopic invalidationTopic, MeterRegistry meterRegistry) {
+
+        //per cache near cache (L1) config, caches without an entry are served by redis alone
+        Map<String, String> nearCacheSpecs = new HashMap<>();
+        if (nearCacheEnabled) {
+            Map.of("auditLog", auditLogNearCacheSpec, "messageLog", messageLogNearCacheSpec, "guildConfig", guildConfigNearCacheSpec)
+                    .forEach((cacheName, spec) -> {
+                        if (!spec.isBlank()) {
+                            nearCacheSpecs.put(cacheName, spec);
+                        }
+                    });
+        }
+
+        return new TwoLevelCacheManager(redisCacheManager, nearCacheSpecs, invalidationTopic, meterRegistry);
+    }
+}
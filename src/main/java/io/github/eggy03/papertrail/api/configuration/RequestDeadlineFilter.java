@@ -0,0 +1,53 @@
+package io.github.eggy03.papertrail.api.configuration;
+
+import io.github.eggy03.papertrail.api.util.RequestDeadline;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Every request gets a deadline of papertrail.request.timeout after its arrival. Clients whose own call times out sooner
+// can send that timeout in milliseconds as X-Request-Timeout, which only ever brings the deadline forward.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private final long timeoutNanos;
+
+    public RequestDeadlineFilter(@Value("${papertrail.request.timeout:10s}") Duration timeout) {
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        long arrivalNanos = System.nanoTime();
+        request.setAttribute(RequestDeadline.ATTRIBUTE, arrivalNanos + Math.min(timeoutNanos, clientTimeoutNanos(request)));
+        filterChain.doFilter(request, response);
+    }
+
+    private static long clientTimeoutNanos(HttpServletRequest request) {
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (header == null) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, Long.parseLong(header.trim())));
+        } catch (NumberFormatException e) {
+            // malformed timeouts are ignored rather than failing the request
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package io.github.eggy03.papertrail.api.controller;
 
 import io.github.eggy03.papertrail.api.dto.AuditLogRegistrationDTO;
+import io.github.eggy03.papertrail.api.exceptions.GuildNotFoundException;
 import io.github.eggy03.papertrail.api.exceptions.handler.ErrorResponse;
 import io.github.eggy03.papertrail.api.service.AuditLogRegistrationService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -55,7 +56,8 @@ public class AuditLogRegistrationController {
     @ApiResponse(responseCode = "404", description = "Guild not registered for audit logging", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     @GetMapping("/{guildId}")
     public ResponseEntity<AuditLogRegistrationDTO> findRegistration (@PathVariable @Valid Long guildId) {
-        return ResponseEntity.ok(service.findByGuild(guildId));
+        return ResponseEntity.ok(service.findByGuild(guildId)
+                .orElseThrow(() -> new GuildNotFoundException("Guild is not registered for audit logging")));
     }
 
     @Operation(
@@ -0,0 +1,84 @@
+package io.github.eggy03.papertrail.api.controller;
+
+import io.github.eggy03.papertrail.api.dto.ImportResultDTO;
+import io.github.eggy03.papertrail.api.exceptions.handler.ErrorResponse;
+import io.github.eggy03.papertrail.api.service.BulkImportService;
+import io.github.eggy03.papertrail.api.service.BulkImportService.ImportFormat;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.parameters.RequestBody;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/import")
+@Tag(
+        name = "Bulk Import",
+        description = "API for importing registrations and logged messages in bulk, such as when migrating from an older PaperTrail version. "
+                + "The request body is NDJSON (as produced by the export endpoints), or CSV with a header row when sent as `text/csv`. "
+                + "Records that already exist are skipped and counted as conflicts, so an import can be run again after it broke off."
+)
+public class BulkImportController {
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private final BulkImportService service;
+
+    @Operation(
+            summary = "Import audit log registrations",
+            description = "Imports `AuditLogRegistration` records, with the fields `guildId` and `channelId`.",
+            requestBody = @RequestBody(content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")})
+    )
+    @ApiResponse(responseCode = "200", description = "Import finished", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportResultDTO.class)))
+    @ApiResponse(responseCode = "400", description = "Input could not be read, the records before the faulty one were imported", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    @PostMapping("/registrations/audit")
+    public ResponseEntity<ImportResultDTO> importAuditLogRegistrations (HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(service.importAuditLogRegistrations(request.getInputStream(), formatOf(request)));
+    }
+
+    @Operation(
+            summary = "Import message log registrations",
+            description = "Imports `MessageLogRegistration` records, with the fields `guildId` and `channelId`.",
+            requestBody = @RequestBody(content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")})
+    )
+    @ApiResponse(responseCode = "200", description = "Import finished", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportResultDTO.class)))
+    @ApiResponse(responseCode = "400", description = "Input could not be read, the records before the faulty one were imported", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    @PostMapping("/registrations/message")
+    public ResponseEntity<ImportResultDTO> importMessageLogRegistrations (HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(service.importMessageLogRegistrations(request.getInputStream(), formatOf(request)));
+    }
+
+    @Operation(
+            summary = "Import logged messages",
+            description = "Imports `MessageLogContent` records, with the fields `messageId`, `messageContent` and `authorId`.",
+            requestBody = @RequestBody(content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")})
+    )
+    @ApiResponse(responseCode = "200", description = "Import finished", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportResultDTO.class)))
+    @ApiResponse(responseCode = "400", description = "Input could not be read, the records before the faulty one were imported", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    @PostMapping("/content/message")
+    public ResponseEntity<ImportResultDTO> importMessages (HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(service.importMessages(request.getInputStream(), formatOf(request)));
+    }
+
+    // the body is read as a stream rather than bound, so the content type is only looked at here
+    private static ImportFormat formatOf(HttpServletRequest request) {
+        try {
+            String contentType = request.getContentType();
+            return contentType != null && TEXT_CSV.isCompatibleWith(MediaType.parseMediaType(contentType)) ? ImportFormat.CSV : ImportFormat.NDJSON;
+        } catch (InvalidMediaTypeException e) {
+            return ImportFormat.NDJSON;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.eggy03.papertrail.api.controller;
+
+import io.github.eggy03.papertrail.api.exceptions.handler.ErrorResponse;
+import io.github.eggy03.papertrail.api.service.DataExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Instant;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/export")
+@Tag(
+        name = "Data Export",
+        description = "API for exporting registrations and logged messages as NDJSON, streamed so that tables of any size can be exported"
+)
+public class DataExportController {
+
+    private final DataExportService service;
+
+    @Operation(
+            summary = "Export all audit log registrations",
+            description = "Streams every audit log registration as NDJSON, one `AuditLogRegistration` object per line, in guild ID order."
+    )
+    @ApiResponse(responseCode = "200", description = "Registrations as NDJSON", content = @Content(mediaType = "application/x-ndjson"))
+    @GetMapping("/registrations/audit")
+    public ResponseEntity<StreamingResponseBody> exportAuditLogRegistrations () {
+        return ndjson("audit-log-registrations.ndjson", service::exportAuditLogRegistrations);
+    }
+
+    @Operation(
+            summary = "Export all message log registrations",
+            description = "Streams every message log registration as NDJSON, one `MessageLogRegistration` object per line, in guild ID order."
+    )
+    @ApiResponse(responseCode = "200", description = "Registrations as NDJSON", content = @Content(mediaType = "application/x-ndjson"))
+    @GetMapping("/registrations/message")
+    public ResponseEntity<StreamingResponseBody> exportMessageLogRegistrations () {
+        return ndjson("message-log-registrations.ndjson", service::exportMessageLogRegistrations);
+    }
+
+    @Operation(
+            summary = "Export the messages created in a time window",
+            description = "Streams the logged messages created in [from, to), going by the timestamp in their snowflake IDs, "
+                    + "as NDJSON, one `MessageLogContent` object per line, in ascending ID order."
+    )
+    @ApiResponse(responseCode = "200", description = "Messages as NDJSON", content = @Content(mediaType = "application/x-ndjson"))
+    @ApiResponse(responseCode = "400", description = "Invalid request parameters", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    @GetMapping("/content/message")
+    public ResponseEntity<StreamingResponseBody> exportMessages (@RequestParam Instant from, @RequestParam Instant to) {
+        return ndjson("messages.ndjson", outputStream -> service.exportMessages(from, to, outputStream));
+    }
+
+    // the export runs once the response is being written, on an async request thread
+    private static ResponseEntity<StreamingResponseBody> ndjson(String fileName, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.eggy03.papertrail.api.controller;
+
+import io.github.eggy03.papertrail.api.dto.GuildIdBatchDTO;
+import io.github.eggy03.papertrail.api.dto.GuildLoggingConfigDTO;
+import io.github.eggy03.papertrail.api.dto.GuildRegistrationBatchDTO;
+import io.github.eggy03.papertrail.api.exceptions.GuildNotFoundException;
+import io.github.eggy03.papertrail.api.exceptions.InvalidShardException;
+import io.github.eggy03.papertrail.api.exceptions.handler.ErrorResponse;
+import io.github.eggy03.papertrail.api.service.AuditLogRegistrationService;
+import io.github.eggy03.papertrail.api.service.GuildLoggingConfigService;
+import io.github.eggy03.papertrail.api.service.MessageLogRegistrationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@Validated
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/log/registrations")
+@Tag(
+        name = "Guild Registrations",
+        description = "API for fetching the audit log and message log registrations of many guilds at once, such as when a shard starts"
+)
+public class GuildRegistrationController {
+
+    private final AuditLogRegistrationService auditLogService;
+    private final MessageLogRegistrationService messageLogService;
+    private final GuildLoggingConfigService loggingConfigService;
+
+    @Operation(
+            summary = "Fetch the logging config of a guild",
+            description = "Retrieves the audit log channel and the message log channel of a guild in one lookup. "
+                    + "A channel is null if the guild is not registered for that log type."
+    )
+    @ApiResponse(responseCode = "200", description = "Logging config of the guild", content = @Content(mediaType = "application/json", schema = @Schema(implementation = GuildLoggingConfigDTO.class)))
+    @ApiResponse(responseCode = "404", description = "Guild is registered for neither audit logging nor message logging", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    @GetMapping("/{guildId}")
+    public ResponseEntity<GuildLoggingConfigDTO> findLoggingConfig (@PathVariable Long guildId) {
+        return ResponseEntity.ok(loggingConfigService.findByGuild(guildId)
+                .orElseThrow(() -> new GuildNotFoundException("Guild is registered for neither audit logging nor message logging")));
+    }
+
+    @Operation(
+            summary = "Fetch the registrations of a batch of guilds",
+            description = "Retrieves the audit log and message log registrations of all guilds in the batch in one response. "
+                    + "Guilds that are not registered for a log type are left out of that list."
+    )
+    @ApiResponse(responseCode = "200", description = "Registrations of the guilds in the batch", content = @Content(mediaType = "application/json", schema = @Schema(implementation = GuildRegistrationBatchDTO.class)))
+    @ApiResponse(responseCode = "400", description = "Invalid request payload", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    @PostMapping("/batch")
+    public ResponseEntity<GuildRegistrationBatchDTO> findRegistrations (@RequestBody @Valid GuildIdBatchDTO guildBatch) {
+        return ResponseEntity.ok(new GuildRegistrationBatchDTO(
+                auditLogService.findByGuilds(guildBatch.getGuildIds()),
+                messageLogService.findByGuilds(guildBatch.getGuildIds())
+        ));
+    }
+
+    @Operation(
+            summary = "Fetch the registrations of a shard",
+            description = "Retrieves the audit log and message log registrations of every registered guild the gateway assigns to the shard, "
+                    + "i.e. every guild with `(guildId >> 22) % shardCount == shardId`."
+    )
+    @ApiResponse(responseCode = "200", description = "Registrations of the guilds in the shard", content = @Content(mediaType = "application/json", schema = @Schema(implementation = GuildRegistrationBatchDTO.class)))
+    @ApiResponse(responseCode = "400", description = "Invalid request parameters", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    @GetMapping("/shard")
+    public ResponseEntity<GuildRegistrationBatchDTO> findShardRegistrations (
+            @RequestParam @Min(0) int shardId,
+            @RequestParam @Min(1) @Max(100000) int shardCount) {
+
+        if (shardId >= shardCount) {
+            throw new InvalidShardException("ShardID must be lower than the shard count");
+        }
+
+        return ResponseEntity.ok(new GuildRegistrationBatchDTO(
+                auditLogService.findByShard(shardId, shardCount),
+                messageLogService.findByShard(shardId, shardCount)
+        ));
+    }
+}
@@ -1,14 +1,21 @@
 package io.github.eggy03.papertrail.api.controller;
 
+import io.github.eggy03.papertrail.api.dto.MessageIdBatchDTO;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentBatchDTO;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentBatchResultDTO;
 import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
 import io.github.eggy03.papertrail.api.exceptions.handler.ErrorResponse;
+import io.github.eggy03.papertrail.api.service.MessageIngestQueue;
 import io.github.eggy03.papertrail.api.service.MessageLogContentService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -20,8 +27,12 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Instant;
+import java.util.List;
+
 @RestController
 @Validated
 @RequiredArgsConstructor
@@ -33,20 +44,59 @@ import org.springframework.web.bind.annotation.RestController;
 public class MessageLogContentController {
 
     private final MessageLogContentService service;
+    private final MessageIngestQueue ingestQueue;
 
     @Operation(
             summary = "Save a new message",
             description = "Logs a message by storing its ID, content, and author. "
-                    + "Throws `MessageAlreadyLoggedException` if the message was already logged."
+                    + "Throws `MessageAlreadyLoggedException` if the message was already logged. "
+                    + "In asynchronous ingestion mode the message is queued and logged shortly after, answered with 202, "
+                    + "and a message that was already logged is skipped instead. "
+                    + "A 202 is not durable: messages still queued when the service stops abruptly are lost. "
+                    + "Messages that fail to be written are kept and redelivered, so they may be logged with a delay."
     )
     @ApiResponse(responseCode = "201", description = "Message successfully logged", content = @Content(mediaType = "application/json", schema = @Schema(implementation = MessageLogContentDTO.class)))
+    @ApiResponse(responseCode = "202", description = "Message queued for logging, not yet written (asynchronous ingestion mode)", content = @Content(mediaType = "application/json", schema = @Schema(implementation = MessageLogContentDTO.class)))
     @ApiResponse(responseCode = "400", description = "Invalid request payload", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     @ApiResponse(responseCode = "409", description = "Message has already been logged", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    @ApiResponse(responseCode = "429", description = "Ingestion queue is full, retry after the Retry-After delay (asynchronous ingestion mode)", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     @PostMapping
     public ResponseEntity<MessageLogContentDTO> saveMessage(@RequestBody @Valid MessageLogContentDTO message){
+        if (ingestQueue.isEnabled()) {
+            ingestQueue.submit(message);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(message);
+        }
         return ResponseEntity.status(HttpStatus.CREATED).body(service.saveMessage(message));
     }
 
+    @Operation(
+            summary = "Save a batch of new messages",
+            description = "Logs every message in the batch within a single transaction using batched inserts. "
+                    + "Messages that were already logged, or that appear more than once in the batch, are reported as conflicts instead of failing the whole batch."
+    )
+    @ApiResponse(responseCode = "200", description = "Batch processed, see the response for the logged messages and conflicts", content = @Content(mediaType = "application/json", schema = @Schema(implementation = MessageLogContentBatchResultDTO.class)))
+    @ApiResponse(responseCode = "400", description = "Invalid request payload", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    @PostMapping("/batch")
+    public ResponseEntity<MessageLogContentBatchResultDTO> saveMessages(@RequestBody @Valid MessageLogContentBatchDTO messageBatch) {
+        return ResponseEntity.ok(service.saveMessages(messageBatch.getMessages()));
+    }
+
+    @Operation(
+            summary = "Fetch the messages created in a time window",
+            description = "Retrieves the logged messages created in [from, to), going by the timestamp in their snowflake IDs, in ascending ID order. "
+                    + "Pass the last message ID of a page as `afterMessageId` to fetch the next page."
+    )
+    @ApiResponse(responseCode = "200", description = "Messages in the window, an empty list once there are none left", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = MessageLogContentDTO.class))))
+    @ApiResponse(responseCode = "400", description = "Invalid request parameters", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    @GetMapping("/window")
+    public ResponseEntity<List<MessageLogContentDTO>> readMessagesInWindow(
+            @RequestParam Instant from,
+            @RequestParam Instant to,
+            @RequestParam(required = false) Long afterMessageId,
+            @RequestParam(defaultValue = "100") @Min(1) @Max(500) int limit) {
+        return ResponseEntity.ok(service.findMessagesInWindow(from, to, afterMessageId, limit));
+    }
+
     @Operation(
             summary = "Fetch a logged message by ID",
             description = "Retrieves the content and author of a logged message by its unique ID. "
@@ -59,6 +109,18 @@ public class MessageLogContentController {
         return ResponseEntity.ok(service.findMessageById(messageId));
     }
 
+    @Operation(
+            summary = "Fetch a batch of logged messages by ID",
+            description = "Retrieves every logged message in the batch, resolving cached messages in one round trip and fetching the rest from the database in a single query. "
+                    + "IDs of messages that were never logged are skipped and are not part of the response."
+    )
+    @ApiResponse(responseCode = "200", description = "Logged messages in the batch found", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = MessageLogContentDTO.class))))
+    @ApiResponse(responseCode = "400", description = "Invalid request payload", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    @PostMapping("/batch/fetch")
+    public ResponseEntity<List<MessageLogContentDTO>> readMessages(@RequestBody @Valid MessageIdBatchDTO messageIdBatch) {
+        return ResponseEntity.ok(service.findMessagesByIds(messageIdBatch.getMessageIds()));
+    }
+
     @Operation(
             summary = "Update a logged message",
             description = "Updates the content or metadata of a previously logged message. "
@@ -85,4 +147,16 @@ public class MessageLogContentController {
         service.deleteMessage(messageId);
         return ResponseEntity.noContent().build();
     }
+
+    @Operation(
+            summary = "Delete a batch of logged messages",
+            description = "Deletes every logged message in the batch within a single transaction and returns the deleted messages. "
+                    + "IDs of messages that were never logged are skipped and are not part of the response."
+    )
+    @ApiResponse(responseCode = "200", description = "Logged messages in the batch deleted successfully", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = MessageLogContentDTO.class))))
+    @ApiResponse(responseCode = "400", description = "Invalid request payload", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    @DeleteMapping("/batch")
+    public ResponseEntity<List<MessageLogContentDTO>> deleteMessages(@RequestBody @Valid MessageIdBatchDTO messageIdBatch) {
+        return ResponseEntity.ok(service.deleteMessages(messageIdBatch.getMessageIds()));
+    }
 }
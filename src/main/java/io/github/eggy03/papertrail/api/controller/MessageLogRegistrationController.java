@@ -1,6 +1,7 @@
 package io.github.eggy03.papertrail.api.controller;
 
 import io.github.eggy03.papertrail.api.dto.MessageLogRegistrationDTO;
+import io.github.eggy03.papertrail.api.exceptions.GuildNotFoundException;
 import io.github.eggy03.papertrail.api.exceptions.handler.ErrorResponse;
 import io.github.eggy03.papertrail.api.service.MessageLogRegistrationService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -57,7 +58,8 @@ public class MessageLogRegistrationController {
     @ApiResponse(responseCode = "404", description = "Guild not registered", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     @GetMapping("/{guildId}")
     public ResponseEntity<MessageLogRegistrationDTO> findRegistration (@PathVariable @Valid Long guildId) {
-        return ResponseEntity.ok(service.findByGuild(guildId));
+        return ResponseEntity.ok(service.findByGuild(guildId)
+                .orElseThrow(() -> new GuildNotFoundException("Guild is not registered for message logging")));
     }
 
     @Operation(
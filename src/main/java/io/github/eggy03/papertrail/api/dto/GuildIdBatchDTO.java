@@ -0,0 +1,23 @@
+package io.github.eggy03.papertrail.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Schema(name = "GuildIdBatch", description = "Represents a batch of guild IDs, such as the guilds of a shard")
+public class GuildIdBatchDTO {
+
+    @NotEmpty(message = "GuildIDs cannot be empty")
+    @Size(max = 2500, message = "A batch cannot contain more than 2500 GuildIDs")
+    @Schema(
+            description = "Unique identifiers of the guilds",
+            example = "[123456789012345678, 123456789012345679]",
+            requiredMode = Schema.RequiredMode.REQUIRED
+    )
+    private List<@NotNull(message = "GuildID cannot be null") Long> guildIds;
+}
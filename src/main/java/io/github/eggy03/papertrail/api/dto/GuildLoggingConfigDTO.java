@@ -0,0 +1,33 @@
+package io.github.eggy03.papertrail.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(name = "GuildLoggingConfig", description = "Represents the audit log and message log channels of a guild")
+public class GuildLoggingConfigDTO {
+
+    @Schema(
+            description = "Unique identifier of the guild",
+            example = "987654321234567890"
+    )
+    private Long guildId;
+
+    @Schema(
+            description = "Identifier of the channel where audit logs are sent, null if the guild is not registered for audit logging",
+            example = "123456789012345678",
+            nullable = true
+    )
+    private Long auditLogChannelId;
+
+    @Schema(
+            description = "Identifier of the channel where messages are logged, null if the guild is not registered for message logging",
+            example = "987654321098765432",
+            nullable = true
+    )
+    private Long messageLogChannelId;
+}
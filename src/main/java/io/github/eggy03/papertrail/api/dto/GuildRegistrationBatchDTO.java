@@ -0,0 +1,28 @@
+package io.github.eggy03.papertrail.api.dto;
+
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(name = "GuildRegistrationBatch", description = "Represents the audit log and message log registrations of a batch of guilds")
+public class GuildRegistrationBatchDTO {
+
+    @ArraySchema(
+            schema = @Schema(implementation = AuditLogRegistrationDTO.class),
+            arraySchema = @Schema(description = "Audit log registrations of the guilds that are registered for audit logging")
+    )
+    private List<AuditLogRegistrationDTO> auditLogRegistrations;
+
+    @ArraySchema(
+            schema = @Schema(implementation = MessageLogRegistrationDTO.class),
+            arraySchema = @Schema(description = "Message log registrations of the guilds that are registered for message logging")
+    )
+    private List<MessageLogRegistrationDTO> messageLogRegistrations;
+}
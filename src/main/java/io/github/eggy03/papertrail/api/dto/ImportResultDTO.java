@@ -0,0 +1,36 @@
+package io.github.eggy03.papertrail.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(name = "ImportResult", description = "Represents the outcome of a bulk import")
+public class ImportResultDTO {
+
+    @Schema(description = "Number of records read from the input", example = "1000000")
+    private long received;
+
+    @Schema(description = "Number of records that were written", example = "998000")
+    private long imported;
+
+    @Schema(description = "Number of records skipped because their ID (or channel) already existed, or appeared earlier in the input", example = "1900")
+    private long conflicts;
+
+    @Schema(description = "Number of records skipped because they could not be parsed, or a required field was missing or invalid", example = "100")
+    private long rejected;
+
+    @Schema(description = "Lines the first 100 rejected records start on", example = "[17, 4096]")
+    private List<Long> rejectedLines;
+
+    @Schema(description = "Duration of the import in milliseconds", example = "42000")
+    private long durationMillis;
+
+    @Schema(description = "Records read per second", example = "23809.5")
+    private double rowsPerSecond;
+}
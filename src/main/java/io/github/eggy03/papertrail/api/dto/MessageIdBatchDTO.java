@@ -0,0 +1,23 @@
+package io.github.eggy03.papertrail.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Schema(name = "MessageIdBatch", description = "Represents a batch of message IDs, such as the ones received in a bulk delete event")
+public class MessageIdBatchDTO {
+
+    @NotEmpty(message = "MessageIDs cannot be empty")
+    @Size(max = 100, message = "A batch cannot contain more than 100 MessageIDs")
+    @Schema(
+            description = "Unique identifiers of the messages",
+            example = "[112233445566778899, 112233445566778900]",
+            requiredMode = Schema.RequiredMode.REQUIRED
+    )
+    private List<@NotNull(message = "MessageID cannot be null") Long> messageIds;
+}
@@ -0,0 +1,25 @@
+package io.github.eggy03.papertrail.api.dto;
+
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Schema(name = "MessageLogContentBatch", description = "Represents a batch of messages to be logged together")
+public class MessageLogContentBatchDTO {
+
+    @Valid
+    @NotEmpty(message = "Messages cannot be empty")
+    @Size(max = 500, message = "A batch cannot contain more than 500 messages")
+    @ArraySchema(
+            schema = @Schema(implementation = MessageLogContentDTO.class),
+            arraySchema = @Schema(description = "Messages to be logged", requiredMode = Schema.RequiredMode.REQUIRED)
+    )
+    private List<@NotNull(message = "Message cannot be null") MessageLogContentDTO> messages;
+}
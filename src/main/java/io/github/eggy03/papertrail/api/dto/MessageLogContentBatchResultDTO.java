@@ -0,0 +1,28 @@
+package io.github.eggy03.papertrail.api.dto;
+
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(name = "MessageLogContentBatchResult", description = "Represents the outcome of logging a batch of messages")
+public class MessageLogContentBatchResultDTO {
+
+    @ArraySchema(
+            schema = @Schema(implementation = MessageLogContentDTO.class),
+            arraySchema = @Schema(description = "Messages that were logged by this batch")
+    )
+    private List<MessageLogContentDTO> saved;
+
+    @ArraySchema(
+            schema = @Schema(example = "112233445566778899"),
+            arraySchema = @Schema(description = "IDs of messages that were skipped because they had already been logged before or appeared more than once in the batch")
+    )
+    private List<Long> conflicts;
+}
@@ -1,9 +1,12 @@
 package io.github.eggy03.papertrail.api.entity;
 
+import io.github.eggy03.papertrail.api.compression.MessageContentCompressionListener;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
@@ -13,6 +16,7 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.OffsetDateTime;
 
 @Entity
+@EntityListeners(MessageContentCompressionListener.class)
 @Getter
 @Setter
 @ToString
@@ -24,9 +28,18 @@ public class MessageLogContent {
     @Column(name = "message_id")
     private Long messageId;
 
-    @Column(name = "message_content", length = 4000)
+    // stored in exactly one of the two columns below, depending on whether it was worth compressing
+    @Transient
     private String messageContent;
 
+    @ToString.Exclude
+    @Column(name = "message_content", length = 4000)
+    private String plainContent;
+
+    @ToString.Exclude
+    @Column(name = "message_content_compressed", length = 16000)
+    private byte[] compressedContent;
+
     @Column(name = "author_id", nullable = false)
     private Long authorId;
 
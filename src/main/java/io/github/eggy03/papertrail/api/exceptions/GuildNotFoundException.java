@@ -1,8 +1,9 @@
 package io.github.eggy03.papertrail.api.exceptions;
 
+// thrown for every lookup of a guild that never registered, the common case, so it skips the stack trace
 public class GuildNotFoundException extends RuntimeException{
 
     public GuildNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
@@ -0,0 +1,8 @@
+package io.github.eggy03.papertrail.api.exceptions;
+
+public class IngestQueueFullException extends RuntimeException{
+
+    public  IngestQueueFullException (String message) {
+        super(message);
+    }
+}
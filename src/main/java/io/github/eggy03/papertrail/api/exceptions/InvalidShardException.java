@@ -0,0 +1,8 @@
+package io.github.eggy03.papertrail.api.exceptions;
+
+public class InvalidShardException extends RuntimeException{
+
+    public  InvalidShardException (String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package io.github.eggy03.papertrail.api.exceptions;
+
+public class LockAcquisitionTimeoutException extends RuntimeException{
+
+    public  LockAcquisitionTimeoutException (String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package io.github.eggy03.papertrail.api.exceptions;
+
+public class MalformedImportException extends RuntimeException{
+
+    public  MalformedImportException (String message, Throwable cause) {
+        super(message, cause);
+    }
+}
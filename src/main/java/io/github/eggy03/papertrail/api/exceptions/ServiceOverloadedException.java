@@ -0,0 +1,8 @@
+package io.github.eggy03.papertrail.api.exceptions;
+
+public class ServiceOverloadedException extends RuntimeException{
+
+    public  ServiceOverloadedException (String message) {
+        super(message);
+    }
+}
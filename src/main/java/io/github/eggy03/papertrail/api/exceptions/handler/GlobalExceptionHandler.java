@@ -2,15 +2,23 @@ package io.github.eggy03.papertrail.api.exceptions.handler;
 
 import io.github.eggy03.papertrail.api.exceptions.GuildAlreadyRegisteredException;
 import io.github.eggy03.papertrail.api.exceptions.GuildNotFoundException;
+import io.github.eggy03.papertrail.api.exceptions.IngestQueueFullException;
+import io.github.eggy03.papertrail.api.exceptions.InvalidShardException;
+import io.github.eggy03.papertrail.api.exceptions.LockAcquisitionTimeoutException;
+import io.github.eggy03.papertrail.api.exceptions.MalformedImportException;
 import io.github.eggy03.papertrail.api.exceptions.MessageAlreadyLoggedException;
 import io.github.eggy03.papertrail.api.exceptions.MessageNotFoundException;
+import io.github.eggy03.papertrail.api.exceptions.ServiceOverloadedException;
 import io.github.eggy03.papertrail.api.util.AnsiColor;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
@@ -79,6 +87,48 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
     }
 
+    @ExceptionHandler(IngestQueueFullException.class)
+    public ResponseEntity<ErrorResponse> informIngestQueueFull (IngestQueueFullException e, HttpServletRequest request) {
+
+        ErrorResponse response = new ErrorResponse(
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                e.getClass().getSimpleName(),
+                e.getMessage(),
+                LocalDateTime.now(),
+                request.getRequestURI()
+        );
+        log.warn(AnsiColor.YELLOW + "{}" + AnsiColor.RESET, e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").body(response);
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> informServiceOverloaded (ServiceOverloadedException e, HttpServletRequest request) {
+
+        ErrorResponse response = new ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                e.getClass().getSimpleName(),
+                e.getMessage(),
+                LocalDateTime.now(),
+                request.getRequestURI()
+        );
+        log.warn(AnsiColor.YELLOW + "{}" + AnsiColor.RESET, e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(response);
+    }
+
+    @ExceptionHandler(LockAcquisitionTimeoutException.class)
+    public ResponseEntity<ErrorResponse> informLockAcquisitionTimeout (LockAcquisitionTimeoutException e, HttpServletRequest request) {
+
+        ErrorResponse response = new ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                e.getClass().getSimpleName(),
+                e.getMessage(),
+                LocalDateTime.now(),
+                request.getRequestURI()
+        );
+        log.warn(AnsiColor.YELLOW + "{}" + AnsiColor.RESET, e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(response);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> informMethodArgumentInvalid (MethodArgumentNotValidException e, HttpServletRequest request) {
 
@@ -109,6 +159,65 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
 
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<ErrorResponse> informConstraintViolation (ConstraintViolationException e, HttpServletRequest request) {
+
+        ErrorResponse response = new ErrorResponse(
+                HttpStatus.BAD_REQUEST.value(),
+                e.getClass().getSimpleName(),
+                e.getConstraintViolations().stream()
+                        .findFirst()
+                        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                        .orElse("Generic Validation Error / Validation Message Not Found"),
+                LocalDateTime.now(),
+                request.getRequestURI()
+        );
+        log.warn(AnsiColor.YELLOW+"Input validation failed"+AnsiColor.RESET, e);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    @ExceptionHandler(MissingServletRequestParameterException.class)
+    public ResponseEntity<ErrorResponse> informMissingParameter (MissingServletRequestParameterException e, HttpServletRequest request) {
+
+        ErrorResponse response = new ErrorResponse(
+                HttpStatus.BAD_REQUEST.value(),
+                e.getClass().getSimpleName(),
+                e.getMessage(),
+                LocalDateTime.now(),
+                request.getRequestURI()
+        );
+        log.warn(AnsiColor.YELLOW+"Input validation failed"+AnsiColor.RESET, e);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    @ExceptionHandler(InvalidShardException.class)
+    public ResponseEntity<ErrorResponse> informInvalidShard (InvalidShardException e, HttpServletRequest request) {
+
+        ErrorResponse response = new ErrorResponse(
+                HttpStatus.BAD_REQUEST.value(),
+                e.getClass().getSimpleName(),
+                e.getMessage(),
+                LocalDateTime.now(),
+                request.getRequestURI()
+        );
+        log.warn(AnsiColor.YELLOW + "{}" + AnsiColor.RESET, e.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    @ExceptionHandler(MalformedImportException.class)
+    public ResponseEntity<ErrorResponse> informMalformedImport (MalformedImportException e, HttpServletRequest request) {
+
+        ErrorResponse response = new ErrorResponse(
+                HttpStatus.BAD_REQUEST.value(),
+                e.getClass().getSimpleName(),
+                e.getMessage(),
+                LocalDateTime.now(),
+                request.getRequestURI()
+        );
+        log.warn(AnsiColor.YELLOW+"Import input could not be read"+AnsiColor.RESET, e);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
     // fallback
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGeneric(Exception e, HttpServletRequest request) {
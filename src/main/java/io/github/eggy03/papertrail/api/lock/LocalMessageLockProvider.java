@@ -0,0 +1,75 @@
+package io.github.eggy03.papertrail.api.lock;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// In-process locks for deployments that run a single replica of the API, where a lock round trip to redis buys nothing.
+// Messages are hashed onto a fixed set of fair locks, so nothing is allocated per message, at the cost of unrelated
+// messages sharing a stripe now and then. There are no leases, a holder in this process always releases in a finally.
+public class LocalMessageLockProvider implements MessageLockProvider {
+
+    private final ReentrantLock[] stripes;
+
+    public LocalMessageLockProvider(int stripeCount) {
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock(true);
+        }
+    }
+
+    @Override
+    public MessageLock getLock(Long messageId) {
+        return new StripedLock(new int[]{stripeOf(messageId)});
+    }
+
+    @Override
+    public MessageLock getMultiLock(List<Long> sortedMessageIds) {
+        // stripes are taken in ascending stripe order, which is what keeps overlapping batches from deadlocking here
+        return new StripedLock(sortedMessageIds.stream().mapToInt(this::stripeOf).distinct().sorted().toArray());
+    }
+
+    public int stripeOf(long messageId) {
+        // snowflakes of the same millisecond differ in their low bits only, the multiplication spreads those over all bits
+        return Math.floorMod(Long.hashCode(messageId * 0x9E3779B97F4A7C15L), stripes.length);
+    }
+
+    private class StripedLock implements MessageLock {
+
+        private final int[] stripeIndexes;
+
+        private StripedLock(int[] stripeIndexes) {
+            this.stripeIndexes = stripeIndexes;
+        }
+
+        @Override
+        public boolean tryLock(long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(waitTime);
+            int acquired = 0;
+            try {
+                while (acquired < stripeIndexes.length) {
+                    if (!stripes[stripeIndexes[acquired]].tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                        unlockFirst(acquired);
+                        return false;
+                    }
+                    acquired++;
+                }
+                return true;
+            } catch (InterruptedException e) {
+                unlockFirst(acquired);
+                throw e;
+            }
+        }
+
+        @Override
+        public void unlock() {
+            unlockFirst(stripeIndexes.length);
+        }
+
+        private void unlockFirst(int count) {
+            for (int i = count - 1; i >= 0; i--) {
+                stripes[stripeIndexes[i]].unlock();
+            }
+        }
+    }
+}
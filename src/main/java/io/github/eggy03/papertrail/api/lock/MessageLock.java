@@ -0,0 +1,12 @@
+package io.github.eggy03.papertrail.api.lock;
+
+import java.util.concurrent.TimeUnit;
+
+public interface MessageLock {
+
+    // waits at most waitTime, the lock then expires after leaseTime even if it was never released, where the lock supports it
+    boolean tryLock(long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException;
+
+    // throws an IllegalMonitorStateException when the lock isn't held anymore, e.g. since its lease ran out
+    void unlock();
+}
@@ -0,0 +1,12 @@
+package io.github.eggy03.papertrail.api.lock;
+
+import java.util.List;
+
+// the locks that serialize message content operations on the same message, see MessageLockConfig for the implementations
+public interface MessageLockProvider {
+
+    MessageLock getLock(Long messageId);
+
+    // the messageIDs must be sorted in ascending order, so that overlapping batches can't deadlock
+    MessageLock getMultiLock(List<Long> sortedMessageIds);
+}
@@ -0,0 +1,40 @@
+package io.github.eggy03.papertrail.api.lock;
+
+import lombok.RequiredArgsConstructor;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// fair locks held in redis, shared by all replicas of the API
+@RequiredArgsConstructor
+public class RedissonMessageLockProvider implements MessageLockProvider {
+
+    private final RedissonClient redissonClient;
+
+    @Override
+    public MessageLock getLock(Long messageId) {
+        return new RedissonLock(redissonClient.getFairLock(String.valueOf(messageId)));
+    }
+
+    @Override
+    public MessageLock getMultiLock(List<Long> sortedMessageIds) {
+        return new RedissonLock(redissonClient.getMultiLock(sortedMessageIds.stream()
+                .map(messageId -> redissonClient.getFairLock(String.valueOf(messageId)))
+                .toArray(RLock[]::new)));
+    }
+
+    private record RedissonLock(RLock lock) implements MessageLock {
+
+        @Override
+        public boolean tryLock(long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+            return lock.tryLock(waitTime, leaseTime, unit);
+        }
+
+        @Override
+        public void unlock() {
+            lock.unlock();
+        }
+    }
+}
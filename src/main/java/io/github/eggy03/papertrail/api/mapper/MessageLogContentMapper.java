@@ -3,10 +3,15 @@ package io.github.eggy03.papertrail.api.mapper;
 import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
 import io.github.eggy03.papertrail.api.entity.MessageLogContent;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper (componentModel = "spring")
 public interface MessageLogContentMapper {
 
+    // the content columns are filled from messageContent by the MessageContentCompressionListener, createdAt by hibernate
+    @Mapping(target = "plainContent", ignore = true)
+    @Mapping(target = "compressedContent", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
     MessageLogContent toEntity (MessageLogContentDTO messageLogContentDTO);
 
     MessageLogContentDTO toDTO (MessageLogContent messageLogContent);
@@ -2,7 +2,21 @@ package io.github.eggy03.papertrail.api.repository;
 
 import io.github.eggy03.papertrail.api.entity.AuditLogRegistration;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface AuditLogRegistrationRepository extends JpaRepository<AuditLogRegistration, Long> {
+public interface AuditLogRegistrationRepository extends JpaRepository<AuditLogRegistration, Long>, RegistrationWriteRepository<AuditLogRegistration> {
+
+    // rows that already have the channel aren't touched, so 0 means either unregistered or unchanged
+    @Modifying
+    @Transactional
+    @Query("UPDATE AuditLogRegistration r SET r.channelId = :channelId WHERE r.guildId = :guildId AND r.channelId <> :channelId")
+    int updateChannel(Long guildId, Long channelId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AuditLogRegistration r WHERE r.guildId = :guildId")
+    int deleteByGuildId(Long guildId);
 
 }
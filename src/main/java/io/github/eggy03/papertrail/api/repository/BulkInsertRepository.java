@@ -0,0 +1,191 @@
+package io.github.eggy03.papertrail.api.repository;
+
+import io.github.eggy03.papertrail.api.util.AnsiColor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+// Inserts rows in bulk with the fastest path of the database, skipping rows that conflict with existing ones:
+// PostgreSQL COPYs the rows into a staging table and moves them over with INSERT ... ON CONFLICT DO NOTHING.
+// Other databases insert the rows that a few IN queries found to be free, MySQL/MariaDB as multi-row inserts whose
+// ON DUPLICATE KEY UPDATE of the first unique column to itself skips a row written concurrently by someone else,
+// the rest as a JDBC batch, which such a row fails as a whole. INSERT IGNORE isn't used, since it also turns errors
+// other than duplicate keys (a value too long, a missing column value) into warnings.
+@Repository
+@Slf4j
+public class BulkInsertRepository {
+
+    // MySQL allows 65535 placeholders per statement, Oracle 1000 expressions per IN list
+    private static final int MAX_PARAMETERS = 65535;
+    private static final int MAX_IN_LIST = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final QualifiedTableNames tableNames;
+
+    private volatile InsertDialect dialect;
+
+    public BulkInsertRepository(JdbcTemplate jdbcTemplate, QualifiedTableNames tableNames) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tableNames = tableNames;
+    }
+
+    // a table (by its unqualified name) with the columns the rows are given in, and the columns (of type bigint) that have to be unique
+    public record BulkTable(String name, List<String> columns, List<String> uniqueColumns) {
+    }
+
+    private enum InsertDialect {
+        POSTGRESQL, MYSQL, BATCH
+    }
+
+    // returns the number of rows inserted, rows conflicting with an existing row or an earlier row of the call are skipped
+    @Transactional
+    public int insertIgnoringConflicts(BulkTable table, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        return switch (dialect()) {
+            case POSTGRESQL -> copyIn(table, rows);
+            case MYSQL -> insertOnDuplicateKey(table, rows);
+            case BATCH -> batchInsert(table, rows);
+        };
+    }
+
+    private int copyIn(BulkTable table, List<Object[]> rows) {
+        String columns = String.join(", ", table.columns());
+        // temp tables live in a schema of their own, so the staging table isn't qualified
+        String staging = table.name() + "_import";
+
+        jdbcTemplate.execute("CREATE TEMP TABLE " + staging + " ON COMMIT DROP AS SELECT " + columns + " FROM " + tableNames.of(table.name()) + " WITH NO DATA");
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn("COPY " + staging + " (" + columns + ") FROM STDIN WITH (FORMAT csv)", new StringReader(toCsv(rows)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return jdbcTemplate.update("INSERT INTO " + tableNames.of(table.name()) + " (" + columns + ") SELECT " + columns + " FROM " + staging + " ON CONFLICT DO NOTHING");
+    }
+
+    // The update count can't tell inserted rows from skipped ones, since MySQL Connector/J counts found rows by default,
+    // so the rows found to be free are counted as inserted, like with the JDBC batch.
+    private int insertOnDuplicateKey(BulkTable table, List<Object[]> rows) {
+        List<Object[]> freeRows = withoutConflicts(table, rows);
+        String rowPlaceholders = "(" + placeholders(table.columns().size()) + ")";
+        String keyColumn = table.uniqueColumns().getFirst();
+        int rowsPerStatement = MAX_PARAMETERS / table.columns().size();
+
+        for (int from = 0; from < freeRows.size(); from += rowsPerStatement) {
+            List<Object[]> part = freeRows.subList(from, Math.min(freeRows.size(), from + rowsPerStatement));
+            String sql = "INSERT INTO " + tableNames.of(table.name()) + " (" + String.join(", ", table.columns()) + ") VALUES "
+                    + String.join(", ", Collections.nCopies(part.size(), rowPlaceholders))
+                    + " ON DUPLICATE KEY UPDATE " + keyColumn + " = " + keyColumn;
+            jdbcTemplate.update(sql, part.stream().flatMap(Arrays::stream).toArray());
+        }
+        return freeRows.size();
+    }
+
+    private int batchInsert(BulkTable table, List<Object[]> rows) {
+        List<Object[]> freeRows = withoutConflicts(table, rows);
+        if (freeRows.isEmpty()) {
+            return 0;
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO " + tableNames.of(table.name()) + " (" + String.join(", ", table.columns()) + ") VALUES ("
+                + placeholders(table.columns().size()) + ")", freeRows);
+        return freeRows.size();
+    }
+
+    // one IN query per unique column and thousand rows, instead of an existence check per row
+    private List<Object[]> withoutConflicts(BulkTable table, List<Object[]> rows) {
+        List<Integer> uniqueIndexes = table.uniqueColumns().stream().map(table.columns()::indexOf).toList();
+
+        List<Set<Object>> takenValues = new ArrayList<>();
+        for (int column = 0; column < uniqueIndexes.size(); column++) {
+            int index = uniqueIndexes.get(column);
+            List<Object> values = rows.stream().map(row -> row[index]).distinct().toList();
+
+            Set<Object> taken = new HashSet<>();
+            for (int from = 0; from < values.size(); from += MAX_IN_LIST) {
+                List<Object> part = values.subList(from, Math.min(values.size(), from + MAX_IN_LIST));
+                String uniqueColumn = table.uniqueColumns().get(column);
+                taken.addAll(jdbcTemplate.queryForList("SELECT " + uniqueColumn + " FROM " + tableNames.of(table.name()) + " WHERE " + uniqueColumn
+                        + " IN (" + placeholders(part.size()) + ")", Long.class, part.toArray()));
+            }
+            takenValues.add(taken);
+        }
+
+        List<Object[]> freeRows = new ArrayList<>();
+        for (Object[] row : rows) {
+            boolean conflicts = false;
+            for (int column = 0; column < uniqueIndexes.size(); column++) {
+                conflicts |= takenValues.get(column).contains(row[uniqueIndexes.get(column)]);
+            }
+            if (conflicts) {
+                continue;
+            }
+
+            // so that later rows of the call with the same values conflict with this one
+            for (int column = 0; column < uniqueIndexes.size(); column++) {
+                takenValues.get(column).add(row[uniqueIndexes.get(column)]);
+            }
+            freeRows.add(row);
+        }
+        return freeRows;
+    }
+
+    private InsertDialect dialect() {
+        if (dialect == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            dialect = switch (String.valueOf(product)) {
+                case "PostgreSQL" -> InsertDialect.POSTGRESQL;
+                case "MySQL", "MariaDB" -> InsertDialect.MYSQL;
+                default -> InsertDialect.BATCH;
+            };
+            log.info("{}Bulk Insert- Using {} inserts for {}{}", AnsiColor.BLUE, dialect, product, AnsiColor.RESET);
+        }
+        return dialect;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    // COPY csv format: unquoted empty fields are NULL, strings are always quoted, bytea in hex
+    private static String toCsv(List<Object[]> rows) {
+        StringBuilder csv = new StringBuilder();
+        for (Object[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    csv.append(',');
+                }
+
+                Object value = row[i];
+                if (value instanceof String text) {
+                    csv.append('"').append(text.replace("\"", "\"\"")).append('"');
+                } else if (value instanceof byte[] bytes) {
+                    csv.append("\\x").append(HexFormat.of().formatHex(bytes));
+                } else if (value != null) {
+                    csv.append(value);
+                }
+            }
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.eggy03.papertrail.api.repository;
+
+import io.github.eggy03.papertrail.api.dto.GuildLoggingConfigDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+// Reads both registrations of a guild in a single round trip. The registrations stay in their own tables,
+// so the audit log and message log endpoints and schemas are unchanged.
+@Repository
+@RequiredArgsConstructor
+public class GuildLoggingConfigRepository {
+
+    private static final int AUDIT_LOG = 1;
+    private static final int MESSAGE_LOG = 2;
+
+    private final QualifiedTableNames tableNames;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public Optional<GuildLoggingConfigDTO> findByGuildId(Long guildId) {
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery("""
+                        SELECT 1 AS registration, channel_id FROM %s WHERE guild_id = :guildId
+                        UNION ALL
+                        SELECT 2 AS registration, channel_id FROM %s WHERE guild_id = :guildId
+                        """.formatted(tableNames.of("audit_log_table"), tableNames.of("message_log_registration_table")))
+                .setParameter("guildId", guildId)
+                .getResultList();
+
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        GuildLoggingConfigDTO config = new GuildLoggingConfigDTO(guildId, null, null);
+        for (Object[] row : rows) {
+            long channelId = ((Number) row[1]).longValue();
+            switch (((Number) row[0]).intValue()) {
+                case AUDIT_LOG -> config.setAuditLogChannelId(channelId);
+                case MESSAGE_LOG -> config.setMessageLogChannelId(channelId);
+                default -> throw new IllegalStateException("Unknown registration type " + row[0]);
+            }
+        }
+        return Optional.of(config);
+    }
+}
@@ -1,14 +1,58 @@
 package io.github.eggy03.papertrail.api.repository;
 
 import io.github.eggy03.papertrail.api.entity.MessageLogContent;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 
-public interface MessageLogContentRepository extends JpaRepository<MessageLogContent, Long> {
+public interface MessageLogContentRepository extends JpaRepository<MessageLogContent, Long>, MessageLogContentWriteRepository {
+
+    @Query("SELECT m.messageId FROM MessageLogContent m WHERE m.messageId IN :messageIds")
+    List<Long> findLoggedMessageIds(Collection<Long> messageIds);
+
+    @Query("SELECT m.messageId FROM MessageLogContent m WHERE m.messageId > :afterMessageId ORDER BY m.messageId")
+    List<Long> findMessageIdsAfter(Long afterMessageId, Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM MessageLogContent m WHERE m.messageId = :messageId")
+    int deleteByMessageId(Long messageId);
+
+    // rows whose content is stored uncompressed and at least minLength characters long, in messageId order after afterMessageId
+    @Query("""
+            SELECT m.messageId FROM MessageLogContent m
+            WHERE m.messageId > :afterMessageId AND m.compressedContent IS NULL AND LENGTH(m.plainContent) >= :minLength
+            ORDER BY m.messageId
+            """)
+    List<Long> findUncompressedMessageIds(Long afterMessageId, int minLength, Limit limit);
+
+    // message ID ranges are primary key range scans, see DiscordSnowflake for turning times into message IDs
+    @Query("""
+            SELECT m.messageId FROM MessageLogContent m
+            WHERE m.messageId > :afterMessageId AND m.messageId < :beforeMessageId
+            ORDER BY m.messageId
+            """)
+    List<Long> findMessageIdsBetween(Long afterMessageId, Long beforeMessageId, Limit limit);
+
+    @Query("""
+            SELECT m FROM MessageLogContent m
+            WHERE m.messageId >= :fromMessageId AND m.messageId < :toMessageId
+            ORDER BY m.messageId
+            """)
+    List<MessageLogContent> findMessagesInRange(Long fromMessageId, Long toMessageId, Limit limit);
+
+    @Query("""
+            SELECT m.messageId FROM MessageLogContent m
+            WHERE m.messageId > :afterMessageId AND m.createdAt < :cutoff
+            ORDER BY m.messageId
+            """)
+    List<Long> findMessageIdsOlderThan(Long afterMessageId, OffsetDateTime cutoff, Limit limit);
 
     @Modifying
     @Transactional
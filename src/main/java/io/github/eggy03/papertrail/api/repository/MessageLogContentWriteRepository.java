@@ -0,0 +1,23 @@
+package io.github.eggy03.papertrail.api.repository;
+
+import io.github.eggy03.papertrail.api.entity.MessageLogContent;
+
+import java.util.Collection;
+
+// writes that need more than a derived or @Query method: inserts without the merge (SELECT) that save() performs
+// for assigned IDs, and updates that have to keep the plain and compressed content columns in sync
+public interface MessageLogContentWriteRepository {
+
+    // flushes right away, so that an already logged ID surfaces as a DataIntegrityViolationException
+    // from the primary key constraint instead of needing an existsById check
+    void insert(MessageLogContent messageLogContent);
+
+    // lets hibernate group the INSERTs into JDBC batches
+    void insertAll(Collection<MessageLogContent> messageLogContents);
+
+    int updateContent(Long messageId, String messageContent, Long authorId);
+
+    // moves content that is still stored uncompressed into the compressed column,
+    // unless it has been edited since it was read
+    int compressStoredContent(Long messageId, String storedContent, byte[] compressedContent);
+}
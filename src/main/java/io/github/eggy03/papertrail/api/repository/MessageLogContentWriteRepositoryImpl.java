@@ -0,0 +1,78 @@
+package io.github.eggy03.papertrail.api.repository;
+
+import io.github.eggy03.papertrail.api.compression.MessageContentCompressor;
+import io.github.eggy03.papertrail.api.entity.MessageLogContent;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+public class MessageLogContentWriteRepositoryImpl implements MessageLogContentWriteRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private MessageContentCompressor compressor;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    public void insert(MessageLogContent messageLogContent) {
+        entityManager.persist(messageLogContent);
+        entityManager.flush();
+    }
+
+    @Override
+    public void insertAll(Collection<MessageLogContent> messageLogContents) {
+
+        int pending = 0;
+        for (MessageLogContent messageLogContent : messageLogContents) {
+            entityManager.persist(messageLogContent);
+
+            // flush every full JDBC batch and detach it so the persistence context stays small
+            if (++pending % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    @Transactional
+    public int updateContent(Long messageId, String messageContent, Long authorId) {
+
+        MessageContentCompressor.EncodedContent encoded = compressor.encode(messageContent);
+        return entityManager.createQuery("""
+                        UPDATE MessageLogContent m
+                        SET m.plainContent = :plainContent, m.compressedContent = :compressedContent, m.authorId = :authorId
+                        WHERE m.messageId = :messageId
+                        """)
+                .setParameter("plainContent", encoded.plainContent())
+                .setParameter("compressedContent", encoded.compressedContent())
+                .setParameter("authorId", authorId)
+                .setParameter("messageId", messageId)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public int compressStoredContent(Long messageId, String storedContent, byte[] compressedContent) {
+        return entityManager.createQuery("""
+                        UPDATE MessageLogContent m
+                        SET m.plainContent = NULL, m.compressedContent = :compressedContent
+                        WHERE m.messageId = :messageId AND m.plainContent = :storedContent
+                        """)
+                .setParameter("compressedContent", compressedContent)
+                .setParameter("messageId", messageId)
+                .setParameter("storedContent", storedContent)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,34 @@
+package io.github.eggy03.papertrail.api.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Table names for native SQL, qualified the way hibernate renders the @Table of the entities on the database in use:
+// public.audit_log_table on PostgreSQL, audit_log_table on MySQL/MariaDB, which have no schemas apart from databases.
+@Component
+public class QualifiedTableNames {
+
+    private final Map<String, String> qualifiedNames = new HashMap<>();
+
+    public QualifiedTableNames(EntityManagerFactory entityManagerFactory) {
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel().forEachEntityDescriptor(persister -> {
+            if (persister instanceof AbstractEntityPersister entityPersister) {
+                String qualifiedName = entityPersister.getTableName();
+                qualifiedNames.put(qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1), qualifiedName);
+            }
+        });
+    }
+
+    public String of(String table) {
+        String qualifiedName = qualifiedNames.get(table);
+        if (qualifiedName == null) {
+            throw new IllegalArgumentException("No entity is mapped to table " + table);
+        }
+        return qualifiedName;
+    }
+}
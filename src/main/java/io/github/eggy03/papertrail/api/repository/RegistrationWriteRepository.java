@@ -0,0 +1,9 @@
+package io.github.eggy03.papertrail.api.repository;
+
+// inserts of registrations without the merge (SELECT) that save() performs for assigned IDs
+public interface RegistrationWriteRepository<T> {
+
+    // flushes right away, so that an already registered guild surfaces as a DataIntegrityViolationException
+    // from the primary key constraint instead of needing an existsById check
+    void insert(T registration);
+}
@@ -0,0 +1,16 @@
+package io.github.eggy03.papertrail.api.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+public class RegistrationWriteRepositoryImpl<T> implements RegistrationWriteRepository<T> {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void insert(T registration) {
+        entityManager.persist(registration);
+        entityManager.flush();
+    }
+}
@@ -1,84 +1,217 @@
 package io.github.eggy03.papertrail.api.service;
 
+import io.github.eggy03.papertrail.api.cache.RedisCacheOperations;
+import io.github.eggy03.papertrail.api.cache.RegistrationSnapshot;
+import io.github.eggy03.papertrail.api.cache.RegistrationSnapshot.Registration;
 import io.github.eggy03.papertrail.api.dto.AuditLogRegistrationDTO;
-import io.github.eggy03.papertrail.api.entity.AuditLogRegistration;
 import io.github.eggy03.papertrail.api.exceptions.GuildAlreadyRegisteredException;
 import io.github.eggy03.papertrail.api.exceptions.GuildNotFoundException;
 import io.github.eggy03.papertrail.api.mapper.AuditLogRegistrationMapper;
 import io.github.eggy03.papertrail.api.repository.AuditLogRegistrationRepository;
 import io.github.eggy03.papertrail.api.util.AnsiColor;
+import io.github.eggy03.papertrail.api.util.DiscordSnowflake;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AuditLogRegistrationService {
 
+    private static final String CACHE_NAME = "auditLog";
+
     private final AuditLogRegistrationMapper mapper;
     private final AuditLogRegistrationRepository repository;
+    private final RegistrationSnapshot snapshot;
+    private final RedisCacheOperations cacheOperations;
+    private final MeterRegistry meterRegistry;
 
-    @Transactional
-    @CachePut(value = "auditLog", key = "#auditLogRegistrationDTO.guildId")
-    public AuditLogRegistrationDTO registerGuild(AuditLogRegistrationDTO auditLogRegistrationDTO) {
+    // self-reference through the proxy, so that the @Cacheable fallback of findByGuild applies
+    private final ObjectProvider<AuditLogRegistrationService> selfProvider;
 
-        log.info("{}Attempting to register audit log guild with ID={}{}", AnsiColor.YELLOW, auditLogRegistrationDTO.getGuildId(), AnsiColor.RESET);
+    private AuditLogRegistrationService self() {
+        return selfProvider.getIfAvailable();
+    }
+
+    // Insert-if-absent, the primary key constraint rejects guilds that are already registered. The channel is unique as well,
+    // so once the insert has been rolled back, the stored guild tells which of the two constraints was violated.
+    public AuditLogRegistrationDTO registerGuild(AuditLogRegistrationDTO auditLogRegistrationDTO) {
 
-        if (repository.existsById(auditLogRegistrationDTO.getGuildId())){
-            throw new GuildAlreadyRegisteredException("Guild is already registered for audit logging");
+        try {
+            return self().doRegisterGuild(auditLogRegistrationDTO);
+        } catch (DataIntegrityViolationException e) {
+            if (repository.existsById(auditLogRegistrationDTO.getGuildId())) {
+                throw new GuildAlreadyRegisteredException("Guild is already registered for audit logging");
+            }
+            throw e;
         }
+    }
+
+    @Transactional
+    @Caching(
+            put = @CachePut(value = "auditLog", key = "#auditLogRegistrationDTO.guildId"),
+            evict = @CacheEvict(value = "guildConfig", key = "#auditLogRegistrationDTO.guildId")
+    )
+    public AuditLogRegistrationDTO doRegisterGuild(AuditLogRegistrationDTO auditLogRegistrationDTO) {
+
+        log.info("{}Attempting to register audit log guild with ID={}{}", AnsiColor.YELLOW, auditLogRegistrationDTO.getGuildId(), AnsiColor.RESET);
 
-        repository.saveAndFlush(mapper.toEntity(auditLogRegistrationDTO));
+        repository.insert(mapper.toEntity(auditLogRegistrationDTO));
+        snapshot.recordRegistration(Registration.AUDIT_LOG, auditLogRegistrationDTO.getGuildId(), auditLogRegistrationDTO.getChannelId());
         log.info("{}Successfully registered audit log guild with ID={}{}", AnsiColor.GREEN, auditLogRegistrationDTO.getGuildId(), AnsiColor.RESET);
         return auditLogRegistrationDTO;
     }
 
+    // Served from the in-memory RegistrationSnapshot, which never touches redis or the database.
+    // Only while the snapshot hasn't been loaded yet (or is disabled) does the lookup go through the cache.
+    public Optional<AuditLogRegistrationDTO> findByGuild(Long guildId) {
+
+        if (snapshot.isLoaded(Registration.AUDIT_LOG)) {
+            return Optional.ofNullable(snapshot.findChannel(Registration.AUDIT_LOG, guildId)).map(channelId -> toDTO(guildId, channelId));
+        }
+        return self().loadByGuild(guildId);
+    }
+
+    // Unregistered guilds are cached too (as null), since most guilds the bot sees never register and would otherwise
+    // cost a query on every event. registerGuild overwrites the entry, and the caller answers an empty result with a 404.
     @Transactional (readOnly = true)
     @Cacheable(value = "auditLog", key = "#guildId")
-    public AuditLogRegistrationDTO findByGuild(Long guildId) {
+    public Optional<AuditLogRegistrationDTO> loadByGuild(Long guildId) {
+
+        log.info("{}Cache MISS - Fetching audit log guild with ID={}{}", AnsiColor.YELLOW, guildId, AnsiColor.RESET);
+        return repository.findById(guildId).map(mapper::toDTO);
+    }
+
+    // Registrations of the given guilds, unregistered guilds are left out. Without the snapshot, all guilds are looked up
+    // with a single cache MGET, and the misses with a single findAllById.
+    public List<AuditLogRegistrationDTO> findByGuilds(Collection<Long> guildIds) {
 
-        log.info("{}Cache MISS - Fetching audit log guild with ID {}{}", AnsiColor.YELLOW, guildId, AnsiColor.RESET);
-        AuditLogRegistration auditLogRegistration = repository.findById(guildId)
-                .orElseThrow(()->
-                        new GuildNotFoundException("Guild is not registered for audit logging")
-                );
+        List<Long> distinctGuildIds = guildIds.stream().distinct().toList();
+        if (snapshot.isLoaded(Registration.AUDIT_LOG)) {
+            return distinctGuildIds.stream()
+                    .map(guildId -> Optional.ofNullable(snapshot.findChannel(Registration.AUDIT_LOG, guildId)).map(channelId -> toDTO(guildId, channelId)))
+                    .flatMap(Optional::stream)
+                    .toList();
+        }
+
+        Map<Long, AuditLogRegistrationDTO> foundRegistrations = new HashMap<>(cacheOperations.getAll(CACHE_NAME, distinctGuildIds, AuditLogRegistrationDTO.class));
+        List<Long> missedGuildIds = distinctGuildIds.stream()
+                .filter(guildId -> !foundRegistrations.containsKey(guildId))
+                .toList();
+
+        if (!missedGuildIds.isEmpty()) {
+            log.info("{}Cache MISS - Fetching {} audit log guilds{}", AnsiColor.YELLOW, missedGuildIds.size(), AnsiColor.RESET);
+            Map<Long, AuditLogRegistrationDTO> loadedRegistrations = self().loadByGuilds(missedGuildIds).stream()
+                    .collect(Collectors.toMap(AuditLogRegistrationDTO::getGuildId, Function.identity()));
+            cacheOperations.putAll(CACHE_NAME, loadedRegistrations);
+            foundRegistrations.putAll(loadedRegistrations);
+        }
+
+        return distinctGuildIds.stream()
+                .map(foundRegistrations::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Transactional (readOnly = true)
+    public List<AuditLogRegistrationDTO> loadByGuilds(Collection<Long> guildIds) {
+        return repository.findAllById(guildIds).stream().map(mapper::toDTO).toList();
+    }
+
+    // registrations of the guilds the gateway assigns to the given shard, in guildId order
+    public List<AuditLogRegistrationDTO> findByShard(int shardId, int shardCount) {
+
+        LongPredicate inShard = guildId -> DiscordSnowflake.shardOf(guildId, shardCount) == shardId;
+        if (snapshot.isLoaded(Registration.AUDIT_LOG)) {
+            return snapshot.findChannels(Registration.AUDIT_LOG, inShard).entrySet().stream()
+                    .map(registration -> toDTO(registration.getKey(), registration.getValue()))
+                    .sorted(Comparator.comparing(AuditLogRegistrationDTO::getGuildId))
+                    .toList();
+        }
+        return self().loadByShard(inShard);
+    }
 
-        log.info("{}Found audit log guild with ID={}{}", AnsiColor.BLUE, guildId, AnsiColor.RESET);
-        return mapper.toDTO(auditLogRegistration);
+    // the registration tables are small, so without the snapshot the shard is picked out of the whole table
+    @Transactional (readOnly = true)
+    public List<AuditLogRegistrationDTO> loadByShard(LongPredicate inShard) {
+
+        log.info("{}Fetching all audit log guilds to pick out a shard{}", AnsiColor.YELLOW, AnsiColor.RESET);
+        return repository.findAll().stream()
+                .filter(registration -> inShard.test(registration.getGuildId()))
+                .map(mapper::toDTO)
+                .sorted(Comparator.comparing(AuditLogRegistrationDTO::getGuildId))
+                .toList();
     }
 
+    // Bots re-send the current channel on every config sync. The conditional update leaves an unchanged row alone, so the
+    // stored row decides whether anything changed, rather than a cache entry that may be stale. The cache put also applies
+    // to unchanged registrations, which fills or corrects the cache entry.
     @Transactional
-    @CachePut(value = "auditLog", key = "#updatedDTO.guildId")
+    @Caching(
+            put = @CachePut(value = "auditLog", key = "#updatedDTO.guildId"),
+            evict = @CacheEvict(value = "guildConfig", key = "#updatedDTO.guildId")
+    )
     public AuditLogRegistrationDTO updateGuild(AuditLogRegistrationDTO updatedDTO) {
 
         log.info("{}Attempting to update audit log guild with ID={}{}", AnsiColor.YELLOW, updatedDTO.getGuildId(), AnsiColor.RESET);
 
-        if(!repository.existsById(updatedDTO.getGuildId())){
-            throw new GuildNotFoundException("Guild is not registered for audit logging");
+        // only when nothing was updated does it take a second query to tell an unchanged guild from an unregistered one
+        if (repository.updateChannel(updatedDTO.getGuildId(), updatedDTO.getChannelId()) == 0) {
+            if (!repository.existsById(updatedDTO.getGuildId())) {
+                throw new GuildNotFoundException("Guild is not registered for audit logging");
+            }
+            recordSuppressedWrite(updatedDTO.getGuildId());
+            return updatedDTO;
         }
 
-        repository.save(mapper.toEntity(updatedDTO));
+        snapshot.recordRegistration(Registration.AUDIT_LOG, updatedDTO.getGuildId(), updatedDTO.getChannelId());
         log.info("{}Successfully updated audit log guild with ID={}{}", AnsiColor.GREEN, updatedDTO.getGuildId(), AnsiColor.RESET);
         return updatedDTO;
     }
 
     @Transactional
-    @CacheEvict(value = "auditLog", key = "#guildId")
+    @CacheEvict(value = {"auditLog", "guildConfig"}, key = "#guildId")
     public void unregisterGuild (Long guildId) {
 
         log.info("{}Attempting to unregister audit log guild with ID={}{}", AnsiColor.YELLOW, guildId, AnsiColor.RESET);
 
-        AuditLogRegistration auditLogRegistration = repository.findById(guildId)
-                .orElseThrow(()->
-                    new GuildNotFoundException("Guild is not registered for audit logging")
-                );
+        if (repository.deleteByGuildId(guildId) == 0) {
+            throw new GuildNotFoundException("Guild is not registered for audit logging");
+        }
 
-        repository.delete(auditLogRegistration);
+        snapshot.recordUnregistration(Registration.AUDIT_LOG, guildId);
         log.info("{}Successfully unregistered audit log guild with ID={}{}", AnsiColor.GREEN, guildId, AnsiColor.RESET);
     }
+
+    private void recordSuppressedWrite(Long guildId) {
+        meterRegistry.counter("papertrail.writes.suppressed", "entity", "audit_log").increment();
+        log.info("{}Skipped update of audit log guild with ID={} since nothing changed{}", AnsiColor.BLUE, guildId, AnsiColor.RESET);
+    }
+
+    private static AuditLogRegistrationDTO toDTO(long guildId, long channelId) {
+        AuditLogRegistrationDTO registration = new AuditLogRegistrationDTO();
+        registration.setGuildId(guildId);
+        registration.setChannelId(channelId);
+        return registration;
+    }
 }
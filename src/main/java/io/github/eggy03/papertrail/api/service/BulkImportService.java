@@ -0,0 +1,300 @@
+package io.github.eggy03.papertrail.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.github.eggy03.papertrail.api.cache.MessageIdBloomFilter;
+import io.github.eggy03.papertrail.api.cache.RedisCacheOperations;
+import io.github.eggy03.papertrail.api.cache.RegistrationSnapshot;
+import io.github.eggy03.papertrail.api.cache.RegistrationSnapshot.Registration;
+import io.github.eggy03.papertrail.api.compression.MessageContentCompressor;
+import io.github.eggy03.papertrail.api.compression.MessageContentCompressor.EncodedContent;
+import io.github.eggy03.papertrail.api.dto.AuditLogRegistrationDTO;
+import io.github.eggy03.papertrail.api.dto.ImportResultDTO;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
+import io.github.eggy03.papertrail.api.dto.MessageLogRegistrationDTO;
+import io.github.eggy03.papertrail.api.exceptions.MalformedImportException;
+import io.github.eggy03.papertrail.api.repository.BulkInsertRepository;
+import io.github.eggy03.papertrail.api.repository.BulkInsertRepository.BulkTable;
+import io.github.eggy03.papertrail.api.util.AnsiColor;
+import io.github.eggy03.papertrail.api.util.CsvRecordReader;
+import io.github.eggy03.papertrail.api.util.DiscordSnowflake;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Imports registrations and messages from NDJSON (the format of the export endpoints) or CSV with a header row
+// naming the DTO fields. A record that can't be parsed or validated is rejected on its own, and the line it starts on
+// is reported back. Records are read as they arrive and written chunk-size at a time, each chunk in one
+// transaction through BulkInsertRepository, so records that already exist are skipped per chunk rather than checked
+// one by one. An import can therefore simply be run again after it broke off.
+@Service
+@Slf4j
+public class BulkImportService {
+
+    public enum ImportFormat {
+        NDJSON, CSV
+    }
+
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+
+    private static final BulkTable AUDIT_LOG_TABLE = new BulkTable("audit_log_table",
+            List.of("guild_id", "channel_id"), List.of("guild_id", "channel_id"));
+    private static final BulkTable MESSAGE_LOG_TABLE = new BulkTable("message_log_registration_table",
+            List.of("guild_id", "channel_id"), List.of("guild_id", "channel_id"));
+    private static final BulkTable MESSAGE_CONTENT_TABLE = new BulkTable("message_log_content_table",
+            List.of("message_id", "message_content", "message_content_compressed", "author_id", "created_at"), List.of("message_id"));
+
+    private final BulkInsertRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final MessageContentCompressor compressor;
+    private final MessageIdBloomFilter bloomFilter;
+    private final RegistrationSnapshot snapshot;
+    private final RedisCacheOperations cacheOperations;
+    private final MeterRegistry meterRegistry;
+    private final int chunkSize;
+
+    public BulkImportService(
+            BulkInsertRepository repository,
+            ObjectMapper objectMapper,
+            Validator validator,
+            MessageContentCompressor compressor,
+            MessageIdBloomFilter bloomFilter,
+            RegistrationSnapshot snapshot,
+            RedisCacheOperations cacheOperations,
+            MeterRegistry meterRegistry,
+            @Value("${papertrail.import.chunk-size:5000}") int chunkSize) {
+
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.compressor = compressor;
+        this.bloomFilter = bloomFilter;
+        this.snapshot = snapshot;
+        this.cacheOperations = cacheOperations;
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = chunkSize;
+    }
+
+    public ImportResultDTO importAuditLogRegistrations(InputStream input, ImportFormat format) {
+        try {
+            return importRecords(input, format, AuditLogRegistrationDTO.class, AUDIT_LOG_TABLE,
+                    registration -> new Object[]{registration.getGuildId(), registration.getChannelId()},
+                    chunk -> {},
+                    chunk -> evictRegistrations("auditLog", chunk.stream().map(AuditLogRegistrationDTO::getGuildId).toList()));
+        } finally {
+            snapshot.recordBulkChange(Registration.AUDIT_LOG);
+        }
+    }
+
+    public ImportResultDTO importMessageLogRegistrations(InputStream input, ImportFormat format) {
+        try {
+            return importRecords(input, format, MessageLogRegistrationDTO.class, MESSAGE_LOG_TABLE,
+                    registration -> new Object[]{registration.getGuildId(), registration.getChannelId()},
+                    chunk -> {},
+                    chunk -> evictRegistrations("messageLog", chunk.stream().map(MessageLogRegistrationDTO::getGuildId).toList()));
+        } finally {
+            snapshot.recordBulkChange(Registration.MESSAGE_LOG);
+        }
+    }
+
+    // the bloom filter must know a message before it is written, like with every other write
+    public ImportResultDTO importMessages(InputStream input, ImportFormat format) {
+        return importRecords(input, format, MessageLogContentDTO.class, MESSAGE_CONTENT_TABLE,
+                message -> {
+                    EncodedContent content = compressor.encode(message.getMessageContent());
+                    return new Object[]{message.getMessageId(), content.plainContent(), content.compressedContent(), message.getAuthorId(), createdAtOf(message.getMessageId())};
+                },
+                chunk -> bloomFilter.addAll(chunk.stream().map(MessageLogContentDTO::getMessageId).toList()),
+                chunk -> {});
+    }
+
+    private interface RecordReader<T> {
+
+        // next record, or null at the end of the input. Throws IllegalArgumentException for a record that can't be
+        // converted to the DTO, and IOException if the input can't be read any further.
+        T read() throws IOException;
+
+        // line the record read last starts on
+        long line();
+    }
+
+    private <T> ImportResultDTO importRecords(InputStream input, ImportFormat format, Class<T> type, BulkTable table,
+                                              Function<T, Object[]> toRow, Consumer<List<T>> beforeWrite, Consumer<List<T>> afterWrite) {
+
+        log.info("{}Importing {} records into {}{}", AnsiColor.YELLOW, format, table.name(), AnsiColor.RESET);
+        long start = System.nanoTime();
+        long received = 0;
+        long rejected = 0;
+        long imported = 0;
+        List<Long> rejectedLines = new ArrayList<>();
+        List<T> chunk = new ArrayList<>(chunkSize);
+
+        try {
+            RecordReader<T> reader = open(input, format, type);
+            while (true) {
+                T record;
+                try {
+                    record = reader.read();
+                } catch (IllegalArgumentException e) {
+                    received++;
+                    rejected++;
+                    reportRejection(rejectedLines, reader.line());
+                    continue;
+                }
+                if (record == null) {
+                    break;
+                }
+
+                received++;
+                if (!validator.validate(record).isEmpty()) {
+                    rejected++;
+                    reportRejection(rejectedLines, reader.line());
+                    continue;
+                }
+
+                chunk.add(record);
+                if (chunk.size() == chunkSize) {
+                    imported += writeChunk(table, chunk, toRow, beforeWrite, afterWrite);
+                }
+            }
+        } catch (IOException e) {
+            // the records read so far are still written, so the message below holds and a rerun picks up from there
+            imported += writeChunk(table, chunk, toRow, beforeWrite, afterWrite);
+            record(table, imported, received - rejected - imported, rejected);
+            throw new MalformedImportException("Could not read record " + (received + 1) + " of the import into " + table.name()
+                    + ", the records before it were imported: " + e.getMessage(), e);
+        }
+        imported += writeChunk(table, chunk, toRow, beforeWrite, afterWrite);
+
+        long conflicts = received - rejected - imported;
+        long durationMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        double rowsPerSecond = received * 1000.0 / durationMillis;
+        record(table, imported, conflicts, rejected);
+
+        log.info("{}Imported {} of {} records into {} in {} ms ({} records/s), {} conflicts, {} rejected{}", AnsiColor.GREEN,
+                imported, received, table.name(), durationMillis, Math.round(rowsPerSecond), conflicts, rejected, AnsiColor.RESET);
+        return new ImportResultDTO(received, imported, conflicts, rejected, rejectedLines, durationMillis, rowsPerSecond);
+    }
+
+    private static void reportRejection(List<Long> rejectedLines, long line) {
+        if (rejectedLines.size() < MAX_REPORTED_REJECTIONS) {
+            rejectedLines.add(line);
+        }
+    }
+
+    private <T> long writeChunk(BulkTable table, List<T> chunk, Function<T, Object[]> toRow, Consumer<List<T>> beforeWrite, Consumer<List<T>> afterWrite) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+
+        beforeWrite.accept(chunk);
+        int inserted = repository.insertIgnoringConflicts(table, chunk.stream().map(toRow).toList());
+        afterWrite.accept(chunk);
+        chunk.clear();
+        return inserted;
+    }
+
+    private <T> RecordReader<T> open(InputStream input, ImportFormat format, Class<T> type) throws IOException {
+        if (format == ImportFormat.NDJSON) {
+            return ndjsonReader(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)), objectMapper.readerFor(type));
+        }
+
+        CsvRecordReader csv = new CsvRecordReader(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+        // an empty input has no header, and no records either
+        List<String> header = Objects.requireNonNullElse(csv.readRecord(), List.of());
+        List<String> fieldNames = header.stream()
+                .map(name -> name == null ? "" : name.replace("\uFEFF", "").trim())
+                .toList();
+
+        return new RecordReader<>() {
+            @Override
+            public T read() throws IOException {
+                List<String> fields = csv.readRecord();
+                if (fields == null) {
+                    return null;
+                }
+
+                Map<String, String> values = new HashMap<>();
+                for (int i = 0; i < Math.min(fieldNames.size(), fields.size()); i++) {
+                    values.put(fieldNames.get(i), fields.get(i));
+                }
+                return objectMapper.convertValue(values, type);
+            }
+
+            @Override
+            public long line() {
+                return csv.recordLine();
+            }
+        };
+    }
+
+    // one record per line, so a malformed line is rejected on its own instead of throwing the parser off for the rest
+    private static <T> RecordReader<T> ndjsonReader(BufferedReader lines, ObjectReader recordReader) {
+        return new RecordReader<>() {
+            private long line;
+
+            @Override
+            public T read() throws IOException {
+                String text;
+                do {
+                    text = lines.readLine();
+                    if (text == null) {
+                        return null;
+                    }
+                    line++;
+                } while (text.isBlank());
+
+                try {
+                    return recordReader.readValue(text);
+                } catch (JsonProcessingException e) {
+                    throw new IllegalArgumentException(e.getOriginalMessage(), e);
+                }
+            }
+
+            @Override
+            public long line() {
+                return line;
+            }
+        };
+    }
+
+    // An imported message keeps the age it had when it was logged, which its snowflake tells, so the retention cleanup
+    // removes it on time rather than 30 days after the import. IDs from the future are taken as logged now.
+    private static OffsetDateTime createdAtOf(long messageId) {
+        Instant createdAt = DiscordSnowflake.timestampOf(messageId);
+        Instant now = Instant.now();
+        return OffsetDateTime.ofInstant(createdAt.isAfter(now) ? now : createdAt, ZoneOffset.UTC);
+    }
+
+    // imported guilds may be cached as not registered
+    private void evictRegistrations(String cacheName, List<Long> guildIds) {
+        cacheOperations.evictAll(cacheName, guildIds);
+        cacheOperations.evictAll("guildConfig", guildIds);
+    }
+
+    private void record(BulkTable table, long imported, long conflicts, long rejected) {
+        meterRegistry.counter("papertrail.import.records", "table", table.name(), "outcome", "imported").increment(imported);
+        meterRegistry.counter("papertrail.import.records", "table", table.name(), "outcome", "conflict").increment(conflicts);
+        meterRegistry.counter("papertrail.import.records", "table", table.name(), "outcome", "rejected").increment(rejected);
+    }
+}
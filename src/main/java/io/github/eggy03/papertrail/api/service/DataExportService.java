@@ -0,0 +1,149 @@
+package io.github.eggy03.papertrail.api.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.eggy03.papertrail.api.compression.MessageContentCompressor;
+import io.github.eggy03.papertrail.api.repository.QualifiedTableNames;
+import io.github.eggy03.papertrail.api.util.AnsiColor;
+import io.github.eggy03.papertrail.api.util.DiscordSnowflake;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+
+// Exports tables as NDJSON, one JSON object per line in the shape of the matching DTO. Rows are read through a
+// forward only cursor a fetch size at a time and written out as they arrive, so memory use doesn't grow with the table.
+// The exports run in a read only transaction, which PostgreSQL needs to fetch with a cursor rather than all at once.
+@Service
+@Slf4j
+public class DataExportService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final QualifiedTableNames tableNames;
+    private final ObjectMapper objectMapper;
+    private final MessageContentCompressor compressor;
+    private final int fetchSize;
+
+    public DataExportService(
+            JdbcTemplate jdbcTemplate,
+            QualifiedTableNames tableNames,
+            ObjectMapper objectMapper,
+            MessageContentCompressor compressor,
+            @Value("${papertrail.export.fetch-size:1000}") int fetchSize) {
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.tableNames = tableNames;
+        this.objectMapper = objectMapper;
+        this.compressor = compressor;
+        this.fetchSize = fetchSize;
+    }
+
+    @Transactional (readOnly = true)
+    public long exportAuditLogRegistrations(OutputStream outputStream) throws IOException {
+        return exportRegistrations("audit_log_table", outputStream);
+    }
+
+    @Transactional (readOnly = true)
+    public long exportMessageLogRegistrations(OutputStream outputStream) throws IOException {
+        return exportRegistrations("message_log_registration_table", outputStream);
+    }
+
+    // messages created in [from, to), going by the timestamp in their snowflake IDs, in ascending ID order
+    @Transactional (readOnly = true)
+    public long exportMessages(Instant from, Instant to, OutputStream outputStream) throws IOException {
+
+        long fromMessageId = DiscordSnowflake.firstSnowflakeAt(from);
+        long toMessageId = DiscordSnowflake.firstSnowflakeAt(to);
+        if (fromMessageId >= toMessageId) {
+            return 0;
+        }
+
+        log.info("{}Exporting the messages created between {} and {}{}", AnsiColor.YELLOW, from, to, AnsiColor.RESET);
+        return export("message_log_content_table", """
+                        SELECT message_id, message_content, message_content_compressed, author_id FROM %s
+                        WHERE message_id >= ? AND message_id < ? ORDER BY message_id
+                        """.formatted(tableNames.of("message_log_content_table")),
+                new Object[]{fromMessageId, toMessageId},
+                outputStream,
+                (generator, resultSet) -> {
+                    generator.writeNumberField("messageId", resultSet.getLong(1));
+                    generator.writeStringField("messageContent", compressor.decode(resultSet.getString(2), resultSet.getBytes(3)));
+                    generator.writeNumberField("authorId", resultSet.getLong(4));
+                });
+    }
+
+    private long exportRegistrations(String table, OutputStream outputStream) throws IOException {
+
+        log.info("{}Exporting {}{}", AnsiColor.YELLOW, table, AnsiColor.RESET);
+        return export(table, "SELECT guild_id, channel_id FROM " + tableNames.of(table) + " ORDER BY guild_id",
+                new Object[0],
+                outputStream,
+                (generator, resultSet) -> {
+                    generator.writeNumberField("guildId", resultSet.getLong(1));
+                    generator.writeNumberField("channelId", resultSet.getLong(2));
+                });
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+
+        void write(JsonGenerator generator, ResultSet resultSet) throws IOException, SQLException;
+    }
+
+    private long export(String table, String sql, Object[] args, OutputStream outputStream, RowWriter rowWriter) throws IOException {
+
+        long start = System.nanoTime();
+        long[] rows = {0};
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            // the response stream is closed by the container, and lines are separated by newlines rather than spaces
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            RowCallbackHandler writeRow = resultSet -> {
+                try {
+                    generator.writeStartObject();
+                    rowWriter.write(generator, resultSet);
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                    rows[0]++;
+                } catch (IOException e) {
+                    // usually the client went away, which ends the query too
+                    throw new UncheckedIOException(e);
+                }
+            };
+
+            try {
+                jdbcTemplate.query(connection -> prepareStreaming(connection, sql, args), writeRow);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        log.info("{}Exported {} rows of {} in {} ms{}", AnsiColor.GREEN, rows[0], table, (System.nanoTime() - start) / 1_000_000, AnsiColor.RESET);
+        return rows[0];
+    }
+
+    private PreparedStatement prepareStreaming(Connection connection, String sql, Object[] args) throws SQLException {
+
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        // MySQL Connector/J ignores fetch sizes and buffers the whole result, unless told to stream it row by row
+        boolean mysql = "MySQL".equals(connection.getMetaData().getDatabaseProductName());
+        statement.setFetchSize(mysql ? Integer.MIN_VALUE : fetchSize);
+        for (int i = 0; i < args.length; i++) {
+            statement.setObject(i + 1, args[i]);
+        }
+        return statement;
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.eggy03.papertrail.api.service;
+
+import io.github.eggy03.papertrail.api.cache.RegistrationSnapshot;
+import io.github.eggy03.papertrail.api.cache.RegistrationSnapshot.Registration;
+import io.github.eggy03.papertrail.api.dto.GuildLoggingConfigDTO;
+import io.github.eggy03.papertrail.api.repository.GuildLoggingConfigRepository;
+import io.github.eggy03.papertrail.api.util.AnsiColor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+// Both logging channels of a guild in one lookup, so an event that needs both costs a single call.
+// The registration services evict the guildConfig entry of a guild whenever either of its registrations changes.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GuildLoggingConfigService {
+
+    private final GuildLoggingConfigRepository repository;
+    private final RegistrationSnapshot snapshot;
+
+    // self-reference through the proxy, so that the @Cacheable fallback of findByGuild applies
+    private final ObjectProvider<GuildLoggingConfigService> selfProvider;
+
+    private GuildLoggingConfigService self() {
+        return selfProvider.getIfAvailable();
+    }
+
+    // empty if the guild is registered for neither audit logging nor message logging
+    public Optional<GuildLoggingConfigDTO> findByGuild(Long guildId) {
+
+        if (snapshot.isLoaded(Registration.AUDIT_LOG) && snapshot.isLoaded(Registration.MESSAGE_LOG)) {
+            Long auditLogChannelId = snapshot.findChannel(Registration.AUDIT_LOG, guildId);
+            Long messageLogChannelId = snapshot.findChannel(Registration.MESSAGE_LOG, guildId);
+            if (auditLogChannelId == null && messageLogChannelId == null) {
+                return Optional.empty();
+            }
+            return Optional.of(new GuildLoggingConfigDTO(guildId, auditLogChannelId, messageLogChannelId));
+        }
+        return self().loadByGuild(guildId);
+    }
+
+    // guilds registered for neither are cached too (as null), like in the registration caches
+    @Transactional (readOnly = true)
+    @Cacheable(value = "guildConfig", key = "#guildId")
+    public Optional<GuildLoggingConfigDTO> loadByGuild(Long guildId) {
+
+        log.info("{}Cache MISS - Fetching logging config of guild with ID={}{}", AnsiColor.YELLOW, guildId, AnsiColor.RESET);
+        return repository.findByGuildId(guildId);
+    }
+}
@@ -1,26 +1,215 @@
 package io.github.eggy03.papertrail.api.service;
 
+import io.github.eggy03.papertrail.api.cache.MessageIdBloomFilter;
+import io.github.eggy03.papertrail.api.cache.RedisCacheOperations;
 import io.github.eggy03.papertrail.api.repository.MessageLogContentRepository;
 import io.github.eggy03.papertrail.api.util.AnsiColor;
-import lombok.RequiredArgsConstructor;
+import io.github.eggy03.papertrail.api.util.DiscordSnowflake;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
+// Deletes messages past retention in small chunks, walking the table in messageId order and pausing between chunks,
+// so the live traffic never competes with one huge DELETE. Only one node runs it at a time, and the position reached
+// is kept in redis, so a run cut short by a restart is picked up where it stopped.
+// When the table is partitioned by day, whole expired days are dropped as partitions first, and the chunked pass only
+// sweeps up the rows that fell outside the daily partitions.
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class MessageContentCleanupService {
 
+    private static final String MESSAGE_CONTENT_CACHE = "messageContent";
+    private static final String CLEANUP_LOCK = "papertrail:cleanup:lock";
+    private static final String CLEANUP_CURSOR = "papertrail:cleanup:cursor";
+    private static final int RETENTION_DAYS = 30;
+
     private final MessageLogContentRepository repository;
+    private final MessageIdBloomFilter messageIdFilter;
+    private final RedisCacheOperations cacheOperations;
+    private final RedissonClient redissonClient;
+    private final MessageContentPartitionManager partitionManager;
+
+    private final int chunkSize;
+    private final Duration chunkPause;
+    private final boolean snowflakeRetention;
+
+    private final Counter deletedMessages;
+    private final Timer chunkTimer;
+    private final Counter droppedPartitions;
+    private final AtomicLong lastRunMessageCount = new AtomicLong();
+
+    public MessageContentCleanupService(
+            MessageLogContentRepository repository,
+            MessageIdBloomFilter messageIdFilter,
+            RedisCacheOperations cacheOperations,
+            RedissonClient redissonClient,
+            MessageContentPartitionManager partitionManager,
+            MeterRegistry meterRegistry,
+            @Value("${papertrail.message-content.cleanup.chunk-size:1000}") int chunkSize,
+            @Value("${papertrail.message-content.cleanup.chunk-pause:200ms}") Duration chunkPause,
+            @Value("${papertrail.message-content.cleanup.mode:created-at}") String mode) {
 
-    // Run daily at midnight
-    @Scheduled(cron = "0 0 0 * * ?")
+        this.repository = repository;
+        this.messageIdFilter = messageIdFilter;
+        this.cacheOperations = cacheOperations;
+        this.redissonClient = redissonClient;
+        this.partitionManager = partitionManager;
+        this.chunkSize = chunkSize;
+        this.chunkPause = chunkPause;
+        this.snowflakeRetention = "snowflake".equalsIgnoreCase(mode);
+
+        this.deletedMessages = Counter.builder("papertrail.cleanup.deleted.messages").register(meterRegistry);
+        this.chunkTimer = Timer.builder("papertrail.cleanup.chunk.duration").register(meterRegistry);
+        this.droppedPartitions = Counter.builder("papertrail.cleanup.dropped.partitions").register(meterRegistry);
+        Gauge.builder("papertrail.cleanup.last.run.messages", lastRunMessageCount, AtomicLong::get).register(meterRegistry);
+    }
+
+    // Runs daily at midnight by default, a more frequent cron keeps each run smaller
+    @Scheduled(cron = "${papertrail.message-content.cleanup.cron:0 0 0 * * ?}")
     public void cleanupOldMessages() {
-        OffsetDateTime cutoff = OffsetDateTime.now().minusDays(30);
-        int deletedMessageCount = repository.deleteOlderThan(cutoff);
-        log.info("{}Message Content Cleanup Service- Cleaned up {} messages older than {}{}", AnsiColor.GREEN, deletedMessageCount, cutoff, AnsiColor.RESET);
+        RLock lock = redissonClient.getLock(CLEANUP_LOCK);
+        if (!lock.tryLock()) {
+            log.info("{}Message Content Cleanup Service- Skipped, another node is cleaning up{}", AnsiColor.YELLOW, AnsiColor.RESET);
+            return;
+        }
+
+        try {
+            runCleanup();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // a run interrupted by a shutdown is resumed right away instead of at the next schedule,
+    // and a partitioned table gets its upcoming partitions before the first messages of the day arrive
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedCleanup() {
+        if (redissonClient.getBucket(CLEANUP_CURSOR, StringCodec.INSTANCE).isExists() || partitionManager.isPartitioned()) {
+            Thread.ofVirtual().name("message-content-cleanup-resume").start(this::cleanupOldMessages);
+        }
+    }
+
+    private void runCleanup() {
+        RBucket<String> cursorBucket = redissonClient.getBucket(CLEANUP_CURSOR, StringCodec.INSTANCE);
+        Cursor cursor = Cursor.parse(cursorBucket.get());
+        if (cursor == null) {
+            OffsetDateTime cutoff = OffsetDateTime.now(ZoneOffset.UTC).minusDays(RETENTION_DAYS);
+            if (partitionManager.isPartitioned()) {
+                cutoff = dropExpiredPartitions(cutoff);
+            }
+            cursor = new Cursor(cutoff, Long.MIN_VALUE);
+        } else {
+            log.info("{}Message Content Cleanup Service- Resuming cleanup of messages older than {} after messageID {}{}", AnsiColor.YELLOW, cursor.cutoff(), cursor.afterMessageId(), AnsiColor.RESET);
+        }
+
+        long deletedMessageCount = 0;
+        List<Long> messageIds;
+        while (!(messageIds = findExpiredMessageIds(cursor)).isEmpty()) {
+
+            List<Long> chunk = messageIds;
+            chunkTimer.record(() -> {
+                repository.deleteAllByIdInBatch(chunk);
+                cacheOperations.evictAll(MESSAGE_CONTENT_CACHE, chunk);
+            });
+
+            deletedMessageCount += chunk.size();
+            deletedMessages.increment(chunk.size());
+            cursor = new Cursor(cursor.cutoff(), chunk.getLast());
+            cursorBucket.set(cursor.format());
+            log.debug("Message Content Cleanup Service- Deleted {} messages so far, up to messageID {}", deletedMessageCount, cursor.afterMessageId());
+
+            if (!pauseBetweenChunks()) {
+                log.info("{}Message Content Cleanup Service- Interrupted after {} messages, will resume after messageID {}{}", AnsiColor.YELLOW, deletedMessageCount, cursor.afterMessageId(), AnsiColor.RESET);
+                return;
+            }
+        }
+
+        cursorBucket.delete();
+        messageIdFilter.dropBefore(cursor.cutoff().toLocalDate());
+        lastRunMessageCount.set(deletedMessageCount);
+        log.info("{}Message Content Cleanup Service- Cleaned up {} messages older than {}{}", AnsiColor.GREEN, deletedMessageCount, cursor.cutoff(), AnsiColor.RESET);
+    }
+
+    // Partitions lying entirely before the cutoff day are dropped whole, after evicting their messages from the cache.
+    // The cutoff moves back to the start of its day, so messages are kept up to a day longer, but the chunked pass
+    // that follows never deletes rows of a partition that is still live.
+    private OffsetDateTime dropExpiredPartitions(OffsetDateTime cutoff) {
+        LocalDate cutoffDay = cutoff.toLocalDate();
+        partitionManager.createUpcomingPartitions(LocalDate.now(ZoneOffset.UTC));
+
+        List<MessageContentPartitionManager.Partition> expired = partitionManager.findPartitionsBefore(cutoffDay);
+        if (!expired.isEmpty()) {
+            evictCachedMessagesBefore(expired.getLast().toMessageId());
+            partitionManager.dropPartitions(expired);
+            droppedPartitions.increment(expired.size());
+        }
+        return cutoffDay.atStartOfDay().atOffset(ZoneOffset.UTC);
+    }
+
+    private void evictCachedMessagesBefore(long beforeMessageId) {
+        long afterMessageId = Long.MIN_VALUE;
+        List<Long> messageIds;
+        while (!(messageIds = repository.findMessageIdsBetween(afterMessageId, beforeMessageId, Limit.of(chunkSize))).isEmpty()) {
+            cacheOperations.evictAll(MESSAGE_CONTENT_CACHE, messageIds);
+            afterMessageId = messageIds.getLast();
+        }
+    }
+
+    // In snowflake mode, age is taken from the message ID itself: every message created before the cutoff has a smaller ID
+    // than the first snowflake of the cutoff, so expired messages are a primary key range instead of a created_at scan.
+    // created-at mode goes by the time the message was logged instead.
+    private List<Long> findExpiredMessageIds(Cursor cursor) {
+        if (snowflakeRetention) {
+            long cutoffMessageId = DiscordSnowflake.firstSnowflakeAt(cursor.cutoff().toInstant());
+            return repository.findMessageIdsBetween(cursor.afterMessageId(), cutoffMessageId, Limit.of(chunkSize));
+        }
+        return repository.findMessageIdsOlderThan(cursor.afterMessageId(), cursor.cutoff(), Limit.of(chunkSize));
+    }
+
+    private boolean pauseBetweenChunks() {
+        try {
+            Thread.sleep(chunkPause);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // position of a cleanup run, stored as "<cutoff epoch millis>:<last deleted messageId>"
+    private record Cursor(OffsetDateTime cutoff, long afterMessageId) {
+
+        static Cursor parse(String value) {
+            if (value == null) {
+                return null;
+            }
+
+            String[] parts = value.split(":", 2);
+            return new Cursor(Instant.ofEpochMilli(Long.parseLong(parts[0])).atOffset(ZoneOffset.UTC), Long.parseLong(parts[1]));
+        }
+
+        String format() {
+            return cutoff.toInstant().toEpochMilli() + ":" + afterMessageId;
+        }
     }
 }
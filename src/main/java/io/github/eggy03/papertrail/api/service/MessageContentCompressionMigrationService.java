@@ -0,0 +1,69 @@
+package io.github.eggy03.papertrail.api.service;
+
+import io.github.eggy03.papertrail.api.compression.MessageContentCompressor;
+import io.github.eggy03.papertrail.api.entity.MessageLogContent;
+import io.github.eggy03.papertrail.api.repository.MessageLogContentRepository;
+import io.github.eggy03.papertrail.api.util.AnsiColor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+// Compresses messages that were logged before compression was enabled.
+// Walks the table in messageId order, a chunk at a time, and only rewrites a row if its content hasn't changed since it was read,
+// so it can run alongside regular traffic and on several nodes at once.
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class MessageContentCompressionMigrationService {
+
+    private final MessageLogContentRepository repository;
+    private final MessageContentCompressor compressor;
+
+    @Value("${papertrail.message-content.compression.migrate:false}")
+    private boolean migrate;
+
+    @Value("${papertrail.message-content.compression.migration-chunk-size:500}")
+    private int chunkSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startMigration() {
+        if (!migrate) {
+            return;
+        }
+
+        if (!compressor.isEnabled()) {
+            log.warn("{}Message Content Compression Migration- Skipped, compression is not enabled{}", AnsiColor.YELLOW, AnsiColor.RESET);
+            return;
+        }
+
+        Thread.ofVirtual().name("message-content-compression-migration").start(this::compressExistingMessages);
+    }
+
+    public long compressExistingMessages() {
+
+        long afterMessageId = Long.MIN_VALUE;
+        long compressedMessageCount = 0;
+
+        List<Long> messageIds;
+        while (!(messageIds = repository.findUncompressedMessageIds(afterMessageId, compressor.minimumCompressibleLength(), Limit.of(chunkSize))).isEmpty()) {
+
+            for (MessageLogContent messageLogContent : repository.findAllById(messageIds)) {
+                byte[] compressedContent = compressor.compress(messageLogContent.getPlainContent());
+                if (compressedContent != null) {
+                    compressedMessageCount += repository.compressStoredContent(messageLogContent.getMessageId(), messageLogContent.getPlainContent(), compressedContent);
+                }
+            }
+
+            afterMessageId = messageIds.getLast();
+        }
+
+        log.info("{}Message Content Compression Migration- Compressed {} existing messages{}", AnsiColor.GREEN, compressedMessageCount, AnsiColor.RESET);
+        return compressedMessageCount;
+    }
+}
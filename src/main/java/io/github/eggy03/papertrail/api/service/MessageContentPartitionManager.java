@@ -0,0 +1,215 @@
+package io.github.eggy03.papertrail.api.service;
+
+import io.github.eggy03.papertrail.api.util.AnsiColor;
+import io.github.eggy03.papertrail.api.util.DiscordSnowflake;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+// Manages the daily partitions of message_log_content_table, for tables created range partitioned by message_id
+// (see the README). Each partition holds the message IDs of one UTC day, so retention can drop whole partitions instead
+// of deleting rows. Tables that aren't partitioned, and databases other than PostgreSQL and MySQL/MariaDB, are left alone.
+@Service
+@Slf4j
+public class MessageContentPartitionManager {
+
+    private static final String TABLE = "message_log_content_table";
+    private static final String POSTGRES_SCHEMA = "public";
+    private static final String POSTGRES_PARTITION_PREFIX = "message_log_content_p";
+    private static final String MYSQL_PARTITION_PREFIX = "p";
+    private static final String MYSQL_CATCH_ALL_PARTITION = "p_max";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int premakeDays;
+
+    private volatile PartitionDialect dialect;
+
+    public MessageContentPartitionManager(
+            JdbcTemplate jdbcTemplate,
+            @Value("${papertrail.message-content.partitioning.premake-days:7}") int premakeDays) {
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.premakeDays = premakeDays;
+    }
+
+    // one partition, covering the message IDs created on its day: [fromMessageId, toMessageId)
+    public record Partition(String name, LocalDate day, long fromMessageId, long toMessageId) {
+
+        static Partition of(String name, LocalDate day) {
+            return new Partition(
+                    name,
+                    day,
+                    DiscordSnowflake.firstSnowflakeAt(day.atStartOfDay().toInstant(ZoneOffset.UTC)),
+                    DiscordSnowflake.firstSnowflakeAt(day.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC))
+            );
+        }
+    }
+
+    private enum PartitionDialect {
+        POSTGRESQL, MYSQL, NONE
+    }
+
+    public boolean isPartitioned() {
+        if (dialect == null) {
+            dialect = detectDialect();
+        }
+        return dialect != null && dialect != PartitionDialect.NONE;
+    }
+
+    // Partitions are created a few days ahead, so messages never land in the catch-all partition and no partition ever
+    // has to be split. On MySQL partitions can only be appended after the last one, so earlier missing days are skipped.
+    public void createUpcomingPartitions(LocalDate today) {
+        if (!isPartitioned()) {
+            return;
+        }
+
+        List<Partition> existing = findPartitions();
+        LocalDate lastDay = existing.isEmpty() ? null : existing.getLast().day();
+
+        for (int i = 0; i <= premakeDays; i++) {
+            LocalDate day = today.plusDays(i);
+            boolean exists = existing.stream().anyMatch(partition -> partition.day().equals(day));
+            if (exists || (dialect == PartitionDialect.MYSQL && lastDay != null && !day.isAfter(lastDay))) {
+                continue;
+            }
+
+            try {
+                createPartition(day);
+                log.info("{}Message Content Partition Manager- Created the partition for {}{}", AnsiColor.GREEN, day, AnsiColor.RESET);
+            } catch (DataAccessException e) {
+                // e.g. the PostgreSQL default partition already holds rows of that day, the next run retries
+                log.warn("{}Message Content Partition Manager- Could not create the partition for {}{}", AnsiColor.YELLOW, day, AnsiColor.RESET, e);
+            }
+        }
+    }
+
+    // partitions whose whole day lies before the cutoff day, oldest first
+    public List<Partition> findPartitionsBefore(LocalDate cutoffDay) {
+        if (!isPartitioned()) {
+            return List.of();
+        }
+
+        return findPartitions().stream()
+                .filter(partition -> partition.day().isBefore(cutoffDay))
+                .toList();
+    }
+
+    public void dropPartitions(List<Partition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+
+        switch (dialect) {
+            case POSTGRESQL -> partitions.forEach(partition ->
+                    jdbcTemplate.execute("DROP TABLE IF EXISTS " + POSTGRES_SCHEMA + "." + partition.name()));
+            case MYSQL -> jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PARTITION "
+                    + partitions.stream().map(Partition::name).collect(Collectors.joining(", ")));
+            case NONE -> throw new IllegalStateException(TABLE + " is not partitioned");
+        }
+        log.info("{}Message Content Partition Manager- Dropped {} partitions, up to the one for {}{}", AnsiColor.GREEN, partitions.size(), partitions.getLast().day(), AnsiColor.RESET);
+    }
+
+    private void createPartition(LocalDate day) {
+        switch (dialect) {
+            case POSTGRESQL -> {
+                Partition partition = Partition.of(POSTGRES_PARTITION_PREFIX + format(day), day);
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + POSTGRES_SCHEMA + "." + partition.name()
+                        + " PARTITION OF " + POSTGRES_SCHEMA + "." + TABLE
+                        + " FOR VALUES FROM (" + partition.fromMessageId() + ") TO (" + partition.toMessageId() + ")");
+            }
+            case MYSQL -> {
+                Partition partition = Partition.of(MYSQL_PARTITION_PREFIX + format(day), day);
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + MYSQL_CATCH_ALL_PARTITION + " INTO ("
+                        + "PARTITION " + partition.name() + " VALUES LESS THAN (" + partition.toMessageId() + "), "
+                        + "PARTITION " + MYSQL_CATCH_ALL_PARTITION + " VALUES LESS THAN MAXVALUE)");
+            }
+            case NONE -> throw new IllegalStateException(TABLE + " is not partitioned");
+        }
+    }
+
+    // the daily partitions, oldest first, the catch-all partitions are left out
+    private List<Partition> findPartitions() {
+        return switch (dialect) {
+            case POSTGRESQL -> jdbcTemplate.queryForList("""
+                            SELECT c.relname FROM pg_inherits i
+                            JOIN pg_class c ON c.oid = i.inhrelid
+                            JOIN pg_class p ON p.oid = i.inhparent
+                            JOIN pg_namespace n ON n.oid = p.relnamespace
+                            WHERE n.nspname = ? AND p.relname = ?
+                            """, String.class, POSTGRES_SCHEMA, TABLE)
+                    .stream()
+                    .map(name -> parsePartition(name, POSTGRES_PARTITION_PREFIX))
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparing(Partition::day))
+                    .toList();
+            case MYSQL -> jdbcTemplate.queryForList("""
+                            SELECT PARTITION_NAME FROM information_schema.PARTITIONS
+                            WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL
+                            """, String.class, TABLE)
+                    .stream()
+                    .map(name -> parsePartition(name, MYSQL_PARTITION_PREFIX))
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparing(Partition::day))
+                    .toList();
+            case NONE -> List.of();
+        };
+    }
+
+    private PartitionDialect detectDialect() {
+        try {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            PartitionDialect detected = switch (String.valueOf(product)) {
+                case "PostgreSQL" -> Boolean.TRUE.equals(jdbcTemplate.queryForObject("""
+                        SELECT EXISTS (
+                            SELECT 1 FROM pg_partitioned_table pt
+                            JOIN pg_class c ON c.oid = pt.partrelid
+                            JOIN pg_namespace n ON n.oid = c.relnamespace
+                            WHERE n.nspname = ? AND c.relname = ?
+                        )
+                        """, Boolean.class, POSTGRES_SCHEMA, TABLE)) ? PartitionDialect.POSTGRESQL : PartitionDialect.NONE;
+                case "MySQL", "MariaDB" -> Integer.valueOf(1).equals(jdbcTemplate.queryForObject("""
+                        SELECT COUNT(*) FROM information_schema.PARTITIONS
+                        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME = ?
+                        """, Integer.class, TABLE, MYSQL_CATCH_ALL_PARTITION)) ? PartitionDialect.MYSQL : PartitionDialect.NONE;
+                default -> PartitionDialect.NONE;
+            };
+
+            log.info("{}Message Content Partition Manager- {} {}{}", AnsiColor.BLUE, TABLE,
+                    detected == PartitionDialect.NONE ? "is not partitioned, expired messages are deleted row by row" : "is partitioned by day, expired partitions are dropped",
+                    AnsiColor.RESET);
+            return detected;
+        } catch (DataAccessException e) {
+            log.warn("{}Message Content Partition Manager- Could not check whether {} is partitioned, deleting expired messages row by row for now{}", AnsiColor.YELLOW, TABLE, AnsiColor.RESET, e);
+            // not remembered, the next run checks again
+            return null;
+        }
+    }
+
+    private static String format(LocalDate day) {
+        return day.format(DateTimeFormatter.BASIC_ISO_DATE);
+    }
+
+    private static Partition parsePartition(String name, String prefix) {
+        if (!name.startsWith(prefix)) {
+            return null;
+        }
+
+        try {
+            return Partition.of(name, LocalDate.parse(name.substring(prefix.length()), DateTimeFormatter.BASIC_ISO_DATE));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package io.github.eggy03.papertrail.api.service;
+
+import io.github.eggy03.papertrail.api.cache.RedisCacheOperations;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
+import io.github.eggy03.papertrail.api.exceptions.MessageNotFoundException;
+import io.github.eggy03.papertrail.api.util.AnsiColor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Coalesces repeated edits of the same message: an edit replaces any edit of that message still pending, goes to the
+// cache right away, and only the latest edit of each message is written, once per window, in one transaction for all
+// messages edited in it. Messages edited many times a second (live embeds, streamed output) then cost one database
+// write per window instead of one per edit. Reads on this node see pending edits, reads elsewhere see them in the cache.
+// Edits of one message arriving through different nodes are each written by their own node, the later flush wins.
+@Service
+@Slf4j
+public class MessageEditCoalescer implements SmartLifecycle {
+
+    private static final String MESSAGE_CONTENT_CACHE = "messageContent";
+    private static final int MAX_FLUSH_SIZE = 500;
+
+    private final ObjectProvider<MessageLogContentService> contentServiceProvider;
+    private final RedisCacheOperations cacheOperations;
+    private final Duration window;
+    private final Map<Long, MessageLogContentDTO> pendingEdits = new ConcurrentHashMap<>();
+
+    private final Counter receivedEdits;
+    private final Counter writtenEdits;
+
+    private volatile boolean running;
+    private CountDownLatch stopSignal;
+    private Thread flusher;
+
+    public MessageEditCoalescer(
+            ObjectProvider<MessageLogContentService> contentServiceProvider,
+            RedisCacheOperations cacheOperations,
+            MeterRegistry meterRegistry,
+            @Value("${papertrail.message-content.update.coalesce-window:0ms}") Duration window) {
+
+        this.contentServiceProvider = contentServiceProvider;
+        this.cacheOperations = cacheOperations;
+        this.window = window;
+
+        Gauge.builder("papertrail.message.edits.pending", pendingEdits, Map::size).register(meterRegistry);
+        this.receivedEdits = Counter.builder("papertrail.message.edits.received").register(meterRegistry);
+        this.writtenEdits = Counter.builder("papertrail.message.edits.written").register(meterRegistry);
+    }
+
+    private MessageLogContentService contentService() {
+        return contentServiceProvider.getIfAvailable();
+    }
+
+    public boolean isEnabled() {
+        return window.isPositive();
+    }
+
+    // only the first edit of a message within a window checks that the message exists
+    public MessageLogContentDTO submit(MessageLogContentDTO edit) {
+        Long messageId = edit.getMessageId();
+        if (!pendingEdits.containsKey(messageId) && !contentService().isLogged(messageId)) {
+            throw new MessageNotFoundException("Message with the given ID hasn't been logged before");
+        }
+
+        // cached while holding the pending entry, see cacheIfLatest
+        pendingEdits.compute(messageId, (id, previousEdit) -> {
+            cacheOperations.revokeLeaseAndPut(MESSAGE_CONTENT_CACHE, id, edit);
+            return edit;
+        });
+        receivedEdits.increment();
+        return edit;
+    }
+
+    // Caches an edit once it has been written, unless a newer edit of its message is pending. The check and the put
+    // happen while holding the pending entry, like the put in submit, so a newer edit can't be cached in between and
+    // then overwritten by the older written content.
+    public void cacheIfLatest(MessageLogContentDTO writtenEdit) {
+        pendingEdits.compute(writtenEdit.getMessageId(), (messageId, pendingEdit) -> {
+            if (pendingEdit == null) {
+                cacheOperations.revokeLeaseAndPut(MESSAGE_CONTENT_CACHE, messageId, writtenEdit);
+            }
+            return pendingEdit;
+        });
+    }
+
+    // null if the message has no edit waiting to be written
+    public MessageLogContentDTO pendingEdit(Long messageId) {
+        return pendingEdits.get(messageId);
+    }
+
+    public boolean isPending(Long messageId) {
+        return pendingEdits.containsKey(messageId);
+    }
+
+    // for deleted messages, whose edits must not be written anymore
+    public void discard(Collection<Long> messageIds) {
+        messageIds.forEach(pendingEdits::remove);
+    }
+
+    @Override
+    public void start() {
+        if (!isEnabled() || isRunning()) {
+            return;
+        }
+
+        running = true;
+        stopSignal = new CountDownLatch(1);
+        flusher = Thread.ofVirtual().name("message-edit-flusher").start(this::flushLoop);
+        log.info("{}Message Edit Coalescer- Writing the latest edit of each message every {}{}", AnsiColor.BLUE, window, AnsiColor.RESET);
+    }
+
+    @Override
+    public void stop() {
+        if (!isRunning()) {
+            return;
+        }
+
+        // not interrupted, so a flush in progress isn't cut off, only the wait for the next window ends
+        running = false;
+        stopSignal.countDown();
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        log.info("{}Message Edit Coalescer- Wrote the pending edits{}", AnsiColor.GREEN, AnsiColor.RESET);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // after the web server (graceful shutdown and stop), so no request can still submit while the last edits are written
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void flushLoop() {
+        try {
+            while (!stopSignal.await(window.toNanos(), TimeUnit.NANOSECONDS)) {
+                flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flush() {
+        if (pendingEdits.isEmpty()) {
+            return;
+        }
+
+        List<MessageLogContentDTO> edits = new ArrayList<>();
+        for (Long messageId : List.copyOf(pendingEdits.keySet())) {
+            MessageLogContentDTO edit = pendingEdits.remove(messageId);
+            if (edit != null) {
+                edits.add(edit);
+            }
+        }
+
+        for (int from = 0; from < edits.size(); from += MAX_FLUSH_SIZE) {
+            List<MessageLogContentDTO> part = edits.subList(from, Math.min(edits.size(), from + MAX_FLUSH_SIZE));
+            try {
+                contentService().writeEdits(part);
+                writtenEdits.increment(part.size());
+            } catch (RuntimeException e) {
+                // retried with the next flush, unless a newer edit has arrived in the meantime
+                log.warn("{}Message Edit Coalescer- Could not write {} edits, retrying with the next flush{}", AnsiColor.YELLOW, part.size(), AnsiColor.RESET, e);
+                part.forEach(edit -> pendingEdits.putIfAbsent(edit.getMessageId(), edit));
+            }
+        }
+    }
+}
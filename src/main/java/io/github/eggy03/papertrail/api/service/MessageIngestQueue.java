@@ -0,0 +1,282 @@
+package io.github.eggy03.papertrail.api.service;
+
+import io.github.eggy03.papertrail.api.dto.MessageLogContentBatchResultDTO;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
+import io.github.eggy03.papertrail.api.exceptions.IngestQueueFullException;
+import io.github.eggy03.papertrail.api.util.AnsiColor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RQueue;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.TypedJsonJacksonCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Asynchronous ingestion of single message saves: accepted messages wait in a bounded queue, and one writer drains
+// them in groups of up to max-batch-size, or whatever arrived within max-latency of the first, through saveMessages.
+// A whole group then costs one transaction with batched inserts and one cache pipeline, instead of one commit per message.
+// A full queue rejects new messages, so callers back off instead of the heap filling up.
+// The queue is drained completely on shutdown, after the web server has stopped taking requests.
+// A group that still fails after its retries is parked in a dead-letter queue in Redis, which the writer redelivers
+// from one group at a time between fresh ones, checking again every redelivery-interval once it is empty or still failing.
+// Messages only held in memory, queued or being written when the instance dies, are lost, so a 202 is not a durable write.
+@Service
+@Slf4j
+public class MessageIngestQueue implements SmartLifecycle {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Duration RETRY_BACKOFF = Duration.ofMillis(200);
+    private static final Duration IDLE_POLL = Duration.ofMillis(100);
+    private static final String DEAD_LETTER_QUEUE = "papertrail:ingest:dead-letter";
+
+    private final MessageLogContentService contentService;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final Duration maxLatency;
+    private final Duration drainTimeout;
+    private final Duration redeliveryInterval;
+    private final BlockingQueue<MessageLogContentDTO> queue;
+    private final RQueue<MessageLogContentDTO> deadLetters;
+
+    private final Timer flushTimer;
+    private final DistributionSummary batchSize;
+    private final Counter savedMessages;
+    private final Counter conflictingMessages;
+    private final Counter deadLetteredMessages;
+    private final Counter redeliveredMessages;
+    private final Counter failedMessages;
+    private final Counter rejectedMessages;
+
+    private volatile boolean accepting;
+    private long nextRedelivery;
+    private Thread writer;
+
+    public MessageIngestQueue(
+            MessageLogContentService contentService,
+            RedissonClient redissonClient,
+            MeterRegistry meterRegistry,
+            @Value("${papertrail.message-content.ingest.async:false}") boolean enabled,
+            @Value("${papertrail.message-content.ingest.queue-capacity:10000}") int queueCapacity,
+            @Value("${papertrail.message-content.ingest.max-batch-size:500}") int maxBatchSize,
+            @Value("${papertrail.message-content.ingest.max-latency:5ms}") Duration maxLatency,
+            @Value("${papertrail.message-content.ingest.drain-timeout:30s}") Duration drainTimeout,
+            @Value("${papertrail.message-content.ingest.redelivery-interval:1m}") Duration redeliveryInterval) {
+
+        this.contentService = contentService;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatency = maxLatency;
+        this.drainTimeout = drainTimeout;
+        this.redeliveryInterval = redeliveryInterval;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.deadLetters = redissonClient.getQueue(DEAD_LETTER_QUEUE, new TypedJsonJacksonCodec(MessageLogContentDTO.class));
+
+        Gauge.builder("papertrail.ingest.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        this.flushTimer = Timer.builder("papertrail.ingest.flush.duration").register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("papertrail.ingest.flush.size").register(meterRegistry);
+        this.savedMessages = Counter.builder("papertrail.ingest.messages").tag("outcome", "saved").register(meterRegistry);
+        this.conflictingMessages = Counter.builder("papertrail.ingest.messages").tag("outcome", "conflict").register(meterRegistry);
+        this.deadLetteredMessages = Counter.builder("papertrail.ingest.messages").tag("outcome", "dead_lettered").register(meterRegistry);
+        this.redeliveredMessages = Counter.builder("papertrail.ingest.messages").tag("outcome", "redelivered").register(meterRegistry);
+        this.failedMessages = Counter.builder("papertrail.ingest.messages").tag("outcome", "failed").register(meterRegistry);
+        this.rejectedMessages = Counter.builder("papertrail.ingest.messages").tag("outcome", "rejected").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void submit(MessageLogContentDTO message) {
+        if (!accepting || !queue.offer(message)) {
+            rejectedMessages.increment();
+            throw new IngestQueueFullException("Message queue is full, retry later");
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || isRunning()) {
+            return;
+        }
+
+        accepting = true;
+        nextRedelivery = System.nanoTime();
+        writer = Thread.ofVirtual().name("message-ingest-writer").start(this::drainLoop);
+        log.info("{}Message Ingest- Accepting messages asynchronously, flushing up to {} messages every {}{}", AnsiColor.BLUE, maxBatchSize, maxLatency, AnsiColor.RESET);
+    }
+
+    @Override
+    public void stop() {
+        if (!isRunning()) {
+            return;
+        }
+
+        accepting = false;
+        log.info("{}Message Ingest- Draining {} queued messages{}", AnsiColor.YELLOW, queue.size(), AnsiColor.RESET);
+        try {
+            if (!writer.join(drainTimeout)) {
+                log.error("{}Message Ingest- Gave up draining after {}, {} queued messages were not saved{}", AnsiColor.RED, drainTimeout, queue.size(), AnsiColor.RESET);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        // whatever slipped in while the writer was finishing
+        List<MessageLogContentDTO> remaining = new ArrayList<>();
+        while (queue.drainTo(remaining, maxBatchSize) > 0) {
+            flush(remaining);
+            remaining.clear();
+        }
+        log.info("{}Message Ingest- Drained the queue{}", AnsiColor.GREEN, AnsiColor.RESET);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return writer != null && writer.isAlive();
+    }
+
+    // after the web server (graceful shutdown and stop), so no request can still submit while draining
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void drainLoop() {
+        List<MessageLogContentDTO> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (accepting || !queue.isEmpty()) {
+                MessageLogContentDTO first = queue.poll(IDLE_POLL.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    redeliver();
+                    continue;
+                }
+
+                batch.add(first);
+                long deadline = System.nanoTime() + maxLatency.toNanos();
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0 || !accepting) {
+                        break;
+                    }
+
+                    MessageLogContentDTO next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+                batch.clear();
+                redeliver();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            flush(batch);
+        }
+    }
+
+    // one group at a time, so fresh messages never wait behind a long dead-letter queue. Polling takes a group off the
+    // queue, so two instances never redeliver the same messages, and a group that fails again is parked again.
+    private void redeliver() {
+        if (!accepting || System.nanoTime() - nextRedelivery < 0) {
+            return;
+        }
+
+        List<MessageLogContentDTO> batch;
+        try {
+            batch = deadLetters.poll(maxBatchSize);
+        } catch (RuntimeException e) {
+            log.warn("{}Message Ingest- Could not read the dead-letter queue{}", AnsiColor.YELLOW, AnsiColor.RESET, e);
+            nextRedelivery = System.nanoTime() + redeliveryInterval.toNanos();
+            return;
+        }
+
+        if (batch.isEmpty()) {
+            nextRedelivery = System.nanoTime() + redeliveryInterval.toNanos();
+            return;
+        }
+
+        log.info("{}Message Ingest- Redelivering {} dead-lettered messages{}", AnsiColor.BLUE, batch.size(), AnsiColor.RESET);
+        if (flush(batch)) {
+            redeliveredMessages.increment(batch.size());
+        } else {
+            nextRedelivery = System.nanoTime() + redeliveryInterval.toNanos();
+        }
+    }
+
+    // a group is written in one transaction, so retrying it after a failure can't save anything twice.
+    // Conflicts are messages that were logged already, by an earlier delivery or another caller, so nothing is lost.
+    private boolean flush(List<MessageLogContentDTO> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+
+        batchSize.record(batch.size());
+        Timer.Sample sample = Timer.start();
+        boolean saved = save(batch);
+        sample.stop(flushTimer);
+
+        if (!saved) {
+            deadLetter(batch);
+        }
+        return saved;
+    }
+
+    private boolean save(List<MessageLogContentDTO> batch) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                MessageLogContentBatchResultDTO result = contentService.saveMessages(List.copyOf(batch));
+                savedMessages.increment(result.getSaved().size());
+                conflictingMessages.increment(result.getConflicts().size());
+                if (!result.getConflicts().isEmpty()) {
+                    log.debug("{}Message Ingest- Skipped {} messages that were already logged: {}{}", AnsiColor.YELLOW, result.getConflicts().size(), result.getConflicts(), AnsiColor.RESET);
+                }
+                return true;
+            } catch (RuntimeException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    log.error("{}Message Ingest- Could not save {} messages, from messageID {}{}", AnsiColor.RED, batch.size(), batch.getFirst().getMessageId(), AnsiColor.RESET, e);
+                    return false;
+                }
+                log.warn("{}Message Ingest- Could not save {} messages, retrying{}", AnsiColor.YELLOW, batch.size(), AnsiColor.RESET, e);
+                sleep(RETRY_BACKOFF.multipliedBy(attempt));
+            }
+        }
+        return false;
+    }
+
+    private void deadLetter(List<MessageLogContentDTO> batch) {
+        try {
+            deadLetters.addAll(List.copyOf(batch));
+            deadLetteredMessages.increment(batch.size());
+            log.warn("{}Message Ingest- Parked {} messages in the dead-letter queue for redelivery{}", AnsiColor.YELLOW, batch.size(), AnsiColor.RESET);
+        } catch (RuntimeException e) {
+            failedMessages.increment(batch.size());
+            log.error("{}Message Ingest- Could not park {} messages in the dead-letter queue, they are lost: {}{}", AnsiColor.RED, batch.size(),
+                    batch.stream().map(MessageLogContentDTO::getMessageId).toList(), AnsiColor.RESET, e);
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,104 +1,405 @@
 package io.github.eggy03.papertrail.api.service;
 
+import io.github.eggy03.papertrail.api.cache.MessageIdBloomFilter;
+import io.github.eggy03.papertrail.api.cache.RedisCacheOperations;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentBatchResultDTO;
 import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
 import io.github.eggy03.papertrail.api.entity.MessageLogContent;
+import io.github.eggy03.papertrail.api.exceptions.LockAcquisitionTimeoutException;
 import io.github.eggy03.papertrail.api.exceptions.MessageAlreadyLoggedException;
 import io.github.eggy03.papertrail.api.exceptions.MessageNotFoundException;
+import io.github.eggy03.papertrail.api.lock.MessageLock;
+import io.github.eggy03.papertrail.api.lock.MessageLockProvider;
 import io.github.eggy03.papertrail.api.mapper.MessageLogContentMapper;
 import io.github.eggy03.papertrail.api.repository.MessageLogContentRepository;
 import io.github.eggy03.papertrail.api.util.AnsiColor;
+import io.github.eggy03.papertrail.api.util.DiscordSnowflake;
+import io.github.eggy03.papertrail.api.util.RequestDeadline;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MessageLogContentService {
 
+    private static final String MESSAGE_CONTENT_CACHE = "messageContent";
+
+    private enum LockOperation {
+        SAVE, READ, UPDATE, DELETE, BATCH_SAVE, BATCH_READ, BATCH_DELETE, EDIT_FLUSH
+    }
+
     private final MessageLogContentMapper mapper;
     private final MessageLogContentRepository repository;
-    private final RedissonClient redissonClient;
+    private final MessageLockProvider lockProvider;
+    private final RedisCacheOperations cacheOperations;
+    private final MessageIdBloomFilter messageIdFilter;
+    private final MessageEditCoalescer editCoalescer;
+    private final MeterRegistry meterRegistry;
 
     private final ObjectProvider<MessageLogContentService> selfProvider;
 
+    // when enabled, no message lock is taken and correctness relies on the conditional writes of the do* methods
+    // together with cache leases, which stop a read that raced a write from repopulating the cache with stale content
+    @Value("${papertrail.message-content.lock-free:false}")
+    private boolean lockFree;
+
+    // locks are waited for at most wait-time (less once the request deadline is near) and expire after lease-time,
+    // even if their holder never releases them (local locks have no leases)
+    @Value("${papertrail.message-content.lock.read.wait-time:2s}")
+    private Duration readLockWaitTime;
+
+    @Value("${papertrail.message-content.lock.read.lease-time:10s}")
+    private Duration readLockLeaseTime;
+
+    @Value("${papertrail.message-content.lock.write.wait-time:5s}")
+    private Duration writeLockWaitTime;
+
+    @Value("${papertrail.message-content.lock.write.lease-time:30s}")
+    private Duration writeLockLeaseTime;
+
+    @Value("${papertrail.message-content.lock.batch.wait-time:10s}")
+    private Duration batchLockWaitTime;
+
+    @Value("${papertrail.message-content.lock.batch.lease-time:60s}")
+    private Duration batchLockLeaseTime;
+
     private MessageLogContentService self() {
         return selfProvider.getIfAvailable();
     }
 
     public MessageLogContentDTO saveMessage(MessageLogContentDTO messageLogContentDTO){
-        RLock lock = redissonClient.getFairLock(String.valueOf(messageLogContentDTO.getMessageId()));
+        // added ahead of the insert, so the filter can never miss a logged message
+        messageIdFilter.add(messageLogContentDTO.getMessageId());
 
-        lock.lock();
-        log.info("Acquired SAVE lock for messageID {} with active lock count {}", lock.getName(), lock.getHoldCount());
-
-        try {
+        if (lockFree) {
             return self().doSaveMessage(messageLogContentDTO);
-        } finally {
-            lock.unlock();
-            log.info("Released SAVE lock for messageID {} with active lock count {}", lock.getName(), lock.getHoldCount());
         }
+
+        MessageLock lock = lockProvider.getLock(messageLogContentDTO.getMessageId());
+        return withLock(lock, LockOperation.SAVE, "messageID " + messageLogContentDTO.getMessageId(), () -> self().doSaveMessage(messageLogContentDTO));
     }
 
     public MessageLogContentDTO findMessageById(Long messageId) {
-        RLock lock = redissonClient.getFairLock(String.valueOf(messageId));
-        lock.lock();
-        log.info("Acquired READ lock for messageID {} with active lock count {}", lock.getName(), lock.getHoldCount());
+        requireMaybeLogged(messageId);
 
-        try {
-            return self().doFindMessageById(messageId);
-        } finally {
-            lock.unlock();
-            log.info("Released READ lock for messageID {} with active lock count {}", lock.getName(), lock.getHoldCount());
+        MessageLogContentDTO pendingEdit = editCoalescer.pendingEdit(messageId);
+        if (pendingEdit != null) {
+            return pendingEdit;
         }
+
+        if (lockFree) {
+            return findMessageByIdWithLease(messageId);
+        }
+
+        MessageLock lock = lockProvider.getLock(messageId);
+        return withLock(lock, LockOperation.READ, "messageID " + messageId, () -> self().doFindMessageById(messageId));
     }
 
     public MessageLogContentDTO updateMessage(MessageLogContentDTO updatedMessage) {
-        RLock lock = redissonClient.getFairLock(String.valueOf(updatedMessage.getMessageId()));
-        lock.lock();
-        log.info("Acquired UPDATE lock for messageID {} with active lock count {}", lock.getName(), lock.getHoldCount());
+        requireMaybeLogged(updatedMessage.getMessageId());
 
-        try {
-            return self().doUpdateMessage(updatedMessage);
-        } finally {
-            lock.unlock();
-            log.info("Released UPDATE lock for messageID {} with active lock count {}", lock.getName(), lock.getHoldCount());
+        if (isUnchanged(updatedMessage)) {
+            meterRegistry.counter("papertrail.writes.suppressed", "entity", "message_content").increment();
+            log.info("{}Skipped update of message with ID={} since nothing changed{}", AnsiColor.BLUE, updatedMessage.getMessageId(), AnsiColor.RESET);
+            return updatedMessage;
+        }
+
+        if (editCoalescer.isEnabled()) {
+            return editCoalescer.submit(updatedMessage);
+        }
+
+        if (lockFree) {
+            // cached only by the script below, which evicts instead if the message got deleted after this update
+            MessageLogContentDTO result = self().doWriteMessageUpdate(updatedMessage);
+            cacheOperations.revokeLeaseAndPut(MESSAGE_CONTENT_CACHE, result.getMessageId(), result);
+            return result;
         }
+
+        MessageLock lock = lockProvider.getLock(updatedMessage.getMessageId());
+        return withLock(lock, LockOperation.UPDATE, "messageID " + updatedMessage.getMessageId(), () -> self().doUpdateMessage(updatedMessage));
     }
 
     public void deleteMessage(Long messageId) {
-        RLock lock = redissonClient.getFairLock(String.valueOf(messageId));
-        lock.lock();
-        log.info("Acquired DELETE lock for messageID {} with active lock count {}", lock.getName(), lock.getHoldCount());
+        requireMaybeLogged(messageId);
+        editCoalescer.discard(List.of(messageId));
 
-        try {
+        if (lockFree) {
+            self().doDeleteMessage(messageId);
+            cacheOperations.evictDeleted(MESSAGE_CONTENT_CACHE, List.of(messageId));
+            return;
+        }
+
+        MessageLock lock = lockProvider.getLock(messageId);
+        withLock(lock, LockOperation.DELETE, "messageID " + messageId, () -> {
             self().doDeleteMessage(messageId);
+            // edits are cached by the MessageEditCoalescer without a lock, the tombstone keeps them from reviving it
+            cacheOperations.evictDeleted(MESSAGE_CONTENT_CACHE, List.of(messageId));
+            return null;
+        });
+    }
+
+    public MessageLogContentBatchResultDTO saveMessages(List<MessageLogContentDTO> messageLogContentDTOs) {
+        messageIdFilter.addAll(messageLogContentDTOs.stream().map(MessageLogContentDTO::getMessageId).toList());
+
+        if (lockFree) {
+            MessageLogContentBatchResultDTO result = self().doSaveMessages(messageLogContentDTOs);
+            cacheOperations.putAll(MESSAGE_CONTENT_CACHE, toMessageIdMap(result.getSaved()));
+            return result;
+        }
+
+        List<Long> distinctMessageIds = messageLogContentDTOs.stream().map(MessageLogContentDTO::getMessageId).distinct().sorted().toList();
+        MessageLock lock = lockProvider.getMultiLock(distinctMessageIds);
+        return withLock(lock, LockOperation.BATCH_SAVE, distinctMessageIds.size() + " messageIDs", () -> {
+            MessageLogContentBatchResultDTO result = self().doSaveMessages(messageLogContentDTOs);
+            // written once the batch has been committed, in a single pipeline instead of one @CachePut per message
+            cacheOperations.putAll(MESSAGE_CONTENT_CACHE, toMessageIdMap(result.getSaved()));
+            return result;
+        });
+    }
+
+    public List<MessageLogContentDTO> findMessagesByIds(List<Long> messageIds) {
+        List<Long> distinctMessageIds = messageIds.stream().distinct().toList();
+
+        // cache hits are served without locking, only the misses go through the lock and the database
+        Map<Long, MessageLogContentDTO> foundMessages = new HashMap<>(
+                cacheOperations.getAll(MESSAGE_CONTENT_CACHE, distinctMessageIds, MessageLogContentDTO.class)
+        );
+        // edits that haven't been written yet are newer than anything cached or stored
+        distinctMessageIds.forEach(messageId -> {
+            MessageLogContentDTO pendingEdit = editCoalescer.pendingEdit(messageId);
+            if (pendingEdit != null) {
+                foundMessages.put(messageId, pendingEdit);
+            }
+        });
+        List<Long> missedMessageIds = distinctMessageIds.stream()
+                .filter(messageId -> !foundMessages.containsKey(messageId))
+                .sorted()
+                .toList();
+        log.info("{}Batch fetch of {} messages - Cache HIT for {}, Cache MISS for {}{}", AnsiColor.BLUE, distinctMessageIds.size(), foundMessages.size(), missedMessageIds.size(), AnsiColor.RESET);
+
+        if (missedMessageIds.isEmpty()) {
+            return distinctMessageIds.stream().map(foundMessages::get).toList();
+        }
+
+        if (lockFree) {
+            // misses are not back-filled here, as that would need a lease per message
+            foundMessages.putAll(toMessageIdMap(self().doFindMessagesByIds(missedMessageIds)));
+            return distinctMessageIds.stream().map(foundMessages::get).filter(Objects::nonNull).toList();
+        }
+
+        MessageLock lock = lockProvider.getMultiLock(missedMessageIds);
+        foundMessages.putAll(withLock(lock, LockOperation.BATCH_READ, missedMessageIds.size() + " messageIDs", () -> {
+            Map<Long, MessageLogContentDTO> loadedMessages = toMessageIdMap(self().doFindMessagesByIds(missedMessageIds));
+            cacheOperations.putAll(MESSAGE_CONTENT_CACHE, loadedMessages);
+            return loadedMessages;
+        }));
+
+        return distinctMessageIds.stream().map(foundMessages::get).filter(Objects::nonNull).toList();
+    }
+
+    // messages created in [from, to) going by their snowflake, in messageId order and paged by the last messageId seen,
+    // which keeps it a primary key range scan. Read straight from the database, without locks or the cache.
+    @Transactional (readOnly = true)
+    public List<MessageLogContentDTO> findMessagesInWindow(Instant from, Instant to, Long afterMessageId, int limit) {
+
+        long fromMessageId = DiscordSnowflake.firstSnowflakeAt(from);
+        if (afterMessageId != null) {
+            fromMessageId = Math.max(fromMessageId, afterMessageId + 1);
+        }
+        long toMessageId = DiscordSnowflake.firstSnowflakeAt(to);
+
+        if (fromMessageId >= toMessageId) {
+            return List.of();
+        }
+
+        log.info("{}Fetching up to {} messages created between {} and {}{}", AnsiColor.YELLOW, limit, from, to, AnsiColor.RESET);
+        return repository.findMessagesInRange(fromMessageId, toMessageId, Limit.of(limit)).stream().map(mapper::toDTO).toList();
+    }
+
+    public List<MessageLogContentDTO> deleteMessages(List<Long> messageIds) {
+        List<Long> distinctMessageIds = messageIds.stream().distinct().sorted().toList();
+        editCoalescer.discard(distinctMessageIds);
+        if (lockFree) {
+            List<MessageLogContentDTO> deletedMessages = self().doDeleteMessages(distinctMessageIds);
+            cacheOperations.evictDeleted(MESSAGE_CONTENT_CACHE, deletedMessages.stream().map(MessageLogContentDTO::getMessageId).toList());
+            return deletedMessages;
+        }
+
+        MessageLock lock = lockProvider.getMultiLock(distinctMessageIds);
+        return withLock(lock, LockOperation.BATCH_DELETE, distinctMessageIds.size() + " messageIDs", () -> {
+            List<MessageLogContentDTO> deletedMessages = self().doDeleteMessages(distinctMessageIds);
+            cacheOperations.evictDeleted(MESSAGE_CONTENT_CACHE, deletedMessages.stream().map(MessageLogContentDTO::getMessageId).toList());
+            return deletedMessages;
+        });
+    }
+
+    // whether the message exists, answered by the cache where possible
+    public boolean isLogged(Long messageId) {
+        return cacheOperations.get(MESSAGE_CONTENT_CACHE, messageId, MessageLogContentDTO.class) != null
+                || repository.existsById(messageId);
+    }
+
+    // Writes the coalesced edits of MessageEditCoalescer, at most one per message. Readers may have filled the cache from
+    // the database before the edits were written, so the written content is cached again, unless a newer edit is pending.
+    // Without locks, a delete can land between the update and the put below, its tombstone then turns the put into an evict.
+    public void writeEdits(List<MessageLogContentDTO> edits) {
+        List<Long> sortedMessageIds = edits.stream().map(MessageLogContentDTO::getMessageId).sorted().toList();
+        if (lockFree) {
+            List<Long> missingMessageIds = self().doUpdateMessages(edits);
+            cacheOperations.evictDeleted(MESSAGE_CONTENT_CACHE, missingMessageIds);
+            edits.stream()
+                    .filter(edit -> !missingMessageIds.contains(edit.getMessageId()))
+                    .forEach(editCoalescer::cacheIfLatest);
+            return;
+        }
+
+        MessageLock lock = lockProvider.getMultiLock(sortedMessageIds);
+        withLock(lock, LockOperation.EDIT_FLUSH, sortedMessageIds.size() + " messageIDs", () -> {
+            List<Long> missingMessageIds = self().doUpdateMessages(edits);
+            cacheOperations.evictDeleted(MESSAGE_CONTENT_CACHE, missingMessageIds);
+            edits.stream()
+                    .filter(edit -> !missingMessageIds.contains(edit.getMessageId()))
+                    .forEach(editCoalescer::cacheIfLatest);
+            return null;
+        });
+    }
+
+    // the lease is taken before the database read, so any write committed after that read revokes it
+    // and the fill below is rejected instead of caching the content this read saw
+    private MessageLogContentDTO findMessageByIdWithLease(Long messageId) {
+        MessageLogContentDTO cachedMessage = cacheOperations.get(MESSAGE_CONTENT_CACHE, messageId, MessageLogContentDTO.class);
+        if (cachedMessage != null) {
+            return cachedMessage;
+        }
+
+        String lease = cacheOperations.acquireLease(MESSAGE_CONTENT_CACHE, messageId);
+        MessageLogContentDTO messageLogContentDTO = self().doLoadMessageById(messageId);
+
+        if (lease != null && !cacheOperations.putIfLeased(MESSAGE_CONTENT_CACHE, messageId, messageLogContentDTO, lease)) {
+            log.info("{}Skipped cache fill for messageID {} since it was written while being read{}", AnsiColor.YELLOW, messageId, AnsiColor.RESET);
+        }
+        return messageLogContentDTO;
+    }
+
+    // Discord sends update events with unchanged content (e.g. once embeds are resolved), those are answered from the
+    // pending edit or the cache. On a cache miss the update is written, and its cache put catches the next duplicate.
+    private boolean isUnchanged(MessageLogContentDTO updatedMessage) {
+        MessageLogContentDTO currentMessage = editCoalescer.pendingEdit(updatedMessage.getMessageId());
+        if (currentMessage == null) {
+            currentMessage = cacheOperations.get(MESSAGE_CONTENT_CACHE, updatedMessage.getMessageId(), MessageLogContentDTO.class);
+        }
+        return updatedMessage.equals(currentMessage);
+    }
+
+    // answers messages that have definitely never been logged before any lock or database access
+    private void requireMaybeLogged(Long messageId) {
+        if (!messageIdFilter.mightContain(messageId)) {
+            throw new MessageNotFoundException("Message with the given ID hasn't been logged before");
+        }
+    }
+
+    // Neither a slow redis nor a stuck holder may hang the request: the wait is bounded and cut short by the request
+    // deadline, and the lease lets the lock expire on its own. Timeouts are answered with a 503 so the client retries.
+    private <T> T withLock(MessageLock lock, LockOperation operation, String lockTarget, Supplier<T> action) {
+        String operationName = operation.name().toLowerCase();
+        String operationLabel = operation.name().replace('_', ' ');
+
+        Duration waitTime = lockWaitTime(operation);
+        Duration remaining = RequestDeadline.remaining();
+        if (remaining != null && remaining.compareTo(waitTime) < 0) {
+            waitTime = remaining.isNegative() ? Duration.ZERO : remaining;
+        }
+
+        long waitStart = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = lock.tryLock(waitTime.toNanos(), lockLeaseTime(operation).toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        meterRegistry.timer("papertrail.lock.wait", "operation", operationName).record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+
+        if (!acquired) {
+            meterRegistry.counter("papertrail.lock.timeouts", "operation", operationName).increment();
+            throw new LockAcquisitionTimeoutException("Timed out after " + waitTime.toMillis() + " ms waiting for the " + operationLabel + " lock for " + lockTarget + ", retry shortly");
+        }
+        log.info("Acquired {} lock for {}", operationLabel, lockTarget);
+
+        long holdStart = System.nanoTime();
+        try {
+            return action.get();
         } finally {
-            lock.unlock();
-            log.info("Released DELETE lock for messageID {} with active lock count {}", lock.getName(), lock.getHoldCount());
+            try {
+                lock.unlock();
+                log.info("Released {} lock for {}", operationLabel, lockTarget);
+            } catch (IllegalMonitorStateException e) {
+                log.warn("{}{} lock for {} expired before it was released, its lease time is too short{}", AnsiColor.YELLOW, operationLabel, lockTarget, AnsiColor.RESET);
+            }
+            meterRegistry.timer("papertrail.lock.hold", "operation", operationName).record(System.nanoTime() - holdStart, TimeUnit.NANOSECONDS);
         }
     }
 
+    private Duration lockWaitTime(LockOperation operation) {
+        return switch (operation) {
+            case READ -> readLockWaitTime;
+            case SAVE, UPDATE, DELETE -> writeLockWaitTime;
+            case BATCH_SAVE, BATCH_READ, BATCH_DELETE, EDIT_FLUSH -> batchLockWaitTime;
+        };
+    }
+
+    private Duration lockLeaseTime(LockOperation operation) {
+        return switch (operation) {
+            case READ -> readLockLeaseTime;
+            case SAVE, UPDATE, DELETE -> writeLockLeaseTime;
+            case BATCH_SAVE, BATCH_READ, BATCH_DELETE, EDIT_FLUSH -> batchLockLeaseTime;
+        };
+    }
+
+    private Map<Long, MessageLogContentDTO> toMessageIdMap(List<MessageLogContentDTO> messageLogContentDTOs) {
+        Map<Long, MessageLogContentDTO> messagesById = new LinkedHashMap<>();
+        messageLogContentDTOs.forEach(messageLogContentDTO -> messagesById.put(messageLogContentDTO.getMessageId(), messageLogContentDTO));
+        return messagesById;
+    }
+
     @Transactional
     @CachePut(value = "messageContent", key = "#messageLogContentDTO.messageId")
     public MessageLogContentDTO doSaveMessage(MessageLogContentDTO messageLogContentDTO) {
 
         log.info("{}Attempting to save message with ID={}{}", AnsiColor.YELLOW, messageLogContentDTO.getMessageId(), AnsiColor.RESET);
 
-        if(repository.existsById(messageLogContentDTO.getMessageId())){
+        // insert-if-absent, the primary key constraint rejects messages that were already logged
+        try {
+            repository.insert(mapper.toEntity(messageLogContentDTO));
+        } catch (DataIntegrityViolationException e) {
             throw new MessageAlreadyLoggedException("Message has already been logged before. A logged message can only be updated or deleted.");
         }
 
-        MessageLogContent messageLogContent = mapper.toEntity(messageLogContentDTO);
-        repository.saveAndFlush(messageLogContent);
-
         log.info("{}Successfully saved message with ID={}{}", AnsiColor.GREEN, messageLogContentDTO.getMessageId(), AnsiColor.RESET);
         return messageLogContentDTO;
     }
@@ -106,10 +407,17 @@ public class MessageLogContentService {
     @Transactional (readOnly = true)
     @Cacheable(value = "messageContent", key = "#messageId")
     public MessageLogContentDTO doFindMessageById(Long messageId) {
+        return doLoadMessageById(messageId);
+    }
+
+    @Transactional (readOnly = true)
+    public MessageLogContentDTO doLoadMessageById(Long messageId) {
 
         log.info("{}Cache MISS - Fetching message with ID={}{}", AnsiColor.YELLOW, messageId, AnsiColor.RESET);
-        MessageLogContent messageLogContent = repository.findById(messageId)
-                .orElseThrow(()-> new MessageNotFoundException("Message with the given ID hasn't been logged before"));
+        MessageLogContent messageLogContent = repository.findById(messageId).orElseThrow(()-> {
+            messageIdFilter.recordFalsePositive();
+            return new MessageNotFoundException("Message with the given ID hasn't been logged before");
+        });
 
         log.info("{}Found message with ID={}{}", AnsiColor.BLUE, messageId, AnsiColor.RESET);
         return mapper.toDTO(messageLogContent);
@@ -118,29 +426,106 @@ public class MessageLogContentService {
     @Transactional
     @CachePut(value = "messageContent", key = "#updatedMessage.messageId")
     public MessageLogContentDTO doUpdateMessage(MessageLogContentDTO updatedMessage) {
+        return doWriteMessageUpdate(updatedMessage);
+    }
+
+    @Transactional
+    public MessageLogContentDTO doWriteMessageUpdate(MessageLogContentDTO updatedMessage) {
 
         log.info("{}Attempting to update message with ID={}{}", AnsiColor.YELLOW, updatedMessage.getMessageId(), AnsiColor.RESET);
-        if(!repository.existsById(updatedMessage.getMessageId())){
+        int updatedRows = repository.updateContent(updatedMessage.getMessageId(), updatedMessage.getMessageContent(), updatedMessage.getAuthorId());
+        if (updatedRows == 0) {
+            messageIdFilter.recordFalsePositive();
             throw new MessageNotFoundException("Message with the given ID hasn't been logged before");
         }
 
-        MessageLogContent updatedMessageEntity = mapper.toEntity(updatedMessage);
-        repository.saveAndFlush(updatedMessageEntity);
         log.info("{}Successfully updated message with ID={}{}", AnsiColor.GREEN, updatedMessage.getMessageId(), AnsiColor.RESET);
         return updatedMessage;
 
     }
 
+    // returns the IDs of messages that were deleted in the meantime
+    @Transactional
+    public List<Long> doUpdateMessages(List<MessageLogContentDTO> updatedMessages) {
+
+        log.info("{}Attempting to update a batch of {} messages{}", AnsiColor.YELLOW, updatedMessages.size(), AnsiColor.RESET);
+        List<Long> missingMessageIds = new ArrayList<>();
+        for (MessageLogContentDTO updatedMessage : updatedMessages) {
+            if (repository.updateContent(updatedMessage.getMessageId(), updatedMessage.getMessageContent(), updatedMessage.getAuthorId()) == 0) {
+                missingMessageIds.add(updatedMessage.getMessageId());
+            }
+        }
+
+        log.info("{}Successfully updated {} of {} messages in the batch{}", AnsiColor.GREEN, updatedMessages.size() - missingMessageIds.size(), updatedMessages.size(), AnsiColor.RESET);
+        return missingMessageIds;
+    }
+
     @Transactional
     @CacheEvict(value = "messageContent", key = "#messageId")
     public void doDeleteMessage(Long messageId) {
 
         log.info("{}Attempting to delete message with ID={}{}", AnsiColor.YELLOW, messageId, AnsiColor.RESET);
-        if(!repository.existsById(messageId)){
+        int deletedRows = repository.deleteByMessageId(messageId);
+        if (deletedRows == 0) {
+            messageIdFilter.recordFalsePositive();
             throw new MessageNotFoundException("Message hasn't been logged or the ID is invalid");
         }
 
-        repository.deleteById(messageId);
         log.info("{}Successfully deleted message with ID={}{}", AnsiColor.GREEN, messageId, AnsiColor.RESET);
     }
+
+    @Transactional
+    public MessageLogContentBatchResultDTO doSaveMessages(List<MessageLogContentDTO> messageLogContentDTOs) {
+
+        log.info("{}Attempting to save a batch of {} messages{}", AnsiColor.YELLOW, messageLogContentDTOs.size(), AnsiColor.RESET);
+        Set<Long> loggedMessageIds = new HashSet<>(repository.findLoggedMessageIds(
+                messageLogContentDTOs.stream().map(MessageLogContentDTO::getMessageId).toList()
+        ));
+
+        Map<Long, MessageLogContentDTO> acceptedMessages = new LinkedHashMap<>();
+        List<Long> conflicts = new ArrayList<>();
+        for (MessageLogContentDTO messageLogContentDTO : messageLogContentDTOs) {
+            Long messageId = messageLogContentDTO.getMessageId();
+            if (loggedMessageIds.contains(messageId) || acceptedMessages.putIfAbsent(messageId, messageLogContentDTO) != null) {
+                conflicts.add(messageId);
+            }
+        }
+
+        // only reachable without locks, when a message of the batch got logged between the lookup above and this insert
+        try {
+            repository.insertAll(acceptedMessages.values().stream().map(mapper::toEntity).toList());
+        } catch (DataIntegrityViolationException e) {
+            throw new MessageAlreadyLoggedException("A message in the batch was logged concurrently. Retry the batch to get the conflicts reported.");
+        }
+
+        log.info("{}Successfully saved {} messages of the batch with {} conflicts{}", AnsiColor.GREEN, acceptedMessages.size(), conflicts.size(), AnsiColor.RESET);
+        return new MessageLogContentBatchResultDTO(new ArrayList<>(acceptedMessages.values()), conflicts);
+    }
+
+    @Transactional (readOnly = true)
+    public List<MessageLogContentDTO> doFindMessagesByIds(Collection<Long> messageIds) {
+
+        log.info("{}Fetching a batch of {} messages{}", AnsiColor.YELLOW, messageIds.size(), AnsiColor.RESET);
+        List<MessageLogContentDTO> messageLogContentDTOs = repository.findAllById(messageIds).stream().map(mapper::toDTO).toList();
+
+        log.info("{}Found {} of {} messages in the batch{}", AnsiColor.BLUE, messageLogContentDTOs.size(), messageIds.size(), AnsiColor.RESET);
+        return messageLogContentDTOs;
+    }
+
+    @Transactional
+    public List<MessageLogContentDTO> doDeleteMessages(Collection<Long> messageIds) {
+
+        log.info("{}Attempting to delete a batch of {} messages{}", AnsiColor.YELLOW, messageIds.size(), AnsiColor.RESET);
+        List<MessageLogContent> messageLogContents = repository.findAllById(messageIds);
+        if (messageLogContents.isEmpty()) {
+            log.info("{}None of the {} messages in the batch have been logged before{}", AnsiColor.BLUE, messageIds.size(), AnsiColor.RESET);
+            return List.of();
+        }
+
+        List<Long> loggedMessageIds = messageLogContents.stream().map(MessageLogContent::getMessageId).toList();
+        repository.deleteAllByIdInBatch(loggedMessageIds);
+
+        log.info("{}Successfully deleted {} of {} messages in the batch{}", AnsiColor.GREEN, loggedMessageIds.size(), messageIds.size(), AnsiColor.RESET);
+        return messageLogContents.stream().map(mapper::toDTO).toList();
+    }
 }
@@ -1,78 +1,216 @@
 package io.github.eggy03.papertrail.api.service;
 
+import io.github.eggy03.papertrail.api.cache.RedisCacheOperations;
+import io.github.eggy03.papertrail.api.cache.RegistrationSnapshot;
+import io.github.eggy03.papertrail.api.cache.RegistrationSnapshot.Registration;
 import io.github.eggy03.papertrail.api.dto.MessageLogRegistrationDTO;
-import io.github.eggy03.papertrail.api.entity.MessageLogRegistration;
 import io.github.eggy03.papertrail.api.exceptions.GuildAlreadyRegisteredException;
 import io.github.eggy03.papertrail.api.exceptions.GuildNotFoundException;
 import io.github.eggy03.papertrail.api.mapper.MessageLogRegistrationMapper;
 import io.github.eggy03.papertrail.api.repository.MessageLogRegistrationRepository;
 import io.github.eggy03.papertrail.api.util.AnsiColor;
+import io.github.eggy03.papertrail.api.util.DiscordSnowflake;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MessageLogRegistrationService {
 
+    private static final String CACHE_NAME = "messageLog";
+
     private final MessageLogRegistrationMapper mapper;
     private final MessageLogRegistrationRepository repository;
+    private final RegistrationSnapshot snapshot;
+    private final RedisCacheOperations cacheOperations;
+    private final MeterRegistry meterRegistry;
 
-    @Transactional
-    @CachePut(value = "messageLog", key = "#messageLogRegistrationDTO.guildId")
+    // self-reference through the proxy, so that the @Cacheable fallback of findByGuild applies
+    private final ObjectProvider<MessageLogRegistrationService> selfProvider;
+
+    private MessageLogRegistrationService self() {
+        return selfProvider.getIfAvailable();
+    }
+
+    // Insert-if-absent, the primary key constraint rejects guilds that are already registered. The channel is unique as well,
+    // so once the insert has been rolled back, the stored guild tells which of the two constraints was violated.
     public MessageLogRegistrationDTO registerGuild(MessageLogRegistrationDTO messageLogRegistrationDTO){
 
-        log.info("{}Attempting to register message log guild with ID={}{}", AnsiColor.YELLOW, messageLogRegistrationDTO.getGuildId(), AnsiColor.RESET);
-        if(repository.existsById(messageLogRegistrationDTO.getGuildId())){
-            throw new GuildAlreadyRegisteredException("Guild already registered for message logging");
+        try {
+            return self().doRegisterGuild(messageLogRegistrationDTO);
+        } catch (DataIntegrityViolationException e) {
+            if (repository.existsById(messageLogRegistrationDTO.getGuildId())) {
+                throw new GuildAlreadyRegisteredException("Guild already registered for message logging");
+            }
+            throw e;
         }
+    }
 
-        MessageLogRegistration messageLogRegistration = mapper.toEntity(messageLogRegistrationDTO);
-        repository.saveAndFlush(messageLogRegistration);
+    @Transactional
+    @Caching(
+            put = @CachePut(value = "messageLog", key = "#messageLogRegistrationDTO.guildId"),
+            evict = @CacheEvict(value = "guildConfig", key = "#messageLogRegistrationDTO.guildId")
+    )
+    public MessageLogRegistrationDTO doRegisterGuild(MessageLogRegistrationDTO messageLogRegistrationDTO) {
+
+        log.info("{}Attempting to register message log guild with ID={}{}", AnsiColor.YELLOW, messageLogRegistrationDTO.getGuildId(), AnsiColor.RESET);
+
+        repository.insert(mapper.toEntity(messageLogRegistrationDTO));
+        snapshot.recordRegistration(Registration.MESSAGE_LOG, messageLogRegistrationDTO.getGuildId(), messageLogRegistrationDTO.getChannelId());
         log.info("{}Successfully registered message log guild with ID={}{}", AnsiColor.GREEN, messageLogRegistrationDTO.getGuildId(), AnsiColor.RESET);
         return messageLogRegistrationDTO;
     }
 
+    // Served from the in-memory RegistrationSnapshot, which never touches redis or the database.
+    // Only while the snapshot hasn't been loaded yet (or is disabled) does the lookup go through the cache.
+    public Optional<MessageLogRegistrationDTO> findByGuild(Long guildId) {
+
+        if (snapshot.isLoaded(Registration.MESSAGE_LOG)) {
+            return Optional.ofNullable(snapshot.findChannel(Registration.MESSAGE_LOG, guildId)).map(channelId -> toDTO(guildId, channelId));
+        }
+        return self().loadByGuild(guildId);
+    }
+
+    // Unregistered guilds are cached too (as null), since most guilds the bot sees never register and would otherwise
+    // cost a query on every event. registerGuild overwrites the entry, and the caller answers an empty result with a 404.
     @Transactional (readOnly = true)
     @Cacheable(value = "messageLog", key = "#guildId")
-    public MessageLogRegistrationDTO findByGuild(Long guildId){
+    public Optional<MessageLogRegistrationDTO> loadByGuild(Long guildId) {
 
         log.info("{}Cache MISS - Fetching message log guild with ID={}{}", AnsiColor.YELLOW, guildId, AnsiColor.RESET);
-        MessageLogRegistration messageLogRegistration = repository.findById(guildId)
-                .orElseThrow(()-> new GuildNotFoundException("Guild is not registered for message logging"));
+        return repository.findById(guildId).map(mapper::toDTO);
+    }
+
+    // Registrations of the given guilds, unregistered guilds are left out. Without the snapshot, all guilds are looked up
+    // with a single cache MGET, and the misses with a single findAllById.
+    public List<MessageLogRegistrationDTO> findByGuilds(Collection<Long> guildIds) {
+
+        List<Long> distinctGuildIds = guildIds.stream().distinct().toList();
+        if (snapshot.isLoaded(Registration.MESSAGE_LOG)) {
+            return distinctGuildIds.stream()
+                    .map(guildId -> Optional.ofNullable(snapshot.findChannel(Registration.MESSAGE_LOG, guildId)).map(channelId -> toDTO(guildId, channelId)))
+                    .flatMap(Optional::stream)
+                    .toList();
+        }
+
+        Map<Long, MessageLogRegistrationDTO> foundRegistrations = new HashMap<>(cacheOperations.getAll(CACHE_NAME, distinctGuildIds, MessageLogRegistrationDTO.class));
+        List<Long> missedGuildIds = distinctGuildIds.stream()
+                .filter(guildId -> !foundRegistrations.containsKey(guildId))
+                .toList();
 
-        log.info("{}Found message log guild with ID={}{}", AnsiColor.BLUE, guildId, AnsiColor.RESET);
-        return mapper.toDTO(messageLogRegistration);
+        if (!missedGuildIds.isEmpty()) {
+            log.info("{}Cache MISS - Fetching {} message log guilds{}", AnsiColor.YELLOW, missedGuildIds.size(), AnsiColor.RESET);
+            Map<Long, MessageLogRegistrationDTO> loadedRegistrations = self().loadByGuilds(missedGuildIds).stream()
+                    .collect(Collectors.toMap(MessageLogRegistrationDTO::getGuildId, Function.identity()));
+            cacheOperations.putAll(CACHE_NAME, loadedRegistrations);
+            foundRegistrations.putAll(loadedRegistrations);
+        }
+
+        return distinctGuildIds.stream()
+                .map(foundRegistrations::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Transactional (readOnly = true)
+    public List<MessageLogRegistrationDTO> loadByGuilds(Collection<Long> guildIds) {
+        return repository.findAllById(guildIds).stream().map(mapper::toDTO).toList();
     }
 
+    // registrations of the guilds the gateway assigns to the given shard, in guildId order
+    public List<MessageLogRegistrationDTO> findByShard(int shardId, int shardCount) {
+
+        LongPredicate inShard = guildId -> DiscordSnowflake.shardOf(guildId, shardCount) == shardId;
+        if (snapshot.isLoaded(Registration.MESSAGE_LOG)) {
+            return snapshot.findChannels(Registration.MESSAGE_LOG, inShard).entrySet().stream()
+                    .map(registration -> toDTO(registration.getKey(), registration.getValue()))
+                    .sorted(Comparator.comparing(MessageLogRegistrationDTO::getGuildId))
+                    .toList();
+        }
+        return self().loadByShard(inShard);
+    }
+
+    // the registration tables are small, so without the snapshot the shard is picked out of the whole table
+    @Transactional (readOnly = true)
+    public List<MessageLogRegistrationDTO> loadByShard(LongPredicate inShard) {
+
+        log.info("{}Fetching all message log guilds to pick out a shard{}", AnsiColor.YELLOW, AnsiColor.RESET);
+        return repository.findAll().stream()
+                .filter(registration -> inShard.test(registration.getGuildId()))
+                .map(mapper::toDTO)
+                .sorted(Comparator.comparing(MessageLogRegistrationDTO::getGuildId))
+                .toList();
+    }
+
+    // Bots re-send the current channel on every config sync. The conditional update leaves an unchanged row alone, so the
+    // stored row decides whether anything changed, rather than a cache entry that may be stale. The cache put also applies
+    // to unchanged registrations, which fills or corrects the cache entry.
     @Transactional
-    @CachePut(value = "messageLog", key = "#updatedDTO.guildId")
-    public MessageLogRegistrationDTO updateGuild (MessageLogRegistrationDTO updatedDTO) {
+    @Caching(
+            put = @CachePut(value = "messageLog", key = "#updatedDTO.guildId"),
+            evict = @CacheEvict(value = "guildConfig", key = "#updatedDTO.guildId")
+    )
+    public MessageLogRegistrationDTO updateGuild(MessageLogRegistrationDTO updatedDTO) {
 
         log.info("{}Attempting to update message log guild with ID={}{}", AnsiColor.YELLOW, updatedDTO.getGuildId(), AnsiColor.RESET);
-        if (!repository.existsById(updatedDTO.getGuildId())) {
-            throw new GuildNotFoundException("Guild is not registered for message logging");
+
+        // only when nothing was updated does it take a second query to tell an unchanged guild from an unregistered one
+        if (repository.updateChannel(updatedDTO.getGuildId(), updatedDTO.getChannelId()) == 0) {
+            if (!repository.existsById(updatedDTO.getGuildId())) {
+                throw new GuildNotFoundException("Guild is not registered for message logging");
+            }
+            recordSuppressedWrite(updatedDTO.getGuildId());
+            return updatedDTO;
         }
 
-        repository.save(mapper.toEntity(updatedDTO));
+        snapshot.recordRegistration(Registration.MESSAGE_LOG, updatedDTO.getGuildId(), updatedDTO.getChannelId());
         log.info("{}Successfully updated message log guild with ID={}{}", AnsiColor.GREEN, updatedDTO.getGuildId(), AnsiColor.RESET);
         return updatedDTO;
     }
 
     @Transactional
-    @CacheEvict(value = "messageLog", key = "#guildId")
+    @CacheEvict(value = {"messageLog", "guildConfig"}, key = "#guildId")
     public void unregisterGuild(Long guildId){
 
         log.info("{}Attempting to unregister message log guild with ID={}{}", AnsiColor.YELLOW, guildId, AnsiColor.RESET);
-        MessageLogRegistration messageLogRegistration = repository.findById(guildId)
-                .orElseThrow(()-> new GuildNotFoundException("Guild is not registered for message logging"));
+        if (repository.deleteByGuildId(guildId) == 0) {
+            throw new GuildNotFoundException("Guild is not registered for message logging");
+        }
 
-        repository.delete(messageLogRegistration);
+        snapshot.recordUnregistration(Registration.MESSAGE_LOG, guildId);
         log.info("{}Successfully unregistered message log guild with ID={}{}", AnsiColor.GREEN, guildId, AnsiColor.RESET);
     }
+
+    private void recordSuppressedWrite(Long guildId) {
+        meterRegistry.counter("papertrail.writes.suppressed", "entity", "message_log").increment();
+        log.info("{}Skipped update of message log guild with ID={} since nothing changed{}", AnsiColor.BLUE, guildId, AnsiColor.RESET);
+    }
+
+    private static MessageLogRegistrationDTO toDTO(long guildId, long channelId) {
+        MessageLogRegistrationDTO registration = new MessageLogRegistrationDTO();
+        registration.setGuildId(guildId);
+        registration.setChannelId(channelId);
+        return registration;
+    }
 }
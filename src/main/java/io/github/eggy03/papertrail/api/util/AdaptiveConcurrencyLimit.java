@@ -0,0 +1,74 @@
+package io.github.eggy03.papertrail.api.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// AIMD concurrency limit. While requests complete within the latency threshold and the limit is actually in use, it grows
+// by about one per limit's worth of completed requests. A slow or failed request shrinks it by a tenth, at most once per
+// decrease interval, so a burst of slow completions doesn't collapse it. Requests beyond the limit are rejected right away
+// instead of queueing for a connection or a lock.
+public class AdaptiveConcurrencyLimit {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final long decreaseIntervalNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int currentLimit;
+
+    // guarded by this
+    private double limit;
+    private long lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold, Duration decreaseInterval) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.decreaseIntervalNanos = decreaseInterval.toNanos();
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.currentLimit = (int) limit;
+        this.lastDecreaseNanos = System.nanoTime() - decreaseIntervalNanos;
+    }
+
+    // every successful acquire must be followed by exactly one release
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= currentLimit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(long latencyNanos, boolean failed) {
+        int inFlightBefore = inFlight.getAndDecrement();
+
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (failed || latencyNanos > latencyThresholdNanos) {
+                if (now - lastDecreaseNanos >= decreaseIntervalNanos) {
+                    limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                    lastDecreaseNanos = now;
+                }
+            } else if (inFlightBefore * 2 >= limit) {
+                // an idle service never reaches its limit, which mustn't grow it without bound
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            currentLimit = (int) limit;
+        }
+    }
+
+    public int limit() {
+        return currentLimit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,34 @@
+package io.github.eggy03.papertrail.api.util;
+
+import lombok.experimental.UtilityClass;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+// Discord IDs are snowflakes: the upper 42 bits hold the milliseconds since the Discord epoch (2015-01-01T00:00:00Z)
+@UtilityClass
+public class DiscordSnowflake {
+
+    public static final long DISCORD_EPOCH_MILLIS = 1420070400000L;
+    private static final int TIMESTAMP_SHIFT = 22;
+
+    public static Instant timestampOf(long snowflake) {
+        return Instant.ofEpochMilli((snowflake >>> TIMESTAMP_SHIFT) + DISCORD_EPOCH_MILLIS);
+    }
+
+    public static LocalDate utcDateOf(long snowflake) {
+        return LocalDate.ofInstant(timestampOf(snowflake), ZoneOffset.UTC);
+    }
+
+    // the smallest snowflake created at or after the given instant, every snowflake created before it is smaller,
+    // so time ranges over message IDs become primary key ranges
+    public static long firstSnowflakeAt(Instant instant) {
+        return Math.max(0, instant.toEpochMilli() - DISCORD_EPOCH_MILLIS) << TIMESTAMP_SHIFT;
+    }
+
+    // the shard a guild is assigned to by the gateway
+    public static int shardOf(long guildId, int shardCount) {
+        return (int) ((guildId >>> TIMESTAMP_SHIFT) % shardCount);
+    }
+}
@@ -0,0 +1,215 @@
+package io.github.eggy03.papertrail.api.util;
+
+import java.util.Arrays;
+
+// Open addressing long -> long map with linear probing, keys and values interleaved in a single long[] so that
+// no entry is ever boxed and a lookup touches one cache line most of the time. Not thread safe.
+// Slots whose key is 0 are empty, so an actual 0 key is kept outside the table.
+public class LongLongHashMap {
+
+    private static final long EMPTY = 0L;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int MIN_CAPACITY = 16;
+
+    // key at 2 * slot, value at 2 * slot + 1
+    private long[] table;
+    private int capacity;
+    private int size;
+    private int resizeAt;
+
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+
+        void accept(long key, long value);
+    }
+
+    public LongLongHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongLongHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public long getOrDefault(long key, long defaultValue) {
+        if (key == EMPTY) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+
+        long[] entries = table;
+        int mask = (entries.length >> 1) - 1;
+        int slot = slotOf(key, mask);
+        // bounded, so a reader racing a writer (see RegistrationSnapshot) can't loop forever
+        for (int probes = 0; probes <= mask; probes++) {
+            long existing = entries[slot << 1];
+            if (existing == key) {
+                return entries[(slot << 1) + 1];
+            }
+            if (existing == EMPTY) {
+                return defaultValue;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == EMPTY) {
+            return hasZeroKey;
+        }
+        return indexOf(key) >= 0;
+    }
+
+    public void put(long key, long value) {
+        if (key == EMPTY) {
+            size += hasZeroKey ? 0 : 1;
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+
+        int mask = capacity - 1;
+        int slot = slotOf(key, mask);
+        while (table[slot << 1] != EMPTY) {
+            if (table[slot << 1] == key) {
+                table[(slot << 1) + 1] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        table[slot << 1] = key;
+        table[(slot << 1) + 1] = value;
+        if (++size > resizeAt) {
+            rehash(capacity << 1);
+        }
+    }
+
+    public boolean remove(long key) {
+        if (key == EMPTY) {
+            boolean removed = hasZeroKey;
+            size -= removed ? 1 : 0;
+            hasZeroKey = false;
+            zeroValue = 0L;
+            return removed;
+        }
+
+        int slot = indexOf(key);
+        if (slot < 0) {
+            return false;
+        }
+
+        // backward shift deletion: pull later entries of the probe chain into the hole, so no tombstones are needed
+        int mask = capacity - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (table[next << 1] != EMPTY) {
+            int home = slotOf(table[next << 1], mask);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole << 1] = table[next << 1];
+                table[(hole << 1) + 1] = table[(next << 1) + 1];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        table[hole << 1] = EMPTY;
+        table[(hole << 1) + 1] = 0L;
+        size--;
+        return true;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        if (hasZeroKey) {
+            consumer.accept(EMPTY, zeroValue);
+        }
+
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != EMPTY) {
+                consumer.accept(table[i], table[i + 1]);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0L);
+        hasZeroKey = false;
+        zeroValue = 0L;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // the table plus the array and object headers
+    public long memoryBytes() {
+        return (long) table.length * Long.BYTES + 16L + 40L;
+    }
+
+    private int indexOf(long key) {
+        int mask = capacity - 1;
+        int slot = slotOf(key, mask);
+        while (table[slot << 1] != EMPTY) {
+            if (table[slot << 1] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldTable = table;
+        allocate(newCapacity);
+
+        int mask = capacity - 1;
+        long[] newTable = table;
+        for (int i = 0; i < oldTable.length; i += 2) {
+            long key = oldTable[i];
+            if (key == EMPTY) {
+                continue;
+            }
+
+            int slot = slotOf(key, mask);
+            while (newTable[slot << 1] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            newTable[slot << 1] = key;
+            newTable[(slot << 1) + 1] = oldTable[i + 1];
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        this.table = new long[newCapacity << 1];
+        this.capacity = newCapacity;
+        this.resizeAt = (int) (newCapacity * LOAD_FACTOR);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR) + 1;
+        int capacity = MIN_CAPACITY;
+        while (capacity < needed) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    // snowflakes share their low bits between IDs made in the same millisecond, so the bits are mixed first (murmur3 fmix64)
+    private static int slotOf(long key, int mask) {
+        long hash = key;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.eggy03.papertrail.api.util;
+
+import lombok.experimental.UtilityClass;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+
+// The deadline of the request being served, as set by the RequestDeadlineFilter. Waits on the request thread
+// (e.g. for a message lock) are cut short by it, since the client has given up on the response by then.
+@UtilityClass
+public class RequestDeadline {
+
+    // holds the System.nanoTime() of the deadline, so it can't be skewed by clock adjustments
+    public static final String ATTRIBUTE = RequestDeadline.class.getName();
+
+    // time left until the deadline, negative once it has passed, null outside of a request
+    public static Duration remaining() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        return attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Long deadlineNanos
+                ? Duration.ofNanos(deadlineNanos - System.nanoTime())
+                : null;
+    }
+}
@@ -0,0 +1,125 @@
+package io.github.eggy03.papertrail.api.benchmark;
+
+import io.github.eggy03.papertrail.api.cache.codec.AuditLogRegistrationSerializer;
+import io.github.eggy03.papertrail.api.cache.codec.MessageLogContentSerializer;
+import io.github.eggy03.papertrail.api.compression.MessageContentCompressor;
+import io.github.eggy03.papertrail.api.dto.AuditLogRegistrationDTO;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+// Compares the typed binary cache codecs, with and without content compression, against the GenericJackson2JsonRedisSerializer they replaced.
+// Run from the IDE or with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.github.eggy03.papertrail.api.benchmark.CacheSerializerBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Slf4j
+public class CacheSerializerBenchmark {
+
+    private static final String CHAT_TEXT = "Did you see the new update? I think the patch broke something, my game keeps crashing when I join the server. ";
+
+    @Param({"32", "256", "2000"})
+    private int contentLength;
+
+    @Param({"false", "true"})
+    private boolean compression;
+
+    private final GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
+    private MessageLogContentSerializer contentSerializer;
+    private final AuditLogRegistrationSerializer registrationSerializer = new AuditLogRegistrationSerializer();
+
+    private MessageLogContentDTO content;
+    private AuditLogRegistrationDTO registration;
+
+    private byte[] contentJson;
+    private byte[] contentBinary;
+    private byte[] registrationJson;
+    private byte[] registrationBinary;
+
+    @Setup
+    public void setUp() {
+        content = new MessageLogContentDTO();
+        content.setMessageId(1234567890123456789L);
+        content.setAuthorId(987654321098765432L);
+        content.setMessageContent(CHAT_TEXT.repeat(contentLength / CHAT_TEXT.length() + 1).substring(0, contentLength));
+        contentSerializer = new MessageLogContentSerializer(new MessageContentCompressor(compression, 128));
+
+        registration = new AuditLogRegistrationDTO();
+        registration.setGuildId(987654321234567890L);
+        registration.setChannelId(123456789012345678L);
+
+        contentJson = jsonSerializer.serialize(content);
+        contentBinary = contentSerializer.serialize(content);
+        registrationJson = jsonSerializer.serialize(registration);
+        registrationBinary = registrationSerializer.serialize(registration);
+
+        log.info("Value sizes (content length {}, compression {}): messageContent json={} binary={}, auditLog json={} binary={}",
+                contentLength, compression, contentJson.length, contentBinary.length, registrationJson.length, registrationBinary.length);
+    }
+
+    @Benchmark
+    public byte[] contentSerializeJson() {
+        return jsonSerializer.serialize(content);
+    }
+
+    @Benchmark
+    public byte[] contentSerializeBinary() {
+        return contentSerializer.serialize(content);
+    }
+
+    @Benchmark
+    public Object contentDeserializeJson() {
+        return jsonSerializer.deserialize(contentJson);
+    }
+
+    @Benchmark
+    public Object contentDeserializeBinary() {
+        return contentSerializer.deserialize(contentBinary);
+    }
+
+    @Benchmark
+    public byte[] registrationSerializeJson() {
+        return jsonSerializer.serialize(registration);
+    }
+
+    @Benchmark
+    public byte[] registrationSerializeBinary() {
+        return registrationSerializer.serialize(registration);
+    }
+
+    @Benchmark
+    public Object registrationDeserializeJson() {
+        return jsonSerializer.deserialize(registrationJson);
+    }
+
+    @Benchmark
+    public Object registrationDeserializeBinary() {
+        return registrationSerializer.deserialize(registrationBinary);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CacheSerializerBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
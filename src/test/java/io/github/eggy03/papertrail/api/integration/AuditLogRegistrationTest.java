@@ -1,5 +1,6 @@
 package io.github.eggy03.papertrail.api.integration;
 
+import io.github.eggy03.papertrail.api.cache.RegistrationSnapshot;
 import io.github.eggy03.papertrail.api.dto.AuditLogRegistrationDTO;
 import io.github.eggy03.papertrail.api.repository.AuditLogRegistrationRepository;
 import lombok.extern.slf4j.Slf4j;
@@ -21,7 +22,7 @@ import java.util.Objects;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "papertrail.registration.snapshot.enabled=true")
 @AutoConfigureWebTestClient
 @ActiveProfiles("dev")
 @Slf4j
@@ -36,6 +37,9 @@ class AuditLogRegistrationTest {
     @Autowired
     private CacheManager cacheManager;
 
+    @Autowired
+    private RegistrationSnapshot snapshot;
+
     AuditLogRegistrationDTO body;
     private static final Long GUILD_ID = 124587145126L;
     private static final Long CHANNEL_ID = 541812154121L;
@@ -68,6 +72,7 @@ class AuditLogRegistrationTest {
     void clearState() {
         repository.deleteAll();
         Objects.requireNonNull(cacheManager.getCache("auditLog")).clear();
+        snapshot.reloadAll();
     }
 
 	@Test
@@ -102,6 +107,24 @@ class AuditLogRegistrationTest {
                 .expectStatus().isEqualTo(HttpStatusCode.valueOf(409));
     }
 
+    @Test
+    void registerGuild_channelTaken_isNotReportedAsRegistered() {
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        // another guild logging to the same channel violates the channel constraint, not the guild's
+        body.setGuildId(GUILD_ID + 1);
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().is5xxServerError();
+    }
+
     @Test
     void registerGuild_malformed_throwsException() {
         body.setGuildId(null);
@@ -154,6 +177,44 @@ class AuditLogRegistrationTest {
 
     }
 
+    @Test
+    void findByGuild_servedFromSnapshot() {
+
+        client.get()
+                .uri(BASE_URL+"/"+GUILD_ID)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("GuildNotFoundException");
+
+        // answered by the registration snapshot, the cache is never consulted
+        assertThat(Objects.requireNonNull(cacheManager.getCache("auditLog")).get(GUILD_ID)).isNull();
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        // removed behind the service's back, the snapshot keeps the registration until it is reloaded
+        repository.deleteAll();
+        Objects.requireNonNull(cacheManager.getCache("auditLog")).clear();
+
+        client.get()
+                .uri(BASE_URL+"/"+GUILD_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(AuditLogRegistrationDTO.class)
+                .value(dto -> assertThat(dto.getChannelId()).isEqualTo(CHANNEL_ID));
+
+        snapshot.reloadAll();
+
+        client.get()
+                .uri(BASE_URL+"/"+GUILD_ID)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
     @Test
     void findByGuild_malformed_throwsException() {
 
@@ -198,6 +259,32 @@ class AuditLogRegistrationTest {
                 .value(dto -> assertThat(dto.getChannelId()).isEqualTo(updatedDto.getChannelId()));
     }
 
+    @Test
+    void updateGuild_staleCacheEntry_stillUpdates() {
+
+        AuditLogRegistrationDTO updatedDto = new AuditLogRegistrationDTO();
+        updatedDto.setGuildId(body.getGuildId());
+        updatedDto.setChannelId(456L);
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        // a cache entry that already holds the update must not stand in for the stored row
+        Objects.requireNonNull(cacheManager.getCache("auditLog")).put(GUILD_ID, updatedDto);
+
+        client.put()
+                .uri(BASE_URL)
+                .bodyValue(updatedDto)
+                .exchange()
+                .expectStatus().isOk();
+
+        assertThat(repository.findById(GUILD_ID)).get()
+                .extracting("channelId").isEqualTo(updatedDto.getChannelId());
+    }
+
     @Test
     void updateGuild_notExists_throwsException() {
 
@@ -0,0 +1,234 @@
+package io.github.eggy03.papertrail.api.integration;
+
+import io.github.eggy03.papertrail.api.cache.RegistrationSnapshot;
+import io.github.eggy03.papertrail.api.dto.AuditLogRegistrationDTO;
+import io.github.eggy03.papertrail.api.dto.ImportResultDTO;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
+import io.github.eggy03.papertrail.api.repository.AuditLogRegistrationRepository;
+import io.github.eggy03.papertrail.api.repository.MessageLogContentRepository;
+import io.github.eggy03.papertrail.api.repository.MessageLogRegistrationRepository;
+import io.github.eggy03.papertrail.api.service.MessageContentCleanupService;
+import io.github.eggy03.papertrail.api.util.DiscordSnowflake;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "papertrail.import.chunk-size=2")
+@AutoConfigureWebTestClient
+@ActiveProfiles("dev")
+@Slf4j
+class BulkImportTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private AuditLogRegistrationRepository auditLogRepository;
+
+    @Autowired
+    private MessageLogRegistrationRepository messageLogRepository;
+
+    @Autowired
+    private MessageLogContentRepository contentRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private RegistrationSnapshot snapshot;
+
+    @Autowired
+    private MessageContentCleanupService cleanupService;
+
+    private static final Long GUILD_ID = 124587145126L;
+    private static final Long CHANNEL_ID = 541812154121L;
+    private static final Long MESSAGE_ID = 124587145126L;
+    private static final Long AUTHOR_ID = 541812154121L;
+
+    private static final String BASE_URL = "/api/v1/import";
+
+    private static RedisServer redisServer;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisServer = RedisServer.newRedisServer().build();
+        redisServer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @BeforeEach
+    void clearState() {
+        auditLogRepository.deleteAll();
+        messageLogRepository.deleteAll();
+        contentRepository.deleteAll();
+        Objects.requireNonNull(cacheManager.getCache("auditLog")).clear();
+        Objects.requireNonNull(cacheManager.getCache("guildConfig")).clear();
+        Objects.requireNonNull(cacheManager.getCache("messageContent")).clear();
+        snapshot.reloadAll();
+    }
+
+    @Test
+    void importAuditLogRegistrations_ndjson_skipsConflicts() {
+
+        // looked up before the import, so that the guild is known as not registered
+        client.get()
+                .uri("/api/v1/log/audit/" + GUILD_ID)
+                .exchange()
+                .expectStatus().isNotFound();
+
+        String ndjson = """
+                {"guildId":%d,"channelId":%d}
+                {"guildId":%d,"channelId":%d}
+                {"guildId":%d,"channelId":%d}
+                {"guildId":%d}
+                """.formatted(GUILD_ID, CHANNEL_ID, GUILD_ID + 1, CHANNEL_ID + 1, GUILD_ID, CHANNEL_ID + 2, GUILD_ID + 2);
+
+        ImportResultDTO result = importRecords("/registrations/audit", MediaType.APPLICATION_NDJSON, ndjson);
+
+        assertThat(result.getReceived()).isEqualTo(4);
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getConflicts()).isEqualTo(1);
+        assertThat(result.getRejected()).isEqualTo(1);
+        assertThat(auditLogRepository.count()).isEqualTo(2);
+
+        client.get()
+                .uri("/api/v1/log/audit/" + GUILD_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(AuditLogRegistrationDTO.class)
+                .value(response -> assertThat(response.getChannelId()).isEqualTo(CHANNEL_ID));
+
+        // running the import again imports nothing
+        assertThat(importRecords("/registrations/audit", MediaType.APPLICATION_NDJSON, ndjson).getConflicts()).isEqualTo(3);
+    }
+
+    @Test
+    void importMessageLogRegistrations_csv_success() {
+
+        String csv = "channelId,guildId\n" + CHANNEL_ID + "," + GUILD_ID + "\n" + (CHANNEL_ID + 1) + "," + (GUILD_ID + 1) + "\n";
+
+        ImportResultDTO result = importRecords("/registrations/message", MediaType.parseMediaType("text/csv"), csv);
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(messageLogRepository.findById(GUILD_ID + 1)).hasValueSatisfying(registration ->
+                assertThat(registration.getChannelId()).isEqualTo(CHANNEL_ID + 1));
+    }
+
+    @Test
+    void importMessages_csv_success() {
+
+        String csv = """
+                messageId,messageContent,authorId
+                %d,"multi
+                line, \"\"quoted\"\"\",%d
+                %d,plain,%d
+                %d,not a number,abc
+                """.formatted(MESSAGE_ID, AUTHOR_ID, MESSAGE_ID + 1, AUTHOR_ID, MESSAGE_ID + 2);
+
+        ImportResultDTO result = importRecords("/content/message", MediaType.parseMediaType("text/csv"), csv);
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getRejected()).isEqualTo(1);
+        assertThat(result.getRejectedLines()).containsExactly(5L);
+
+        client.get()
+                .uri("/api/v1/content/message/" + MESSAGE_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(MessageLogContentDTO.class)
+                .value(response -> assertThat(response.getMessageContent()).isEqualTo("multi\nline, \"quoted\""));
+    }
+
+    @Test
+    void importMessages_malformedLine_rejectsOnlyThatRecord() {
+
+        String ndjson = """
+                {"messageId":%d,"messageContent":"first","authorId":%d}
+                {"messageId":
+
+                {"messageId":%d,"messageContent":"third","authorId":%d}
+                """.formatted(MESSAGE_ID, AUTHOR_ID, MESSAGE_ID + 1, AUTHOR_ID);
+
+        ImportResultDTO result = importRecords("/content/message", MediaType.APPLICATION_NDJSON, ndjson);
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getRejected()).isEqualTo(1);
+        assertThat(result.getRejectedLines()).containsExactly(2L);
+        assertThat(contentRepository.existsById(MESSAGE_ID + 1)).isTrue();
+    }
+
+    @Test
+    void importMessages_unreadable_importsRecordsBefore() {
+
+        String csv = """
+                messageId,messageContent,authorId
+                %d,first,%d
+                %d,"never closed,%d
+                """.formatted(MESSAGE_ID, AUTHOR_ID, MESSAGE_ID + 1, AUTHOR_ID);
+
+        client.post()
+                .uri(BASE_URL + "/content/message")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue(csv)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("MalformedImportException");
+
+        assertThat(contentRepository.existsById(MESSAGE_ID)).isTrue();
+    }
+
+    @Test
+    void importMessages_expiredMessage_isRemovedByCleanup() {
+
+        long expiredId = DiscordSnowflake.firstSnowflakeAt(Instant.now().minus(31, ChronoUnit.DAYS));
+        long recentId = DiscordSnowflake.firstSnowflakeAt(Instant.now().minus(1, ChronoUnit.DAYS));
+        String ndjson = """
+                {"messageId":%d,"messageContent":"expired","authorId":%d}
+                {"messageId":%d,"messageContent":"recent","authorId":%d}
+                """.formatted(expiredId, AUTHOR_ID, recentId, AUTHOR_ID);
+
+        assertThat(importRecords("/content/message", MediaType.APPLICATION_NDJSON, ndjson).getImported()).isEqualTo(2);
+
+        // created_at is taken from the snowflake, so the import doesn't give the old message another 30 days
+        cleanupService.cleanupOldMessages();
+
+        assertThat(contentRepository.existsById(expiredId)).isFalse();
+        assertThat(contentRepository.existsById(recentId)).isTrue();
+    }
+
+    private ImportResultDTO importRecords(String path, MediaType contentType, String body) {
+        return client.post()
+                .uri(BASE_URL + path)
+                .contentType(contentType)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ImportResultDTO.class)
+                .returnResult()
+                .getResponseBody();
+    }
+}
@@ -0,0 +1,193 @@
+package io.github.eggy03.papertrail.api.integration;
+
+import io.github.eggy03.papertrail.api.dto.AuditLogRegistrationDTO;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
+import io.github.eggy03.papertrail.api.repository.AuditLogRegistrationRepository;
+import io.github.eggy03.papertrail.api.repository.MessageLogContentRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.lang.NonNull;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.context.request.RequestContextHolder;
+import redis.embedded.RedisServer;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// warm cache hits must be answered without a transaction, and so without borrowing a pooled connection
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        // registration lookups then go through the cache instead of the in-memory snapshot
+        properties = "papertrail.registration.snapshot.enabled=false"
+)
+@AutoConfigureWebTestClient
+@ActiveProfiles("dev")
+class CacheHitConnectionTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private MessageLogContentRepository messageRepository;
+
+    @Autowired
+    private AuditLogRegistrationRepository registrationRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private static final Long MESSAGE_ID = 124587145126L;
+    private static final Long AUTHOR_ID = 541812154121L;
+    private static final Long GUILD_ID = 750289474205397309L;
+    private static final Long CHANNEL_ID = 289183486205457310L;
+
+    private static final String MESSAGE_URL = "/api/v1/content/message";
+    private static final String AUDIT_LOG_URL = "/api/v1/log/audit";
+
+    // connections borrowed while serving a request, background jobs are left out
+    private static final AtomicInteger requestConnections = new AtomicInteger();
+
+    private static RedisServer redisServer;
+
+    @TestConfiguration
+    static class ConnectionCountingConfig {
+
+        @Bean
+        static BeanPostProcessor connectionCountingPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+                    return bean instanceof DataSource dataSource ? new ConnectionCountingDataSource(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    static class ConnectionCountingDataSource extends DelegatingDataSource {
+
+        ConnectionCountingDataSource(DataSource targetDataSource) {
+            super(targetDataSource);
+        }
+
+        @Override
+        @NonNull
+        public Connection getConnection() throws SQLException {
+            if (RequestContextHolder.getRequestAttributes() != null) {
+                requestConnections.incrementAndGet();
+            }
+            return super.getConnection();
+        }
+    }
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisServer = RedisServer.newRedisServer().build();
+        redisServer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @BeforeEach
+    void clearState() {
+        messageRepository.deleteAll();
+        registrationRepository.deleteAll();
+        Objects.requireNonNull(cacheManager.getCache("messageContent")).clear();
+        Objects.requireNonNull(cacheManager.getCache("auditLog")).clear();
+    }
+
+    @Test
+    void findMessage_cacheHit_borrowsNoConnection() {
+        MessageLogContentDTO body = new MessageLogContentDTO();
+        body.setMessageId(MESSAGE_ID);
+        body.setMessageContent("text");
+        body.setAuthorId(AUTHOR_ID);
+
+        client.post()
+                .uri(MESSAGE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        requestConnections.set(0);
+        for (int i = 0; i < 5; i++) {
+            client.get()
+                    .uri(MESSAGE_URL + "/" + MESSAGE_ID)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(MessageLogContentDTO.class)
+                    .isEqualTo(body);
+        }
+
+        assertThat(requestConnections.get()).isZero();
+    }
+
+    @Test
+    void findMessage_cacheMiss_borrowsConnection() {
+        MessageLogContentDTO body = new MessageLogContentDTO();
+        body.setMessageId(MESSAGE_ID);
+        body.setMessageContent("text");
+        body.setAuthorId(AUTHOR_ID);
+
+        client.post()
+                .uri(MESSAGE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+        Objects.requireNonNull(cacheManager.getCache("messageContent")).evict(MESSAGE_ID);
+
+        requestConnections.set(0);
+        client.get()
+                .uri(MESSAGE_URL + "/" + MESSAGE_ID)
+                .exchange()
+                .expectStatus().isOk();
+
+        assertThat(requestConnections.get()).isPositive();
+    }
+
+    @Test
+    void findRegistration_cacheHit_borrowsNoConnection() {
+        AuditLogRegistrationDTO body = new AuditLogRegistrationDTO();
+        body.setGuildId(GUILD_ID);
+        body.setChannelId(CHANNEL_ID);
+
+        client.post()
+                .uri(AUDIT_LOG_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        requestConnections.set(0);
+        for (int i = 0; i < 5; i++) {
+            client.get()
+                    .uri(AUDIT_LOG_URL + "/" + GUILD_ID)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(AuditLogRegistrationDTO.class)
+                    .isEqualTo(body);
+        }
+
+        assertThat(requestConnections.get()).isZero();
+    }
+}
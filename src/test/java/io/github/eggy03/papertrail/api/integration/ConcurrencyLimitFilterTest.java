@@ -0,0 +1,114 @@
+package io.github.eggy03.papertrail.api.integration;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// with a limit of one, a content read that arrives while another is in flight is turned away by the filter itself
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "papertrail.limiter.enabled=true",
+                "papertrail.limiter.initial-limit=1",
+                "papertrail.limiter.min-limit=1",
+                "papertrail.limiter.max-limit=1"
+        }
+)
+@AutoConfigureWebTestClient
+@ActiveProfiles("dev")
+class ConcurrencyLimitFilterTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    // classified as a content read, so it is limited like the real content lookups
+    private static final String SLOW_URL = "/api/v1/content/slow";
+
+    private static final CountDownLatch entered = new CountDownLatch(1);
+    private static final CountDownLatch release = new CountDownLatch(1);
+
+    private static RedisServer redisServer;
+
+    @TestConfiguration
+    static class SlowEndpointConfig {
+
+        @Bean
+        SlowController slowController() {
+            return new SlowController();
+        }
+    }
+
+    @RestController
+    static class SlowController {
+
+        @GetMapping(SLOW_URL)
+        String slow() throws InterruptedException {
+            entered.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return "done";
+        }
+    }
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisServer = RedisServer.newRedisServer().build();
+        redisServer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @Test
+    void request_beyondLimit_rejectedUntilPermitReleased() throws InterruptedException {
+
+        CompletableFuture<Void> inFlight = CompletableFuture.runAsync(() -> client.get()
+                .uri(SLOW_URL)
+                .exchange()
+                .expectStatus().isOk());
+        assertThat(entered.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // rejected before any handler runs, and answered by the GlobalExceptionHandler all the same
+        client.get()
+                .uri(SLOW_URL)
+                .exchange()
+                .expectStatus().isEqualTo(503)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1")
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(503)
+                .jsonPath("$.error").isEqualTo("ServiceOverloadedException")
+                .jsonPath("$.message").isEqualTo("Too many concurrent content read requests, retry shortly")
+                .jsonPath("$.path").isEqualTo(SLOW_URL);
+
+        release.countDown();
+        inFlight.join();
+
+        // the permit of the first request was given back
+        client.get()
+                .uri(SLOW_URL)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("done");
+    }
+}
@@ -0,0 +1,168 @@
+package io.github.eggy03.papertrail.api.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.eggy03.papertrail.api.dto.AuditLogRegistrationDTO;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
+import io.github.eggy03.papertrail.api.repository.AuditLogRegistrationRepository;
+import io.github.eggy03.papertrail.api.repository.MessageLogContentRepository;
+import io.github.eggy03.papertrail.api.repository.MessageLogRegistrationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureWebTestClient
+@ActiveProfiles("dev")
+@Slf4j
+class DataExportTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private AuditLogRegistrationRepository auditLogRepository;
+
+    @Autowired
+    private MessageLogRegistrationRepository messageLogRepository;
+
+    @Autowired
+    private MessageLogContentRepository contentRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static final Long GUILD_ID = 124587145126L;
+    private static final Long CHANNEL_ID = 541812154121L;
+    private static final Long MESSAGE_ID = 124587145126L;
+    private static final Long AUTHOR_ID = 541812154121L;
+
+    private static final String BASE_URL = "/api/v1/export";
+
+    private static RedisServer redisServer;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisServer = RedisServer.newRedisServer().build();
+        redisServer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @BeforeEach
+    void clearState() {
+        auditLogRepository.deleteAll();
+        messageLogRepository.deleteAll();
+        contentRepository.deleteAll();
+        Objects.requireNonNull(cacheManager.getCache("auditLog")).clear();
+        Objects.requireNonNull(cacheManager.getCache("messageContent")).clear();
+    }
+
+    @Test
+    void exportAuditLogRegistrations_success() throws IOException {
+
+        for (long i = 0; i < 3; i++) {
+            AuditLogRegistrationDTO registration = new AuditLogRegistrationDTO();
+            registration.setGuildId(GUILD_ID + 2 - i);
+            registration.setChannelId(CHANNEL_ID + i);
+
+            client.post()
+                    .uri("/api/v1/log/audit")
+                    .bodyValue(registration)
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+
+        List<AuditLogRegistrationDTO> exported = readLines(export("/registrations/audit"), AuditLogRegistrationDTO.class);
+
+        assertThat(exported).extracting(AuditLogRegistrationDTO::getGuildId).containsExactly(GUILD_ID, GUILD_ID + 1, GUILD_ID + 2);
+        assertThat(exported).extracting(AuditLogRegistrationDTO::getChannelId).containsExactly(CHANNEL_ID + 2, CHANNEL_ID + 1, CHANNEL_ID);
+    }
+
+    @Test
+    void exportMessageLogRegistrations_empty_returnsNoLines() {
+
+        assertThat(export("/registrations/message")).isEmpty();
+    }
+
+    @Test
+    void exportMessages_window_success() throws IOException {
+
+        // the second message is created one day after the first
+        long nextDayMessageId = MESSAGE_ID + (86_400_000L << 22);
+        for (Long messageId : List.of(MESSAGE_ID, MESSAGE_ID + 1, nextDayMessageId)) {
+            MessageLogContentDTO message = new MessageLogContentDTO();
+            message.setMessageId(messageId);
+            message.setMessageContent("line\nbreak \"" + messageId + "\"");
+            message.setAuthorId(AUTHOR_ID);
+
+            client.post()
+                    .uri("/api/v1/content/message")
+                    .bodyValue(message)
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+
+        List<MessageLogContentDTO> exported = readLines(
+                export("/content/message?from=2015-01-01T00:00:00Z&to=2015-01-02T00:00:00Z"), MessageLogContentDTO.class);
+
+        assertThat(exported).extracting(MessageLogContentDTO::getMessageId).containsExactly(MESSAGE_ID, MESSAGE_ID + 1);
+        assertThat(exported.getFirst().getMessageContent()).isEqualTo("line\nbreak \"" + MESSAGE_ID + "\"");
+        assertThat(exported.getFirst().getAuthorId()).isEqualTo(AUTHOR_ID);
+    }
+
+    @Test
+    void exportMessages_malformed_throwsException() {
+
+        client.get()
+                .uri(BASE_URL + "/content/message?from=2015-01-01T00:00:00Z")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private String export(String path) {
+        String body = client.get()
+                .uri(BASE_URL + path)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+        return body != null ? body : "";
+    }
+
+    private <T> List<T> readLines(String ndjson, Class<T> type) throws IOException {
+        assertThat(ndjson).endsWith("\n");
+
+        List<T> values = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            values.add(objectMapper.readValue(line, type));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,239 @@
+package io.github.eggy03.papertrail.api.integration;
+
+import io.github.eggy03.papertrail.api.cache.RegistrationSnapshot;
+import io.github.eggy03.papertrail.api.dto.AuditLogRegistrationDTO;
+import io.github.eggy03.papertrail.api.dto.GuildIdBatchDTO;
+import io.github.eggy03.papertrail.api.dto.GuildLoggingConfigDTO;
+import io.github.eggy03.papertrail.api.dto.GuildRegistrationBatchDTO;
+import io.github.eggy03.papertrail.api.dto.MessageLogRegistrationDTO;
+import io.github.eggy03.papertrail.api.repository.AuditLogRegistrationRepository;
+import io.github.eggy03.papertrail.api.repository.GuildLoggingConfigRepository;
+import io.github.eggy03.papertrail.api.repository.MessageLogRegistrationRepository;
+import io.github.eggy03.papertrail.api.util.DiscordSnowflake;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureWebTestClient
+@ActiveProfiles("dev")
+@Slf4j
+class GuildRegistrationTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private AuditLogRegistrationRepository auditLogRepository;
+
+    @Autowired
+    private MessageLogRegistrationRepository messageLogRepository;
+
+    @Autowired
+    private GuildLoggingConfigRepository loggingConfigRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private RegistrationSnapshot snapshot;
+
+    private static final Long GUILD_ID = 124587145126L;
+    private static final Long SECOND_GUILD_ID = GUILD_ID + (1L << 22);
+    private static final Long UNREGISTERED_GUILD_ID = GUILD_ID + 1;
+    private static final Long CHANNEL_ID = 541812154121L;
+
+    private static final String BASE_URL = "/api/v1/log/registrations";
+
+    private static RedisServer redisServer;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisServer = RedisServer.newRedisServer().build();
+        redisServer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    // a single method, since JUnit doesn't define the order of several @BeforeEach methods
+    @BeforeEach
+    void setup() {
+        clearState();
+        registerGuilds();
+    }
+
+    private void clearState() {
+        auditLogRepository.deleteAll();
+        messageLogRepository.deleteAll();
+        Objects.requireNonNull(cacheManager.getCache("auditLog")).clear();
+        Objects.requireNonNull(cacheManager.getCache("messageLog")).clear();
+        Objects.requireNonNull(cacheManager.getCache("guildConfig")).clear();
+        snapshot.reloadAll();
+    }
+
+    private void registerGuilds() {
+        AuditLogRegistrationDTO auditLog = new AuditLogRegistrationDTO();
+        auditLog.setGuildId(GUILD_ID);
+        auditLog.setChannelId(CHANNEL_ID);
+
+        client.post()
+                .uri("/api/v1/log/audit")
+                .bodyValue(auditLog)
+                .exchange()
+                .expectStatus().isCreated();
+
+        for (Long guildId : List.of(GUILD_ID, SECOND_GUILD_ID)) {
+            MessageLogRegistrationDTO messageLog = new MessageLogRegistrationDTO();
+            messageLog.setGuildId(guildId);
+            messageLog.setChannelId(CHANNEL_ID + guildId);
+
+            client.post()
+                    .uri("/api/v1/log/message")
+                    .bodyValue(messageLog)
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+    }
+
+    @Test
+    void findLoggingConfig_success() {
+
+        client.get()
+                .uri(BASE_URL + "/" + GUILD_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(GuildLoggingConfigDTO.class)
+                .isEqualTo(new GuildLoggingConfigDTO(GUILD_ID, CHANNEL_ID, CHANNEL_ID + GUILD_ID));
+
+        client.get()
+                .uri(BASE_URL + "/" + SECOND_GUILD_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(GuildLoggingConfigDTO.class)
+                .isEqualTo(new GuildLoggingConfigDTO(SECOND_GUILD_ID, null, CHANNEL_ID + SECOND_GUILD_ID));
+    }
+
+    @Test
+    void findLoggingConfig_notRegistered_returnsNotFound() {
+
+        client.get()
+                .uri(BASE_URL + "/" + UNREGISTERED_GUILD_ID)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("GuildNotFoundException");
+    }
+
+    @Test
+    void findLoggingConfig_followsRegistrationChanges() {
+        snapshot.reloadAll();
+
+        client.delete()
+                .uri("/api/v1/log/audit/" + GUILD_ID)
+                .exchange()
+                .expectStatus().isNoContent();
+
+        client.get()
+                .uri(BASE_URL + "/" + GUILD_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(GuildLoggingConfigDTO.class)
+                .isEqualTo(new GuildLoggingConfigDTO(GUILD_ID, null, CHANNEL_ID + GUILD_ID));
+    }
+
+    @Test
+    void loggingConfigRepository_readsBothTablesInOneQuery() {
+
+        assertThat(loggingConfigRepository.findByGuildId(GUILD_ID)).contains(new GuildLoggingConfigDTO(GUILD_ID, CHANNEL_ID, CHANNEL_ID + GUILD_ID));
+        assertThat(loggingConfigRepository.findByGuildId(SECOND_GUILD_ID)).contains(new GuildLoggingConfigDTO(SECOND_GUILD_ID, null, CHANNEL_ID + SECOND_GUILD_ID));
+        assertThat(loggingConfigRepository.findByGuildId(UNREGISTERED_GUILD_ID)).isEmpty();
+    }
+
+    @Test
+    void findRegistrations_success() {
+        GuildIdBatchDTO batch = new GuildIdBatchDTO();
+        batch.setGuildIds(List.of(GUILD_ID, SECOND_GUILD_ID, UNREGISTERED_GUILD_ID));
+
+        client.post()
+                .uri(BASE_URL + "/batch")
+                .bodyValue(batch)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(GuildRegistrationBatchDTO.class)
+                .value(response -> {
+                    assertThat(response.getAuditLogRegistrations()).extracting(AuditLogRegistrationDTO::getGuildId).containsExactly(GUILD_ID);
+                    assertThat(response.getMessageLogRegistrations()).extracting(MessageLogRegistrationDTO::getGuildId).containsExactly(GUILD_ID, SECOND_GUILD_ID);
+                    assertThat(response.getMessageLogRegistrations()).extracting(MessageLogRegistrationDTO::getChannelId).containsExactly(CHANNEL_ID + GUILD_ID, CHANNEL_ID + SECOND_GUILD_ID);
+                });
+    }
+
+    @Test
+    void findRegistrations_malformed_throwsException() {
+        GuildIdBatchDTO batch = new GuildIdBatchDTO();
+        batch.setGuildIds(List.of());
+
+        client.post()
+                .uri(BASE_URL + "/batch")
+                .bodyValue(batch)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void findShardRegistrations_success() {
+        int shardId = DiscordSnowflake.shardOf(GUILD_ID, 2);
+
+        client.get()
+                .uri(BASE_URL + "/shard?shardId=" + shardId + "&shardCount=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(GuildRegistrationBatchDTO.class)
+                .value(response -> {
+                    assertThat(response.getAuditLogRegistrations()).extracting(AuditLogRegistrationDTO::getGuildId).containsExactly(GUILD_ID);
+                    assertThat(response.getMessageLogRegistrations()).extracting(MessageLogRegistrationDTO::getGuildId).containsExactly(GUILD_ID);
+                });
+
+        client.get()
+                .uri(BASE_URL + "/shard?shardId=0&shardCount=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(GuildRegistrationBatchDTO.class)
+                .value(response -> assertThat(response.getMessageLogRegistrations()).hasSize(2));
+    }
+
+    @Test
+    void findShardRegistrations_malformed_throwsException() {
+
+        client.get()
+                .uri(BASE_URL + "/shard?shardId=2&shardCount=2")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("InvalidShardException");
+
+        client.get()
+                .uri(BASE_URL + "/shard?shardId=0&shardCount=0")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
@@ -0,0 +1,126 @@
+package io.github.eggy03.papertrail.api.integration;
+
+import io.github.eggy03.papertrail.api.cache.RedisCacheOperations;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
+import io.github.eggy03.papertrail.api.repository.MessageLogContentRepository;
+import io.github.eggy03.papertrail.api.service.MessageContentCleanupService;
+import io.github.eggy03.papertrail.api.service.MessageContentPartitionManager;
+import io.github.eggy03.papertrail.api.util.DiscordSnowflake;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(
+        properties = {
+                "papertrail.message-content.cleanup.chunk-size=2",
+                "papertrail.message-content.cleanup.chunk-pause=0ms"
+        }
+)
+@ActiveProfiles("dev")
+@Slf4j
+class MessageContentCleanupTest {
+
+    @Autowired
+    private MessageContentCleanupService cleanupService;
+
+    @Autowired
+    private MessageLogContentRepository repository;
+
+    @Autowired
+    private MessageContentPartitionManager partitionManager;
+
+    @Autowired
+    private RedisCacheOperations cacheOperations;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private static final Long AUTHOR_ID = 541812154121L;
+
+    private static RedisServer redisServer;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisServer = RedisServer.newRedisServer().build();
+        redisServer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @BeforeEach
+    void clearState() {
+        repository.deleteAll();
+    }
+
+    private void insertMessage(long messageId, OffsetDateTime createdAt) {
+        transactionTemplate.executeWithoutResult(status -> entityManager.createNativeQuery("""
+                        INSERT INTO message_log_content_table (message_id, message_content, author_id, created_at)
+                        VALUES (:messageId, :messageContent, :authorId, :createdAt)
+                        """)
+                .setParameter("messageId", messageId)
+                .setParameter("messageContent", "text")
+                .setParameter("authorId", AUTHOR_ID)
+                .setParameter("createdAt", createdAt)
+                .executeUpdate());
+
+        MessageLogContentDTO cached = new MessageLogContentDTO();
+        cached.setMessageId(messageId);
+        cached.setMessageContent("text");
+        cached.setAuthorId(AUTHOR_ID);
+        cacheOperations.putAll("messageContent", Map.of(messageId, cached));
+    }
+
+    @Test
+    void cleanupOldMessages_deletesExpiredInChunksAndEvicts() {
+
+        OffsetDateTime expired = OffsetDateTime.now().minusDays(31);
+        OffsetDateTime recent = OffsetDateTime.now();
+        long firstExpiredId = DiscordSnowflake.firstSnowflakeAt(expired.toInstant());
+        long recentId = DiscordSnowflake.firstSnowflakeAt(recent.toInstant());
+
+        insertMessage(firstExpiredId, expired);
+        insertMessage(firstExpiredId + 1, expired);
+        insertMessage(firstExpiredId + 2, expired);
+        insertMessage(recentId, recent);
+
+        cleanupService.cleanupOldMessages();
+
+        assertThat(repository.findAll()).extracting("messageId").containsExactly(recentId);
+        assertThat(cacheOperations.get("messageContent", firstExpiredId, MessageLogContentDTO.class)).isNull();
+        assertThat(cacheOperations.get("messageContent", firstExpiredId + 2, MessageLogContentDTO.class)).isNull();
+        assertThat(cacheOperations.get("messageContent", recentId, MessageLogContentDTO.class)).isNotNull();
+    }
+
+    @Test
+    void partitionManager_unpartitionedTable_leavesTableAlone() {
+
+        // H2 has no partitions to manage, expired messages are deleted row by row as above
+        assertThat(partitionManager.isPartitioned()).isFalse();
+        assertThat(partitionManager.findPartitionsBefore(LocalDate.now().plusDays(1))).isEmpty();
+
+        partitionManager.createUpcomingPartitions(LocalDate.now());
+    }
+}
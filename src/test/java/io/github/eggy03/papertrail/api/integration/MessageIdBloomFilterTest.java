@@ -0,0 +1,147 @@
+package io.github.eggy03.papertrail.api.integration;
+
+import io.github.eggy03.papertrail.api.cache.MessageIdBloomFilter;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
+import io.github.eggy03.papertrail.api.util.DiscordSnowflake;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "papertrail.message-content.bloom-filter.enabled=true")
+@AutoConfigureWebTestClient
+@ActiveProfiles("dev")
+@Slf4j
+class MessageIdBloomFilterTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private MessageIdBloomFilter messageIdFilter;
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String BASE_URL = "/api/v1/content/message";
+
+    private static RedisServer redisServer;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisServer = RedisServer.newRedisServer().build();
+        redisServer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    // a snowflake for the current time, with the given sequence bits
+    private static long snowflakeNow(long sequence) {
+        return ((System.currentTimeMillis() - DiscordSnowflake.DISCORD_EPOCH_MILLIS) << 22) | sequence;
+    }
+
+    // the filter is built in the background after startup
+    private void awaitDefiniteMiss(long messageId) throws InterruptedException {
+        for (int attempt = 0; attempt < 50 && messageIdFilter.mightContain(messageId); attempt++) {
+            Thread.sleep(100);
+        }
+    }
+
+    @Test
+    void mightContain_addedAndUnknownIds() throws InterruptedException {
+
+        long loggedMessageId = snowflakeNow(1);
+        long unknownMessageId = snowflakeNow(2);
+
+        messageIdFilter.add(loggedMessageId);
+        awaitDefiniteMiss(unknownMessageId);
+
+        assertThat(messageIdFilter.mightContain(loggedMessageId)).isTrue();
+        assertThat(messageIdFilter.mightContain(unknownMessageId)).isFalse();
+    }
+
+    @Test
+    void findMessage_definiteMiss_returnsNotFound() throws InterruptedException {
+
+        long unknownMessageId = snowflakeNow(3);
+        messageIdFilter.add(snowflakeNow(4));
+        awaitDefiniteMiss(unknownMessageId);
+
+        client.get()
+                .uri(BASE_URL+"/"+unknownMessageId)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void saveMessage_filterDeletedFromRedis_stillSavesAndFinds() throws InterruptedException {
+
+        long firstMessageId = snowflakeNow(5);
+        long secondMessageId = snowflakeNow(6);
+        awaitDefiniteMiss(snowflakeNow(7));
+
+        saveMessage(firstMessageId);
+        // as after a redis restart, flush or eviction, while this node still has the filter config cached
+        redissonClient.getKeys().deleteByPattern("*papertrail:message-ids:*");
+        saveMessage(secondMessageId);
+
+        // the first messageID is gone from the filter, so it must not be answered as a definite miss
+        client.get()
+                .uri(BASE_URL+"/"+firstMessageId)
+                .exchange()
+                .expectStatus().isOk();
+        client.get()
+                .uri(BASE_URL+"/"+secondMessageId)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void sizeGauge_readsSizeStoredOnRefresh() throws InterruptedException {
+
+        long loggedMessageId = snowflakeNow(8);
+        awaitDefiniteMiss(snowflakeNow(9));
+        messageIdFilter.add(loggedMessageId);
+
+        messageIdFilter.refreshSize();
+        double size = meterRegistry.get("papertrail.message.bloom.size").gauge().value();
+        assertThat(size).isPositive();
+
+        // a day older than any filter is not looked up, and the database has to answer
+        assertThat(messageIdFilter.mightContain(1L << 22)).isTrue();
+        assertThat(meterRegistry.get("papertrail.message.bloom.size").gauge().value()).isEqualTo(size);
+    }
+
+    private void saveMessage(long messageId) {
+        MessageLogContentDTO body = new MessageLogContentDTO();
+        body.setMessageId(messageId);
+        body.setMessageContent("text");
+        body.setAuthorId(541812154121L);
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+    }
+}
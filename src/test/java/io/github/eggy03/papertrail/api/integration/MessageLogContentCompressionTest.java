@@ -0,0 +1,186 @@
+package io.github.eggy03.papertrail.api.integration;
+
+import io.github.eggy03.papertrail.api.cache.RedisCacheOperations;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
+import io.github.eggy03.papertrail.api.entity.MessageLogContent;
+import io.github.eggy03.papertrail.api.repository.MessageLogContentRepository;
+import io.github.eggy03.papertrail.api.service.MessageContentCompressionMigrationService;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.support.TransactionTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "papertrail.message-content.compression.enabled=true",
+                "papertrail.message-content.compression.threshold=32"
+        }
+)
+@AutoConfigureWebTestClient
+@ActiveProfiles("dev")
+@Slf4j
+class MessageLogContentCompressionTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private MessageLogContentRepository repository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private RedisCacheOperations cacheOperations;
+
+    @Autowired
+    private MessageContentCompressionMigrationService migrationService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    MessageLogContentDTO body;
+    private static final Long MESSAGE_ID = 124587145126L;
+    private static final String LONG_CONTENT = "Did you see the new update? I think the patch broke something, my game keeps crashing when I join the server.";
+    private static final String SHORT_CONTENT = "text";
+    private static final Long AUTHOR_ID = 541812154121L;
+
+    private static final String BASE_URL = "/api/v1/content/message";
+
+    private static RedisServer redisServer;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisServer = RedisServer.newRedisServer().build();
+        redisServer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @BeforeEach
+    void loadEntities(){
+        body = new MessageLogContentDTO();
+        body.setMessageId(MESSAGE_ID);
+        body.setMessageContent(LONG_CONTENT);
+        body.setAuthorId(AUTHOR_ID);
+    }
+
+    @BeforeEach
+    void clearState() {
+        repository.deleteAll();
+        Objects.requireNonNull(cacheManager.getCache("messageContent")).clear();
+    }
+
+    @Test
+    void saveMessage_longContent_storedCompressed() {
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        MessageLogContent stored = repository.findById(MESSAGE_ID).orElseThrow();
+        assertThat(stored.getPlainContent()).isNull();
+        assertThat(stored.getCompressedContent()).isNotNull();
+        assertThat(stored.getMessageContent()).isEqualTo(LONG_CONTENT);
+
+        Objects.requireNonNull(cacheManager.getCache("messageContent")).evict(MESSAGE_ID);
+
+        client.get()
+                .uri(BASE_URL+"/"+MESSAGE_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(MessageLogContentDTO.class)
+                .value(response -> assertThat(response.getMessageContent()).isEqualTo(LONG_CONTENT));
+
+        assertThat(cacheOperations.get("messageContent", MESSAGE_ID, MessageLogContentDTO.class)).isEqualTo(body);
+    }
+
+    @Test
+    void saveMessage_shortContent_storedPlain() {
+
+        body.setMessageContent(SHORT_CONTENT);
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        MessageLogContent stored = repository.findById(MESSAGE_ID).orElseThrow();
+        assertThat(stored.getPlainContent()).isEqualTo(SHORT_CONTENT);
+        assertThat(stored.getCompressedContent()).isNull();
+    }
+
+    @Test
+    void updateMessage_switchesBetweenPlainAndCompressed() {
+
+        body.setMessageContent(SHORT_CONTENT);
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        body.setMessageContent(LONG_CONTENT);
+
+        client.put()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk();
+
+        MessageLogContent stored = repository.findById(MESSAGE_ID).orElseThrow();
+        assertThat(stored.getPlainContent()).isNull();
+        assertThat(stored.getMessageContent()).isEqualTo(LONG_CONTENT);
+    }
+
+    @Test
+    void compressExistingMessages_compressesPlainRows() {
+
+        // a row logged before compression was enabled
+        transactionTemplate.executeWithoutResult(status -> entityManager.createNativeQuery("""
+                        INSERT INTO message_log_content_table (message_id, message_content, author_id, created_at)
+                        VALUES (:messageId, :messageContent, :authorId, :createdAt)
+                        """)
+                .setParameter("messageId", MESSAGE_ID)
+                .setParameter("messageContent", LONG_CONTENT)
+                .setParameter("authorId", AUTHOR_ID)
+                .setParameter("createdAt", OffsetDateTime.now())
+                .executeUpdate());
+
+        assertThat(migrationService.compressExistingMessages()).isEqualTo(1);
+        assertThat(migrationService.compressExistingMessages()).isZero();
+
+        MessageLogContent stored = repository.findById(MESSAGE_ID).orElseThrow();
+        assertThat(stored.getPlainContent()).isNull();
+        assertThat(stored.getMessageContent()).isEqualTo(LONG_CONTENT);
+    }
+}
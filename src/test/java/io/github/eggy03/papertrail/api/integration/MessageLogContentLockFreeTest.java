@@ -0,0 +1,217 @@
+package io.github.eggy03.papertrail.api.integration;
+
+import io.github.eggy03.papertrail.api.cache.RedisCacheOperations;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
+import io.github.eggy03.papertrail.api.repository.MessageLogContentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "papertrail.message-content.lock-free=true"
+)
+@AutoConfigureWebTestClient
+@ActiveProfiles("dev")
+@Slf4j
+class MessageLogContentLockFreeTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private MessageLogContentRepository repository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private RedisCacheOperations cacheOperations;
+
+    MessageLogContentDTO body;
+    private static final Long MESSAGE_ID = 124587145126L;
+    private static final String MESSAGE_CONTENT = "text";
+    private static final Long AUTHOR_ID = 541812154121L;
+
+    private static final String BASE_URL = "/api/v1/content/message";
+
+    private static RedisServer redisServer;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisServer = RedisServer.newRedisServer().build();
+        redisServer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @BeforeEach
+    void loadEntities(){
+        body = new MessageLogContentDTO();
+        body.setMessageId(MESSAGE_ID);
+        body.setMessageContent(MESSAGE_CONTENT);
+        body.setAuthorId(AUTHOR_ID);
+    }
+
+    @BeforeEach
+    void clearState() {
+        repository.deleteAll();
+        Objects.requireNonNull(cacheManager.getCache("messageContent")).clear();
+    }
+
+    @Test
+    void saveMessage_exists_throwsException() {
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    void findMessage_cacheMiss_fillsCache() {
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        Objects.requireNonNull(cacheManager.getCache("messageContent")).evict(MESSAGE_ID);
+
+        client.get()
+                .uri(BASE_URL+"/"+MESSAGE_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(MessageLogContentDTO.class)
+                .value(response -> {
+                    assertThat(response).isNotNull();
+                    assertThat(response.getMessageContent()).isEqualTo(MESSAGE_CONTENT);
+                    assertThat(response.getAuthorId()).isEqualTo(AUTHOR_ID);
+                });
+
+        assertThat(cacheOperations.get("messageContent", MESSAGE_ID, MessageLogContentDTO.class)).isEqualTo(body);
+    }
+
+    @Test
+    void updateMessage_success() {
+        String updatedContent = "updated text";
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        body.setMessageContent(updatedContent);
+
+        client.put()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk();
+
+        client.get()
+                .uri(BASE_URL+"/"+MESSAGE_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(MessageLogContentDTO.class)
+                .value(response -> {
+                    assertThat(response).isNotNull();
+                    assertThat(response.getMessageContent()).isEqualTo(updatedContent);
+                });
+
+        assertThat(repository.findById(MESSAGE_ID)).get()
+                .extracting(messageLogContent -> messageLogContent.getMessageContent())
+                .isEqualTo(updatedContent);
+    }
+
+    @Test
+    void updateMessage_notFound_throwsException() {
+
+        client.put()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isEqualTo(404);
+    }
+
+    @Test
+    void deleteMessage_success() {
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        client.delete()
+                .uri(BASE_URL+"/"+MESSAGE_ID)
+                .exchange()
+                .expectStatus().isNoContent();
+
+        client.get()
+                .uri(BASE_URL+"/"+MESSAGE_ID)
+                .exchange()
+                .expectStatus().isEqualTo(404);
+
+        client.delete()
+                .uri(BASE_URL+"/"+MESSAGE_ID)
+                .exchange()
+                .expectStatus().isEqualTo(404);
+    }
+
+    @Test
+    void cacheFill_afterConcurrentWrite_isRejected() {
+        MessageLogContentDTO staleRead = new MessageLogContentDTO();
+        staleRead.setMessageId(MESSAGE_ID);
+        staleRead.setMessageContent("stale text");
+        staleRead.setAuthorId(AUTHOR_ID);
+
+        String lease = cacheOperations.acquireLease("messageContent", MESSAGE_ID);
+        assertThat(lease).isNotNull();
+        assertThat(cacheOperations.acquireLease("messageContent", MESSAGE_ID)).isNull();
+
+        // a write that commits while the read is in flight revokes the lease
+        cacheOperations.revokeLeaseAndPut("messageContent", MESSAGE_ID, body);
+
+        assertThat(cacheOperations.putIfLeased("messageContent", MESSAGE_ID, staleRead, lease)).isFalse();
+        assertThat(cacheOperations.get("messageContent", MESSAGE_ID, MessageLogContentDTO.class)).isEqualTo(body);
+    }
+
+    @Test
+    void updateCachePut_afterConcurrentDelete_isRejected() {
+        // an update that committed before the delete, but only reaches the cache after the delete's eviction
+        cacheOperations.evictDeleted("messageContent", List.of(MESSAGE_ID));
+
+        assertThat(cacheOperations.revokeLeaseAndPut("messageContent", MESSAGE_ID, body)).isFalse();
+        assertThat(cacheOperations.get("messageContent", MESSAGE_ID, MessageLogContentDTO.class)).isNull();
+    }
+}
@@ -1,5 +1,8 @@
 package io.github.eggy03.papertrail.api.integration;
 
+import io.github.eggy03.papertrail.api.dto.MessageIdBatchDTO;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentBatchDTO;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentBatchResultDTO;
 import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
 import io.github.eggy03.papertrail.api.repository.MessageLogContentRepository;
 import lombok.extern.slf4j.Slf4j;
@@ -11,11 +14,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpMethod;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import redis.embedded.RedisServer;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Objects;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -291,4 +296,267 @@ class MessageLogContentTest {
 
     }
 
+    @Test
+    void deleteMessages_success() {
+        Long secondMessageId = MESSAGE_ID + 1;
+        Long unloggedMessageId = MESSAGE_ID + 2;
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        body.setMessageId(secondMessageId);
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        MessageIdBatchDTO batch = new MessageIdBatchDTO();
+        batch.setMessageIds(List.of(MESSAGE_ID, secondMessageId, unloggedMessageId));
+
+        client.method(HttpMethod.DELETE)
+                .uri(BASE_URL + "/batch")
+                .bodyValue(batch)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(MessageLogContentDTO.class)
+                .value(response -> {
+                    assertThat(response).hasSize(2);
+                    assertThat(response).extracting(MessageLogContentDTO::getMessageId)
+                            .containsExactlyInAnyOrder(MESSAGE_ID, secondMessageId);
+                    assertThat(response).allSatisfy(message -> {
+                        assertThat(message.getMessageContent()).isEqualTo(MESSAGE_CONTENT);
+                        assertThat(message.getAuthorId()).isEqualTo(AUTHOR_ID);
+                    });
+                });
+
+        client.get()
+                .uri(BASE_URL+"/"+MESSAGE_ID)
+                .exchange()
+                .expectStatus().isEqualTo(404);
+
+        client.get()
+                .uri(BASE_URL+"/"+secondMessageId)
+                .exchange()
+                .expectStatus().isEqualTo(404);
+    }
+
+    @Test
+    void deleteMessages_noneLogged_returnsEmpty() {
+        MessageIdBatchDTO batch = new MessageIdBatchDTO();
+        batch.setMessageIds(List.of(MESSAGE_ID));
+
+        client.method(HttpMethod.DELETE)
+                .uri(BASE_URL + "/batch")
+                .bodyValue(batch)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(MessageLogContentDTO.class)
+                .hasSize(0);
+    }
+
+    @Test
+    void deleteMessages_malformed_throwsException() {
+        MessageIdBatchDTO batch = new MessageIdBatchDTO();
+        batch.setMessageIds(List.of());
+
+        client.method(HttpMethod.DELETE)
+                .uri(BASE_URL + "/batch")
+                .bodyValue(batch)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void saveMessages_success_reportsConflicts() {
+        Long secondMessageId = MESSAGE_ID + 1;
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        MessageLogContentDTO secondMessage = new MessageLogContentDTO();
+        secondMessage.setMessageId(secondMessageId);
+        secondMessage.setMessageContent(MESSAGE_CONTENT);
+        secondMessage.setAuthorId(AUTHOR_ID);
+
+        MessageLogContentBatchDTO batch = new MessageLogContentBatchDTO();
+        batch.setMessages(List.of(body, secondMessage));
+
+        client.post()
+                .uri(BASE_URL + "/batch")
+                .bodyValue(batch)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(MessageLogContentBatchResultDTO.class)
+                .value(response -> {
+                    assertThat(response).isNotNull();
+                    assertThat(response.getSaved()).extracting(MessageLogContentDTO::getMessageId).containsExactly(secondMessageId);
+                    assertThat(response.getConflicts()).containsExactly(MESSAGE_ID);
+                });
+
+        client.get()
+                .uri(BASE_URL+"/"+secondMessageId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(MessageLogContentDTO.class)
+                .value(response -> {
+                    assertThat(response).isNotNull();
+                    assertThat(response.getMessageContent()).isEqualTo(MESSAGE_CONTENT);
+                    assertThat(response.getAuthorId()).isEqualTo(AUTHOR_ID);
+                });
+
+        assertThat(repository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void saveMessages_malformed_throwsException() {
+        body.setAuthorId(null);
+
+        MessageLogContentBatchDTO batch = new MessageLogContentBatchDTO();
+        batch.setMessages(List.of(body));
+
+        client.post()
+                .uri(BASE_URL + "/batch")
+                .bodyValue(batch)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        batch.setMessages(List.of());
+
+        client.post()
+                .uri(BASE_URL + "/batch")
+                .bodyValue(batch)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void findMessages_success() {
+        Long secondMessageId = MESSAGE_ID + 1;
+        Long unloggedMessageId = MESSAGE_ID + 2;
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        body.setMessageId(secondMessageId);
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        // one message served from the cache, the other one from the database
+        Objects.requireNonNull(cacheManager.getCache("messageContent")).evict(secondMessageId);
+
+        MessageIdBatchDTO batch = new MessageIdBatchDTO();
+        batch.setMessageIds(List.of(secondMessageId, unloggedMessageId, MESSAGE_ID));
+
+        client.post()
+                .uri(BASE_URL + "/batch/fetch")
+                .bodyValue(batch)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(MessageLogContentDTO.class)
+                .value(response -> {
+                    assertThat(response).extracting(MessageLogContentDTO::getMessageId)
+                            .containsExactly(secondMessageId, MESSAGE_ID);
+                    assertThat(response).allSatisfy(message -> {
+                        assertThat(message.getMessageContent()).isEqualTo(MESSAGE_CONTENT);
+                        assertThat(message.getAuthorId()).isEqualTo(AUTHOR_ID);
+                    });
+                });
+
+        assertThat(Objects.requireNonNull(cacheManager.getCache("messageContent")).get(secondMessageId)).isNotNull();
+    }
+
+    @Test
+    void findMessages_malformed_throwsException() {
+        MessageIdBatchDTO batch = new MessageIdBatchDTO();
+
+        client.post()
+                .uri(BASE_URL + "/batch/fetch")
+                .bodyValue(batch)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void findMessagesInWindow_pagesBySnowflake() {
+        Long secondMessageId = MESSAGE_ID + 1;
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        body.setMessageId(secondMessageId);
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        // both IDs carry a timestamp a few seconds into 2015-01-01, the first day of the discord epoch
+        String window = BASE_URL + "/window?from=2015-01-01T00:00:00Z&to=2015-01-02T00:00:00Z&limit=1";
+
+        client.get()
+                .uri(window)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(MessageLogContentDTO.class)
+                .value(response -> assertThat(response).extracting(MessageLogContentDTO::getMessageId).containsExactly(MESSAGE_ID));
+
+        client.get()
+                .uri(window + "&afterMessageId=" + MESSAGE_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(MessageLogContentDTO.class)
+                .value(response -> assertThat(response).extracting(MessageLogContentDTO::getMessageId).containsExactly(secondMessageId));
+
+        client.get()
+                .uri(window + "&afterMessageId=" + secondMessageId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(MessageLogContentDTO.class)
+                .hasSize(0);
+
+        client.get()
+                .uri(BASE_URL + "/window?from=2015-01-02T00:00:00Z&to=2015-01-03T00:00:00Z")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(MessageLogContentDTO.class)
+                .hasSize(0);
+    }
+
+    @Test
+    void findMessagesInWindow_malformed_throwsException() {
+
+        client.get()
+                .uri(BASE_URL + "/window?from=2015-01-01T00:00:00Z&to=2015-01-02T00:00:00Z&limit=0")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        client.get()
+                .uri(BASE_URL + "/window?from=yesterday&to=2015-01-02T00:00:00Z")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        client.get()
+                .uri(BASE_URL + "/window?to=2015-01-02T00:00:00Z")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
 }
@@ -1,5 +1,6 @@
 package io.github.eggy03.papertrail.api.integration;
 
+import io.github.eggy03.papertrail.api.cache.RegistrationSnapshot;
 import io.github.eggy03.papertrail.api.dto.MessageLogRegistrationDTO;
 import io.github.eggy03.papertrail.api.repository.MessageLogRegistrationRepository;
 import lombok.extern.slf4j.Slf4j;
@@ -21,7 +22,7 @@ import java.util.Objects;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "papertrail.registration.snapshot.enabled=true")
 @AutoConfigureWebTestClient
 @ActiveProfiles("dev")
 @Slf4j
@@ -35,6 +36,9 @@ class MessageLogRegistrationTest {
     @Autowired
     private CacheManager cacheManager;
 
+    @Autowired
+    private RegistrationSnapshot snapshot;
+
     MessageLogRegistrationDTO body;
     private static final Long GUILD_ID = 124587145126L;
     private static final Long CHANNEL_ID = 541812154121L;
@@ -67,6 +71,7 @@ class MessageLogRegistrationTest {
     void clearState() {
         repository.deleteAll();
         Objects.requireNonNull(cacheManager.getCache("messageLog")).clear();
+        snapshot.reloadAll();
     }
 
     @Test
@@ -101,6 +106,24 @@ class MessageLogRegistrationTest {
                 .expectStatus().isEqualTo(HttpStatusCode.valueOf(409));
     }
 
+    @Test
+    void registerGuild_channelTaken_isNotReportedAsRegistered() {
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        // another guild logging to the same channel violates the channel constraint, not the guild's
+        body.setGuildId(GUILD_ID + 1);
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().is5xxServerError();
+    }
+
     @Test
     void registerGuild_malformed_throwsException() {
 
@@ -154,6 +177,44 @@ class MessageLogRegistrationTest {
 
     }
 
+    @Test
+    void findByGuild_servedFromSnapshot() {
+
+        client.get()
+                .uri(BASE_URL+"/"+GUILD_ID)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("GuildNotFoundException");
+
+        // answered by the registration snapshot, the cache is never consulted
+        assertThat(Objects.requireNonNull(cacheManager.getCache("messageLog")).get(GUILD_ID)).isNull();
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        // removed behind the service's back, the snapshot keeps the registration until it is reloaded
+        repository.deleteAll();
+        Objects.requireNonNull(cacheManager.getCache("messageLog")).clear();
+
+        client.get()
+                .uri(BASE_URL+"/"+GUILD_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(MessageLogRegistrationDTO.class)
+                .value(dto -> assertThat(dto.getChannelId()).isEqualTo(CHANNEL_ID));
+
+        snapshot.reloadAll();
+
+        client.get()
+                .uri(BASE_URL+"/"+GUILD_ID)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
     @Test
     void findByGuild_malformed_throwsException() {
 
@@ -198,6 +259,32 @@ class MessageLogRegistrationTest {
                 .value(dto -> assertThat(dto.getChannelId()).isEqualTo(updatedDto.getChannelId()));
     }
 
+    @Test
+    void updateGuild_staleCacheEntry_stillUpdates() {
+
+        MessageLogRegistrationDTO updatedDto = new MessageLogRegistrationDTO();
+        updatedDto.setGuildId(body.getGuildId());
+        updatedDto.setChannelId(456L);
+
+        client.post()
+                .uri(BASE_URL)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated();
+
+        // a cache entry that already holds the update must not stand in for the stored row
+        Objects.requireNonNull(cacheManager.getCache("messageLog")).put(GUILD_ID, updatedDto);
+
+        client.put()
+                .uri(BASE_URL)
+                .bodyValue(updatedDto)
+                .exchange()
+                .expectStatus().isOk();
+
+        assertThat(repository.findById(GUILD_ID)).get()
+                .extracting("channelId").isEqualTo(updatedDto.getChannelId());
+    }
+
     @Test
     void updateGuild_notExists_throwsException() {
 
@@ -0,0 +1,84 @@
+package io.github.eggy03.papertrail.api.unit;
+
+import io.github.eggy03.papertrail.api.util.AdaptiveConcurrencyLimit;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = Duration.ofMillis(5).toNanos();
+    private static final long SLOW = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void tryAcquire_limitReached_rejects() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, Duration.ofMillis(100), Duration.ofMillis(100));
+
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isFalse();
+        assertThat(limit.inFlight()).isEqualTo(2);
+
+        limit.release(FAST, false);
+        assertThat(limit.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void release_fastWhileSaturated_growsLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 10, Duration.ofMillis(100), Duration.ofMillis(100));
+
+        // each round fills the limit, so the limit counts as in use
+        for (int round = 0; round < 20; round++) {
+            int acquired = 0;
+            while (limit.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limit.release(FAST, false);
+            }
+        }
+
+        assertThat(limit.limit()).isGreaterThan(4).isLessThanOrEqualTo(10);
+        assertThat(limit.inFlight()).isZero();
+    }
+
+    @Test
+    void release_fastWhileIdle_keepsLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100, Duration.ofMillis(100), Duration.ofMillis(100));
+
+        for (int i = 0; i < 1000; i++) {
+            limit.tryAcquire();
+            limit.release(FAST, false);
+        }
+
+        assertThat(limit.limit()).isEqualTo(10);
+    }
+
+    @Test
+    void release_slowOrFailed_shrinksLimitOncePerInterval() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 100, Duration.ofMillis(100), Duration.ofHours(1));
+
+        limit.tryAcquire();
+        limit.release(SLOW, false);
+        assertThat(limit.limit()).isEqualTo(9);
+
+        // within the same decrease interval, further slow or failed requests belong to the same overload
+        limit.tryAcquire();
+        limit.release(FAST, true);
+        assertThat(limit.limit()).isEqualTo(9);
+    }
+
+    @Test
+    void release_slow_neverShrinksBelowMinimum() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(3, 2, 100, Duration.ofMillis(100), Duration.ZERO);
+
+        for (int i = 0; i < 10; i++) {
+            limit.tryAcquire();
+            limit.release(SLOW, true);
+        }
+
+        assertThat(limit.limit()).isEqualTo(2);
+    }
+}
@@ -1,5 +1,8 @@
 package io.github.eggy03.papertrail.api.unit;
 
+import io.github.eggy03.papertrail.api.cache.RedisCacheOperations;
+import io.github.eggy03.papertrail.api.cache.RegistrationSnapshot;
+import io.github.eggy03.papertrail.api.cache.RegistrationSnapshot.Registration;
 import io.github.eggy03.papertrail.api.dto.AuditLogRegistrationDTO;
 import io.github.eggy03.papertrail.api.entity.AuditLogRegistration;
 import io.github.eggy03.papertrail.api.exceptions.GuildAlreadyRegisteredException;
@@ -7,20 +10,32 @@ import io.github.eggy03.papertrail.api.exceptions.GuildNotFoundException;
 import io.github.eggy03.papertrail.api.mapper.AuditLogRegistrationMapper;
 import io.github.eggy03.papertrail.api.repository.AuditLogRegistrationRepository;
 import io.github.eggy03.papertrail.api.service.AuditLogRegistrationService;
+import io.github.eggy03.papertrail.api.util.DiscordSnowflake;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
@@ -34,6 +49,18 @@ class AuditLogRegistrationServiceTest {
     @Mock
     private AuditLogRegistrationMapper mapper;
 
+    @Mock
+    private RegistrationSnapshot snapshot;
+
+    @Mock
+    private RedisCacheOperations cacheOperations;
+
+    @Mock
+    private ObjectProvider<AuditLogRegistrationService> selfProvider;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private AuditLogRegistrationService service;
 
@@ -56,89 +83,210 @@ class AuditLogRegistrationServiceTest {
 
     @Test
     void registerGuild_success() {
-        when(repository.existsById(dto.getGuildId())).thenReturn(false);
+        when(selfProvider.getIfAvailable()).thenReturn(service);
         when(mapper.toEntity(dto)).thenReturn(entity);
 
         AuditLogRegistrationDTO result = service.registerGuild(dto);
 
         assertThat(result).isEqualTo(dto);
-        verify(repository).saveAndFlush(entity);
+        verify(repository).insert(entity);
+        verify(snapshot).recordRegistration(Registration.AUDIT_LOG, GUILD_ID, CHANNEL_ID);
         verifyNoMoreInteractions(repository, mapper);
     }
 
-    @Test void registerGuild_exists_throwsException() {
-        when(repository.existsById(dto.getGuildId())).thenReturn(true);
+    @Test
+    void registerGuild_exists_throwsException() {
+        when(selfProvider.getIfAvailable()).thenReturn(service);
+        when(mapper.toEntity(dto)).thenReturn(entity);
+        doThrow(new DataIntegrityViolationException("duplicate key")).when(repository).insert(entity);
+        when(repository.existsById(GUILD_ID)).thenReturn(true);
 
         assertThrows(GuildAlreadyRegisteredException.class, ()-> service.registerGuild(dto));
 
-        verify(mapper, never()).toEntity(any());
-        verify(repository, never()).saveAndFlush(any());
+        verify(snapshot, never()).recordRegistration(any(), anyLong(), anyLong());
         verifyNoMoreInteractions(repository, mapper);
     }
 
     @Test
-    void findByGuild_success() {
+    void registerGuild_channelTaken_rethrowsViolation() {
+        when(selfProvider.getIfAvailable()).thenReturn(service);
+        when(mapper.toEntity(dto)).thenReturn(entity);
+        doThrow(new DataIntegrityViolationException("duplicate key")).when(repository).insert(entity);
+        when(repository.existsById(GUILD_ID)).thenReturn(false);
+
+        assertThrows(DataIntegrityViolationException.class, ()-> service.registerGuild(dto));
+
+        verify(snapshot, never()).recordRegistration(any(), anyLong(), anyLong());
+        verifyNoMoreInteractions(repository, mapper);
+    }
+
+    @Test
+    void findByGuild_snapshotLoaded_servesFromSnapshot() {
+        when(snapshot.isLoaded(Registration.AUDIT_LOG)).thenReturn(true);
+        when(snapshot.findChannel(Registration.AUDIT_LOG, GUILD_ID)).thenReturn(CHANNEL_ID);
+
+        Optional<AuditLogRegistrationDTO> result = service.findByGuild(GUILD_ID);
+
+        assertThat(result).contains(dto);
+        verifyNoInteractions(repository, mapper, selfProvider);
+    }
+
+    @Test
+    void findByGuild_snapshotLoaded_notRegistered_returnsEmpty() {
+        when(snapshot.isLoaded(Registration.AUDIT_LOG)).thenReturn(true);
+        when(snapshot.findChannel(Registration.AUDIT_LOG, GUILD_ID)).thenReturn(null);
+
+        assertThat(service.findByGuild(GUILD_ID)).isEmpty();
+
+        verifyNoInteractions(repository, mapper, selfProvider);
+    }
+
+    @Test
+    void findByGuild_snapshotNotLoaded_loadsGuild() {
+        when(snapshot.isLoaded(Registration.AUDIT_LOG)).thenReturn(false);
+        when(selfProvider.getIfAvailable()).thenReturn(service);
+        when(repository.findById(GUILD_ID)).thenReturn(Optional.of(entity));
+        when(mapper.toDTO(entity)).thenReturn(dto);
+
+        assertThat(service.findByGuild(GUILD_ID)).contains(dto);
+
+        verify(snapshot, never()).findChannel(any(), anyLong());
+    }
+
+    @Test
+    void loadByGuild_success() {
         when(repository.findById(dto.getGuildId())).thenReturn(Optional.of(entity));
         when(mapper.toDTO(entity)).thenReturn(dto);
 
-        AuditLogRegistrationDTO result = service.findByGuild(dto.getGuildId());
+        Optional<AuditLogRegistrationDTO> result = service.loadByGuild(dto.getGuildId());
 
-        assertThat(result).isEqualTo(dto);
+        assertThat(result).contains(dto);
         verifyNoMoreInteractions(repository, mapper);
     }
 
     @Test
-    void findByGuild_notFound_throwsException() {
+    void loadByGuild_notFound_returnsEmpty() {
         Long guildId = dto.getGuildId();
         when(repository.findById(guildId)).thenReturn(Optional.empty());
 
-        assertThrows(GuildNotFoundException.class, ()-> service.findByGuild(guildId));
+        assertThat(service.loadByGuild(guildId)).isEmpty();
 
         verify(mapper, never()).toDTO(any());
         verifyNoMoreInteractions(repository, mapper);
     }
 
+    @Test
+    void findByGuilds_snapshotLoaded_servesFromSnapshot() {
+        Long unregisteredGuildId = GUILD_ID + 1;
+        when(snapshot.isLoaded(Registration.AUDIT_LOG)).thenReturn(true);
+        when(snapshot.findChannel(Registration.AUDIT_LOG, GUILD_ID)).thenReturn(CHANNEL_ID);
+        when(snapshot.findChannel(Registration.AUDIT_LOG, unregisteredGuildId)).thenReturn(null);
+
+        List<AuditLogRegistrationDTO> result = service.findByGuilds(List.of(GUILD_ID, unregisteredGuildId, GUILD_ID));
+
+        assertThat(result).containsExactly(dto);
+        verifyNoInteractions(repository, mapper, cacheOperations);
+    }
+
+    @Test
+    void findByGuilds_snapshotNotLoaded_loadsCacheMisses() {
+        Long cachedGuildId = GUILD_ID + 1;
+        Long unregisteredGuildId = GUILD_ID + 2;
+        AuditLogRegistrationDTO cached = new AuditLogRegistrationDTO();
+        cached.setGuildId(cachedGuildId);
+        cached.setChannelId(CHANNEL_ID + 1);
+
+        when(snapshot.isLoaded(Registration.AUDIT_LOG)).thenReturn(false);
+        when(selfProvider.getIfAvailable()).thenReturn(service);
+        when(cacheOperations.getAll("auditLog", List.of(GUILD_ID, cachedGuildId, unregisteredGuildId), AuditLogRegistrationDTO.class))
+                .thenReturn(Map.of(cachedGuildId, cached));
+        when(repository.findAllById(List.of(GUILD_ID, unregisteredGuildId))).thenReturn(List.of(entity));
+        when(mapper.toDTO(entity)).thenReturn(dto);
+
+        List<AuditLogRegistrationDTO> result = service.findByGuilds(List.of(GUILD_ID, cachedGuildId, unregisteredGuildId));
+
+        assertThat(result).containsExactly(dto, cached);
+        verify(cacheOperations).putAll("auditLog", Map.of(GUILD_ID, dto));
+        verifyNoMoreInteractions(repository, mapper);
+    }
+
+    @Test
+    void findByShard_snapshotLoaded_servesFromSnapshot() {
+        when(snapshot.isLoaded(Registration.AUDIT_LOG)).thenReturn(true);
+        when(snapshot.findChannels(eq(Registration.AUDIT_LOG), any())).thenReturn(Map.of(GUILD_ID, CHANNEL_ID));
+
+        assertThat(service.findByShard(0, 1)).containsExactly(dto);
+        verifyNoInteractions(repository, mapper);
+    }
+
+    @Test
+    void findByShard_snapshotNotLoaded_filtersTable() {
+        AuditLogRegistration otherShard = new AuditLogRegistration();
+        // one more step in the timestamp bits moves a guild to the next shard
+        otherShard.setGuildId(GUILD_ID + (1L << 22));
+        otherShard.setChannelId(CHANNEL_ID + 1);
+        int shardId = DiscordSnowflake.shardOf(GUILD_ID, 2);
+
+        when(snapshot.isLoaded(Registration.AUDIT_LOG)).thenReturn(false);
+        when(selfProvider.getIfAvailable()).thenReturn(service);
+        when(repository.findAll()).thenReturn(List.of(entity, otherShard));
+        when(mapper.toDTO(entity)).thenReturn(dto);
+
+        assertThat(service.findByShard(shardId, 2)).containsExactly(dto);
+        verifyNoMoreInteractions(mapper);
+    }
+
     @Test
     void updateGuild_success() {
-        when(repository.existsById(dto.getGuildId())).thenReturn(true);
-        when(mapper.toEntity(dto)).thenReturn(entity);
+        when(repository.updateChannel(GUILD_ID, CHANNEL_ID)).thenReturn(1);
 
         AuditLogRegistrationDTO result = service.updateGuild(dto);
 
         assertThat(result).isEqualTo(dto);
-        verify(repository).save(entity);
+        verify(snapshot).recordRegistration(Registration.AUDIT_LOG, GUILD_ID, CHANNEL_ID);
         verifyNoMoreInteractions(repository, mapper);
     }
 
+    @Test
+    void updateGuild_unchangedInDatabase_skipsWrite() {
+        when(repository.updateChannel(GUILD_ID, CHANNEL_ID)).thenReturn(0);
+        when(repository.existsById(GUILD_ID)).thenReturn(true);
+
+        AuditLogRegistrationDTO result = service.updateGuild(dto);
+
+        assertThat(result).isEqualTo(dto);
+        assertThat(meterRegistry.get("papertrail.writes.suppressed").tag("entity", "audit_log").counter().count()).isEqualTo(1);
+        verifyNoInteractions(mapper, snapshot);
+    }
+
     @Test
     void updateGuild_notFound_throwsException() {
-        when(repository.existsById(dto.getGuildId())).thenReturn(false);
+        when(repository.updateChannel(GUILD_ID, CHANNEL_ID)).thenReturn(0);
+        when(repository.existsById(GUILD_ID)).thenReturn(false);
 
         assertThrows(GuildNotFoundException.class, ()-> service.updateGuild(dto));
 
-        verify(mapper, never()).toDTO(any());
-        verify(repository, never()).save(any());
+        verify(snapshot, never()).recordRegistration(any(), anyLong(), anyLong());
         verifyNoMoreInteractions(repository, mapper);
     }
 
     @Test
     void unregisterGuild_success() {
-        when(repository.findById(dto.getGuildId())).thenReturn(Optional.of(entity));
+        when(repository.deleteByGuildId(GUILD_ID)).thenReturn(1);
 
-        service.unregisterGuild(dto.getGuildId());
+        service.unregisterGuild(GUILD_ID);
 
-        verify(repository).delete(entity);
+        verify(snapshot).recordUnregistration(Registration.AUDIT_LOG, GUILD_ID);
         verifyNoMoreInteractions(repository, mapper);
     }
 
     @Test
     void unregisterGuild_notFound_throwsException() {
-        Long guildId = dto.getGuildId();
-        when(repository.findById(guildId)).thenReturn(Optional.empty());
+        when(repository.deleteByGuildId(GUILD_ID)).thenReturn(0);
 
-        assertThrows(GuildNotFoundException.class, ()-> service.unregisterGuild(guildId));
+        assertThrows(GuildNotFoundException.class, ()-> service.unregisterGuild(GUILD_ID));
 
-        verify(repository, never()).delete(any());
+        verify(snapshot, never()).recordUnregistration(any(), anyLong());
         verifyNoMoreInteractions(repository, mapper);
     }
 }
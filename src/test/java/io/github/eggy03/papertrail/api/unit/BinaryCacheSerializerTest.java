@@ -0,0 +1,112 @@
+package io.github.eggy03.papertrail.api.unit;
+
+import io.github.eggy03.papertrail.api.cache.codec.AuditLogRegistrationSerializer;
+import io.github.eggy03.papertrail.api.cache.codec.GuildLoggingConfigSerializer;
+import io.github.eggy03.papertrail.api.cache.codec.MessageLogContentSerializer;
+import io.github.eggy03.papertrail.api.cache.codec.MessageLogRegistrationSerializer;
+import io.github.eggy03.papertrail.api.compression.MessageContentCompressor;
+import io.github.eggy03.papertrail.api.dto.AuditLogRegistrationDTO;
+import io.github.eggy03.papertrail.api.dto.GuildLoggingConfigDTO;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
+import io.github.eggy03.papertrail.api.dto.MessageLogRegistrationDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinaryCacheSerializerTest {
+
+    private final MessageLogContentSerializer contentSerializer = new MessageLogContentSerializer(new MessageContentCompressor(false, 0));
+
+    @Test
+    void messageContent_roundTrip() {
+
+        MessageLogContentDTO dto = new MessageLogContentDTO();
+        dto.setMessageId(1234567890123456789L);
+        dto.setAuthorId(987654321098765432L);
+        dto.setMessageContent("héllo wörld 😀");
+
+        byte[] bytes = contentSerializer.serialize(dto);
+
+        assertThat(contentSerializer.deserialize(bytes)).isEqualTo(dto);
+        assertThat(bytes).hasSizeLessThan(new GenericJackson2JsonRedisSerializer().serialize(dto).length);
+    }
+
+    @Test
+    void messageContent_nullContent_roundTrip() {
+
+        MessageLogContentDTO dto = new MessageLogContentDTO();
+        dto.setMessageId(1L);
+        dto.setAuthorId(2L);
+
+        assertThat(contentSerializer.deserialize(contentSerializer.serialize(dto))).isEqualTo(dto);
+    }
+
+    @Test
+    void registrations_roundTrip() {
+
+        AuditLogRegistrationDTO auditLog = new AuditLogRegistrationDTO();
+        auditLog.setGuildId(1L);
+        auditLog.setChannelId(2L);
+        AuditLogRegistrationSerializer auditLogSerializer = new AuditLogRegistrationSerializer();
+
+        MessageLogRegistrationDTO messageLog = new MessageLogRegistrationDTO();
+        messageLog.setGuildId(3L);
+        messageLog.setChannelId(4L);
+        MessageLogRegistrationSerializer messageLogSerializer = new MessageLogRegistrationSerializer();
+
+        assertThat(auditLogSerializer.serialize(auditLog)).hasSize(17);
+        assertThat(auditLogSerializer.deserialize(auditLogSerializer.serialize(auditLog))).isEqualTo(auditLog);
+        assertThat(messageLogSerializer.deserialize(messageLogSerializer.serialize(messageLog))).isEqualTo(messageLog);
+    }
+
+    @Test
+    void guildLoggingConfig_roundTrip_keepsUnsetChannels() {
+
+        GuildLoggingConfigSerializer serializer = new GuildLoggingConfigSerializer();
+        GuildLoggingConfigDTO both = new GuildLoggingConfigDTO(1L, 2L, 3L);
+        GuildLoggingConfigDTO messageLogOnly = new GuildLoggingConfigDTO(1L, null, 3L);
+
+        assertThat(serializer.serialize(both)).hasSize(26);
+        assertThat(serializer.deserialize(serializer.serialize(both))).isEqualTo(both);
+        assertThat(serializer.deserialize(serializer.serialize(messageLogOnly))).isEqualTo(messageLogOnly);
+    }
+
+    @Test
+    void deserialize_legacyJson_isMiss() {
+
+        MessageLogContentDTO dto = new MessageLogContentDTO();
+        dto.setMessageId(1L);
+        dto.setAuthorId(2L);
+        dto.setMessageContent("legacy");
+
+        assertThat(contentSerializer.deserialize(new GenericJackson2JsonRedisSerializer().serialize(dto))).isNull();
+    }
+
+    @Test
+    void deserialize_truncated_throws() {
+
+        MessageLogContentDTO dto = new MessageLogContentDTO();
+        dto.setMessageId(1L);
+        dto.setAuthorId(2L);
+        dto.setMessageContent("truncated");
+
+        byte[] bytes = contentSerializer.serialize(dto);
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 3);
+
+        assertThrows(SerializationException.class, () -> contentSerializer.deserialize(truncated));
+    }
+
+    @Test
+    void serialize_missingId_throws() {
+
+        MessageLogContentDTO dto = new MessageLogContentDTO();
+        dto.setAuthorId(2L);
+
+        assertThrows(SerializationException.class, () -> contentSerializer.serialize(dto));
+    }
+}
@@ -0,0 +1,58 @@
+package io.github.eggy03.papertrail.api.unit;
+
+import io.github.eggy03.papertrail.api.util.CsvRecordReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvRecordReaderTest {
+
+    @Test
+    void readRecord_plainAndQuotedFields() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("""
+                a,b,c\r
+                1,"two, with \"\"quotes\"\"\",\"three
+                lines"
+
+                ,"",x
+                """));
+
+        assertThat(reader.readRecord()).containsExactly("a", "b", "c");
+        assertThat(reader.readRecord()).containsExactly("1", "two, with \"quotes\"", "three\nlines");
+        assertThat(reader.readRecord()).isEqualTo(Arrays.asList(null, "", "x"));
+        assertThat(reader.readRecord()).isNull();
+    }
+
+    @Test
+    void readRecord_lastLineWithoutNewline() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("1,2"));
+
+        assertThat(reader.readRecord()).containsExactly("1", "2");
+        assertThat(reader.readRecord()).isNull();
+    }
+
+    @Test
+    void readRecord_unterminatedQuote_throwsException() {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("1,\"open"));
+
+        assertThrows(EOFException.class, reader::readRecord);
+    }
+
+    @Test
+    void recordLine_countsLinesOfMultilineAndBlankRecords() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("a\n\"two\nlines\"\n\n\nb\n"));
+
+        reader.readRecord();
+        assertThat(reader.recordLine()).isEqualTo(1);
+        reader.readRecord();
+        assertThat(reader.recordLine()).isEqualTo(2);
+        reader.readRecord();
+        assertThat(reader.recordLine()).isEqualTo(6);
+    }
+}
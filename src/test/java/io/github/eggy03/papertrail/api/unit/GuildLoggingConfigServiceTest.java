@@ -0,0 +1,92 @@
+package io.github.eggy03.papertrail.api.unit;
+
+import io.github.eggy03.papertrail.api.cache.RegistrationSnapshot;
+import io.github.eggy03.papertrail.api.cache.RegistrationSnapshot.Registration;
+import io.github.eggy03.papertrail.api.dto.GuildLoggingConfigDTO;
+import io.github.eggy03.papertrail.api.repository.GuildLoggingConfigRepository;
+import io.github.eggy03.papertrail.api.service.GuildLoggingConfigService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GuildLoggingConfigServiceTest {
+
+    @Mock
+    private GuildLoggingConfigRepository repository;
+
+    @Mock
+    private RegistrationSnapshot snapshot;
+
+    @Mock
+    private ObjectProvider<GuildLoggingConfigService> selfProvider;
+
+    @InjectMocks
+    private GuildLoggingConfigService service;
+
+    private static final Long GUILD_ID = 124587145126L;
+    private static final Long AUDIT_LOG_CHANNEL_ID = 541812154121L;
+    private static final Long MESSAGE_LOG_CHANNEL_ID = 541812154122L;
+
+    @Test
+    void findByGuild_snapshotLoaded_servesFromSnapshot() {
+        when(snapshot.isLoaded(any())).thenReturn(true);
+        when(snapshot.findChannel(Registration.AUDIT_LOG, GUILD_ID)).thenReturn(AUDIT_LOG_CHANNEL_ID);
+        when(snapshot.findChannel(Registration.MESSAGE_LOG, GUILD_ID)).thenReturn(MESSAGE_LOG_CHANNEL_ID);
+
+        assertThat(service.findByGuild(GUILD_ID)).contains(new GuildLoggingConfigDTO(GUILD_ID, AUDIT_LOG_CHANNEL_ID, MESSAGE_LOG_CHANNEL_ID));
+
+        verifyNoInteractions(repository, selfProvider);
+    }
+
+    @Test
+    void findByGuild_snapshotLoaded_registeredForOne_leavesOtherChannelNull() {
+        when(snapshot.isLoaded(any())).thenReturn(true);
+        when(snapshot.findChannel(Registration.AUDIT_LOG, GUILD_ID)).thenReturn(null);
+        when(snapshot.findChannel(Registration.MESSAGE_LOG, GUILD_ID)).thenReturn(MESSAGE_LOG_CHANNEL_ID);
+
+        assertThat(service.findByGuild(GUILD_ID)).contains(new GuildLoggingConfigDTO(GUILD_ID, null, MESSAGE_LOG_CHANNEL_ID));
+    }
+
+    @Test
+    void findByGuild_snapshotLoaded_notRegistered_returnsEmpty() {
+        when(snapshot.isLoaded(any())).thenReturn(true);
+        when(snapshot.findChannel(any(), anyLong())).thenReturn(null);
+
+        assertThat(service.findByGuild(GUILD_ID)).isEmpty();
+
+        verifyNoInteractions(repository, selfProvider);
+    }
+
+    @Test
+    void findByGuild_snapshotNotLoaded_loadsGuild() {
+        GuildLoggingConfigDTO config = new GuildLoggingConfigDTO(GUILD_ID, AUDIT_LOG_CHANNEL_ID, null);
+        when(snapshot.isLoaded(Registration.AUDIT_LOG)).thenReturn(false);
+        when(selfProvider.getIfAvailable()).thenReturn(service);
+        when(repository.findByGuildId(GUILD_ID)).thenReturn(Optional.of(config));
+
+        assertThat(service.findByGuild(GUILD_ID)).contains(config);
+
+        verify(snapshot, never()).findChannel(any(), anyLong());
+    }
+
+    @Test
+    void loadByGuild_notFound_returnsEmpty() {
+        when(repository.findByGuildId(GUILD_ID)).thenReturn(Optional.empty());
+
+        assertThat(service.loadByGuild(GUILD_ID)).isEmpty();
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.eggy03.papertrail.api.unit;
+
+import io.github.eggy03.papertrail.api.lock.LocalMessageLockProvider;
+import io.github.eggy03.papertrail.api.lock.MessageLock;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LocalMessageLockProviderTest {
+
+    private final LocalMessageLockProvider provider = new LocalMessageLockProvider(64);
+
+    @Test
+    void getLock_sameMessage_excludesOtherThreads() throws InterruptedException {
+        MessageLock lock = provider.getLock(1L);
+        assertThat(lock.tryLock(0, 0, TimeUnit.MILLISECONDS)).isTrue();
+
+        assertThat(tryLockElsewhere(provider.getLock(1L))).isFalse();
+
+        lock.unlock();
+        assertThat(tryLockElsewhere(provider.getLock(1L))).isTrue();
+    }
+
+    @Test
+    void getMultiLock_failedStripe_releasesAcquiredStripes() throws InterruptedException {
+        long otherMessageId = LongStream.range(2, 1000)
+                // a stripe after the one of messageID 1, which is then taken first
+                .filter(messageId -> provider.stripeOf(messageId) > provider.stripeOf(1L))
+                .findFirst()
+                .orElseThrow();
+        MessageLock held = provider.getLock(otherMessageId);
+        assertThat(held.tryLock(0, 0, TimeUnit.MILLISECONDS)).isTrue();
+
+        // runs on another thread, as the stripes are reentrant
+        assertThat(tryLockElsewhere(provider.getMultiLock(List.of(1L, otherMessageId)))).isFalse();
+
+        // the stripe of the first message was taken and released again
+        assertThat(tryLockElsewhere(provider.getLock(1L))).isTrue();
+        held.unlock();
+    }
+
+    @Test
+    void getMultiLock_sharedStripe_locksIt() throws InterruptedException {
+        long sharingMessageId = LongStream.range(2, 100000)
+                .filter(messageId -> provider.stripeOf(messageId) == provider.stripeOf(1L))
+                .findFirst()
+                .orElseThrow();
+        MessageLock lock = provider.getMultiLock(List.of(1L, sharingMessageId));
+
+        assertThat(lock.tryLock(0, 0, TimeUnit.MILLISECONDS)).isTrue();
+        lock.unlock();
+
+        // a stripe shared by two messages of the batch is held once, so one unlock frees it
+        assertThat(tryLockElsewhere(provider.getLock(1L))).isTrue();
+    }
+
+    @Test
+    void unlock_notHeld_throwsException() {
+        assertThrows(IllegalMonitorStateException.class, () -> provider.getLock(1L).unlock());
+    }
+
+    @Test
+    void stripeOf_consecutiveSnowflakes_spreadOverStripes() {
+        // snowflakes created within the same millisecond differ only in their lowest bits
+        long firstMessageId = 1234567890123456789L;
+
+        long usedStripes = LongStream.range(firstMessageId, firstMessageId + 64)
+                .mapToInt(provider::stripeOf)
+                .distinct()
+                .count();
+
+        assertThat(usedStripes).isGreaterThan(32);
+    }
+
+    // the outcome of an immediate tryLock on another thread, released again right away
+    private static boolean tryLockElsewhere(MessageLock lock) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                boolean acquired = lock.tryLock(0, 0, TimeUnit.MILLISECONDS);
+                if (acquired) {
+                    lock.unlock();
+                }
+                return acquired;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }).join();
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.eggy03.papertrail.api.unit;
+
+import io.github.eggy03.papertrail.api.util.LongLongHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongLongHashMapTest {
+
+    private static final long MISSING = Long.MIN_VALUE;
+
+    @Test
+    void putGetRemove_success() {
+        LongLongHashMap map = new LongLongHashMap();
+
+        map.put(124587145126L, 541812154121L);
+        map.put(750289474205397309L, 289183486205457310L);
+        map.put(124587145126L, 1L);
+
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.getOrDefault(124587145126L, MISSING)).isEqualTo(1L);
+        assertThat(map.getOrDefault(750289474205397309L, MISSING)).isEqualTo(289183486205457310L);
+        assertThat(map.getOrDefault(42L, MISSING)).isEqualTo(MISSING);
+
+        assertThat(map.remove(124587145126L)).isTrue();
+        assertThat(map.remove(124587145126L)).isFalse();
+        assertThat(map.containsKey(124587145126L)).isFalse();
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void zeroKey_keptOutsideTable() {
+        LongLongHashMap map = new LongLongHashMap();
+
+        assertThat(map.getOrDefault(0L, MISSING)).isEqualTo(MISSING);
+
+        map.put(0L, 7L);
+        assertThat(map.getOrDefault(0L, MISSING)).isEqualTo(7L);
+        assertThat(map.size()).isEqualTo(1);
+
+        assertThat(map.remove(0L)).isTrue();
+        assertThat(map.containsKey(0L)).isFalse();
+        assertThat(map.size()).isZero();
+    }
+
+    @Test
+    void randomOperations_matchHashMap() {
+        LongLongHashMap map = new LongLongHashMap();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        // a small key space, so that probe chains collide and removals have to shift entries back
+        for (int i = 0; i < 200_000; i++) {
+            long key = 1 + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key) != null);
+            } else {
+                long value = random.nextLong();
+                map.put(key, value);
+                expected.put(key, value);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = 1; key <= 5_000; key++) {
+            assertThat(map.getOrDefault(key, MISSING)).isEqualTo(expected.getOrDefault(key, MISSING));
+        }
+    }
+
+    @Test
+    void memoryBytes_fewMegabytesForHundredsOfThousands() {
+        LongLongHashMap map = new LongLongHashMap(300_000);
+        for (long guildId = 1; guildId <= 300_000; guildId++) {
+            map.put(guildId << 22, guildId);
+        }
+
+        assertThat(map.capacity()).isEqualTo(1 << 19);
+        assertThat(map.memoryBytes()).isLessThan(10L * 1024 * 1024);
+    }
+}
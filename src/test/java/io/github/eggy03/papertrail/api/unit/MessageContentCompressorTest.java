@@ -0,0 +1,55 @@
+package io.github.eggy03.papertrail.api.unit;
+
+import io.github.eggy03.papertrail.api.compression.MessageContentCompressor;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MessageContentCompressorTest {
+
+    private static final String CHAT_TEXT = "Does anyone know how to fix this? It doesn't work anymore, I tried to restart but still the same error. 😀";
+
+    private final MessageContentCompressor compressor = new MessageContentCompressor(true, 32);
+
+    @Test
+    void compress_roundTrip() {
+
+        byte[] compressed = compressor.compress(CHAT_TEXT);
+
+        assertThat(compressed).isNotNull();
+        assertThat(compressed.length).isLessThan(CHAT_TEXT.getBytes(StandardCharsets.UTF_8).length);
+        assertThat(compressor.decompress(compressed)).isEqualTo(CHAT_TEXT);
+    }
+
+    @Test
+    void compress_belowThreshold_leftPlain() {
+
+        MessageContentCompressor.EncodedContent encoded = compressor.encode("short");
+
+        assertThat(encoded.plainContent()).isEqualTo("short");
+        assertThat(encoded.compressedContent()).isNull();
+    }
+
+    @Test
+    void compress_disabled_leftPlain() {
+
+        MessageContentCompressor disabled = new MessageContentCompressor(false, 32);
+
+        assertThat(disabled.compress(CHAT_TEXT)).isNull();
+        // content compressed while it was enabled stays readable
+        assertThat(disabled.decode(null, compressor.compress(CHAT_TEXT))).isEqualTo(CHAT_TEXT);
+    }
+
+    @Test
+    void decompress_truncated_throws() {
+
+        byte[] compressed = compressor.compress(CHAT_TEXT);
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+
+        assertThrows(IllegalStateException.class, () -> compressor.decompress(truncated));
+    }
+}
@@ -0,0 +1,198 @@
+package io.github.eggy03.papertrail.api.unit;
+
+import io.github.eggy03.papertrail.api.cache.RedisCacheOperations;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
+import io.github.eggy03.papertrail.api.exceptions.MessageNotFoundException;
+import io.github.eggy03.papertrail.api.service.MessageEditCoalescer;
+import io.github.eggy03.papertrail.api.service.MessageLogContentService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MessageEditCoalescerTest {
+
+    @Mock
+    private MessageLogContentService contentService;
+
+    @Mock
+    private ObjectProvider<MessageLogContentService> contentServiceProvider;
+
+    @Mock
+    private RedisCacheOperations cacheOperations;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MessageEditCoalescer coalescer;
+
+    private static final Long MESSAGE_ID = 124587145126L;
+
+    @BeforeEach
+    void setup() {
+        // a window long enough that only stop() flushes
+        coalescer = new MessageEditCoalescer(contentServiceProvider, cacheOperations, meterRegistry, Duration.ofHours(1));
+        when(contentServiceProvider.getIfAvailable()).thenReturn(contentService);
+    }
+
+    @Test
+    void submit_repeatedEdits_writesLatestEditOnce() {
+        when(contentService.isLogged(MESSAGE_ID)).thenReturn(true);
+        coalescer.start();
+
+        for (int i = 0; i < 50; i++) {
+            coalescer.submit(edit(MESSAGE_ID, "edit " + i));
+        }
+        assertThat(coalescer.pendingEdit(MESSAGE_ID).getMessageContent()).isEqualTo("edit 49");
+        coalescer.stop();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<MessageLogContentDTO>> written = ArgumentCaptor.forClass(List.class);
+        verify(contentService).writeEdits(written.capture());
+        assertThat(written.getValue()).hasSize(1);
+        assertThat(written.getValue().getFirst().getMessageContent()).isEqualTo("edit 49");
+
+        // the existence check is only made for the first edit of the window
+        verify(contentService, times(1)).isLogged(MESSAGE_ID);
+        verify(cacheOperations, times(50)).revokeLeaseAndPut(eq("messageContent"), eq(MESSAGE_ID), any(MessageLogContentDTO.class));
+        assertThat(meterRegistry.get("papertrail.message.edits.received").counter().count()).isEqualTo(50);
+        assertThat(meterRegistry.get("papertrail.message.edits.written").counter().count()).isEqualTo(1);
+        assertThat(coalescer.isPending(MESSAGE_ID)).isFalse();
+    }
+
+    @Test
+    void submit_notLogged_throwsException() {
+        when(contentService.isLogged(MESSAGE_ID)).thenReturn(false);
+
+        assertThrows(MessageNotFoundException.class, () -> coalescer.submit(edit(MESSAGE_ID, "edit")));
+        assertThat(coalescer.isPending(MESSAGE_ID)).isFalse();
+        verify(cacheOperations, never()).revokeLeaseAndPut(any(), any(), any());
+    }
+
+    @Test
+    void discard_deletedMessage_isNotWritten() {
+        when(contentService.isLogged(MESSAGE_ID)).thenReturn(true);
+        when(contentService.isLogged(MESSAGE_ID + 1)).thenReturn(true);
+        coalescer.start();
+
+        coalescer.submit(edit(MESSAGE_ID, "edit"));
+        coalescer.submit(edit(MESSAGE_ID + 1, "edit"));
+        coalescer.discard(List.of(MESSAGE_ID));
+        coalescer.stop();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<MessageLogContentDTO>> written = ArgumentCaptor.forClass(List.class);
+        verify(contentService).writeEdits(written.capture());
+        assertThat(written.getValue()).extracting(MessageLogContentDTO::getMessageId).containsExactly(MESSAGE_ID + 1);
+    }
+
+    @Test
+    void stop_failedWrite_keepsEditPending() {
+        when(contentService.isLogged(MESSAGE_ID)).thenReturn(true);
+        doThrow(new IllegalStateException("database down")).when(contentService).writeEdits(anyList());
+        coalescer.start();
+
+        coalescer.submit(edit(MESSAGE_ID, "edit"));
+        coalescer.stop();
+
+        assertThat(coalescer.isPending(MESSAGE_ID)).isTrue();
+        assertThat(meterRegistry.get("papertrail.message.edits.written").counter().count()).isZero();
+    }
+
+    @Test
+    void cacheIfLatest_editSubmittedDuringPut_keepsNewerEditCached() throws Exception {
+        when(contentService.isLogged(MESSAGE_ID)).thenReturn(true);
+        AtomicReference<String> cachedContent = new AtomicReference<>();
+        CountDownLatch putting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            MessageLogContentDTO cached = invocation.getArgument(2);
+            if (cached.getMessageContent().equals("edit 1")) {
+                putting.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            cachedContent.set(cached.getMessageContent());
+            return true;
+        }).when(cacheOperations).revokeLeaseAndPut(eq("messageContent"), eq(MESSAGE_ID), any(MessageLogContentDTO.class));
+
+        // the written edit is being cached when a newer edit arrives, which has to wait for that put
+        CompletableFuture<Void> flushPut = CompletableFuture.runAsync(() -> coalescer.cacheIfLatest(edit(MESSAGE_ID, "edit 1")));
+        assertThat(putting.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<MessageLogContentDTO> submit = CompletableFuture.supplyAsync(() -> coalescer.submit(edit(MESSAGE_ID, "edit 2")));
+        Thread.sleep(50);
+        assertThat(submit).isNotDone();
+
+        release.countDown();
+        flushPut.get(5, TimeUnit.SECONDS);
+        submit.get(5, TimeUnit.SECONDS);
+
+        assertThat(cachedContent.get()).isEqualTo("edit 2");
+        // and once it is pending, the older written content isn't cached anymore
+        coalescer.cacheIfLatest(edit(MESSAGE_ID, "edit 1"));
+        assertThat(cachedContent.get()).isEqualTo("edit 2");
+        verify(cacheOperations, times(2)).revokeLeaseAndPut(eq("messageContent"), eq(MESSAGE_ID), any(MessageLogContentDTO.class));
+    }
+
+    @Test
+    void flush_racingSubmits_neverCachesOlderEditOverNewer() throws Exception {
+        coalescer = new MessageEditCoalescer(contentServiceProvider, cacheOperations, meterRegistry, Duration.ofMillis(1));
+        when(contentService.isLogged(MESSAGE_ID)).thenReturn(true);
+        // writeEdits caches what it wrote like the content service does
+        doAnswer(invocation -> {
+            List<MessageLogContentDTO> edits = invocation.getArgument(0);
+            edits.forEach(coalescer::cacheIfLatest);
+            return null;
+        }).when(contentService).writeEdits(anyList());
+
+        AtomicInteger cachedVersion = new AtomicInteger();
+        AtomicInteger stalePuts = new AtomicInteger();
+        doAnswer(invocation -> {
+            MessageLogContentDTO cached = invocation.getArgument(2);
+            int version = Integer.parseInt(cached.getMessageContent().substring("edit ".length()));
+            if (cachedVersion.getAndSet(version) > version) {
+                stalePuts.incrementAndGet();
+            }
+            return true;
+        }).when(cacheOperations).revokeLeaseAndPut(eq("messageContent"), eq(MESSAGE_ID), any(MessageLogContentDTO.class));
+
+        coalescer.start();
+        for (int i = 1; i <= 2000; i++) {
+            coalescer.submit(edit(MESSAGE_ID, "edit " + i));
+        }
+        coalescer.stop();
+
+        assertThat(stalePuts.get()).isZero();
+        assertThat(cachedVersion.get()).isEqualTo(2000);
+    }
+
+    private static MessageLogContentDTO edit(Long messageId, String content) {
+        MessageLogContentDTO dto = new MessageLogContentDTO();
+        dto.setMessageId(messageId);
+        dto.setMessageContent(content);
+        dto.setAuthorId(8451322645685225L);
+        return dto;
+    }
+}
@@ -0,0 +1,159 @@
+package io.github.eggy03.papertrail.api.unit;
+
+import io.github.eggy03.papertrail.api.dto.MessageLogContentBatchResultDTO;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
+import io.github.eggy03.papertrail.api.exceptions.IngestQueueFullException;
+import io.github.eggy03.papertrail.api.service.MessageIngestQueue;
+import io.github.eggy03.papertrail.api.service.MessageLogContentService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RQueue;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MessageIngestQueueTest {
+
+    @Mock
+    private MessageLogContentService contentService;
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RQueue<Object> deadLetters;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Long> savedMessageIds = new CopyOnWriteArrayList<>();
+
+    private static final Long MESSAGE_ID = 124587145126L;
+
+    @Test
+    void submit_queueFull_throwsException() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        recordSaves(release);
+        MessageIngestQueue queue = queue(1, 1, Duration.ofMillis(5));
+        queue.start();
+
+        // once the writer holds the first message, blocked in saveMessages, the queue has room for one more
+        queue.submit(message(MESSAGE_ID));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("papertrail.ingest.queue.depth").gauge().value() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        queue.submit(message(MESSAGE_ID + 1));
+        assertThrows(IngestQueueFullException.class, () -> queue.submit(message(MESSAGE_ID + 2)));
+        assertThat(meterRegistry.get("papertrail.ingest.messages").tag("outcome", "rejected").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        queue.stop();
+        assertThat(savedMessageIds).containsExactly(MESSAGE_ID, MESSAGE_ID + 1);
+    }
+
+    @Test
+    void stop_drainsQueue() throws InterruptedException {
+        recordSaves(new CountDownLatch(0));
+        MessageIngestQueue queue = queue(100, 2, Duration.ofSeconds(1));
+        queue.start();
+
+        for (long i = 0; i < 5; i++) {
+            queue.submit(message(MESSAGE_ID + i));
+        }
+        queue.stop();
+
+        assertThat(queue.isRunning()).isFalse();
+        assertThat(savedMessageIds).containsExactly(MESSAGE_ID, MESSAGE_ID + 1, MESSAGE_ID + 2, MESSAGE_ID + 3, MESSAGE_ID + 4);
+        assertThat(meterRegistry.get("papertrail.ingest.flush.size").summary().max()).isLessThanOrEqualTo(2);
+        assertThrows(IngestQueueFullException.class, () -> queue.submit(message(MESSAGE_ID)));
+    }
+
+    @Test
+    void flush_retriesExhausted_parksBatchInDeadLetterQueue() {
+        when(contentService.saveMessages(anyList())).thenThrow(new IllegalStateException("database is down"));
+        MessageIngestQueue queue = queue(100, 2, Duration.ofSeconds(1));
+        queue.start();
+
+        queue.submit(message(MESSAGE_ID));
+        queue.submit(message(MESSAGE_ID + 1));
+        queue.stop();
+
+        verify(contentService, times(3)).saveMessages(anyList());
+        verify(deadLetters).addAll(List.of(message(MESSAGE_ID), message(MESSAGE_ID + 1)));
+        assertThat(meterRegistry.get("papertrail.ingest.messages").tag("outcome", "dead_lettered").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("papertrail.ingest.messages").tag("outcome", "failed").counter().count()).isZero();
+    }
+
+    @Test
+    void flush_deadLetterQueueUnavailable_countsMessagesAsFailed() {
+        when(contentService.saveMessages(anyList())).thenThrow(new IllegalStateException("database is down"));
+        when(deadLetters.addAll(anyList())).thenThrow(new IllegalStateException("redis is down"));
+        MessageIngestQueue queue = queue(100, 2, Duration.ofSeconds(1));
+        queue.start();
+
+        queue.submit(message(MESSAGE_ID));
+        queue.stop();
+
+        assertThat(meterRegistry.get("papertrail.ingest.messages").tag("outcome", "dead_lettered").counter().count()).isZero();
+        assertThat(meterRegistry.get("papertrail.ingest.messages").tag("outcome", "failed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void redeliver_savesDeadLetteredMessages() throws InterruptedException {
+        recordSaves(new CountDownLatch(0));
+        when(deadLetters.poll(anyInt())).thenReturn(List.of(message(MESSAGE_ID), message(MESSAGE_ID + 1)), List.of());
+        MessageIngestQueue queue = queue(100, 2, Duration.ofMillis(5));
+        queue.start();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (savedMessageIds.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        queue.stop();
+
+        assertThat(savedMessageIds).containsExactly(MESSAGE_ID, MESSAGE_ID + 1);
+        assertThat(meterRegistry.get("papertrail.ingest.messages").tag("outcome", "redelivered").counter().count()).isEqualTo(2);
+        verify(deadLetters, never()).addAll(anyList());
+    }
+
+    private MessageIngestQueue queue(int capacity, int maxBatchSize, Duration maxLatency) {
+        when(redissonClient.getQueue(eq("papertrail:ingest:dead-letter"), any(Codec.class))).thenReturn(deadLetters);
+        return new MessageIngestQueue(contentService, redissonClient, meterRegistry, true, capacity, maxBatchSize, maxLatency, Duration.ofSeconds(5), Duration.ofMinutes(1));
+    }
+
+    private void recordSaves(CountDownLatch release) {
+        when(contentService.saveMessages(anyList())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            List<MessageLogContentDTO> messages = invocation.getArgument(0);
+            messages.forEach(message -> savedMessageIds.add(message.getMessageId()));
+            return new MessageLogContentBatchResultDTO(messages, List.of());
+        });
+    }
+
+    private static MessageLogContentDTO message(Long messageId) {
+        MessageLogContentDTO message = new MessageLogContentDTO();
+        message.setMessageId(messageId);
+        message.setMessageContent("text");
+        message.setAuthorId(1L);
+        return message;
+    }
+}
@@ -1,11 +1,15 @@
 package io.github.eggy03.papertrail.api.unit;
 
+import io.github.eggy03.papertrail.api.cache.MessageIdBloomFilter;
+import io.github.eggy03.papertrail.api.cache.RedisCacheOperations;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentBatchResultDTO;
 import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
 import io.github.eggy03.papertrail.api.entity.MessageLogContent;
 import io.github.eggy03.papertrail.api.exceptions.MessageAlreadyLoggedException;
 import io.github.eggy03.papertrail.api.exceptions.MessageNotFoundException;
 import io.github.eggy03.papertrail.api.mapper.MessageLogContentMapper;
 import io.github.eggy03.papertrail.api.repository.MessageLogContentRepository;
+import io.github.eggy03.papertrail.api.service.MessageEditCoalescer;
 import io.github.eggy03.papertrail.api.service.MessageLogContentService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,12 +17,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -33,6 +40,15 @@ class MessageLogContentServiceDoTest {
     @Mock
     private MessageLogContentMapper mapper;
 
+    @Mock
+    private RedisCacheOperations cacheOperations;
+
+    @Mock
+    private MessageIdBloomFilter messageIdFilter;
+
+    @Mock
+    private MessageEditCoalescer editCoalescer;
+
     @InjectMocks
     private MessageLogContentService service;
 
@@ -60,25 +76,24 @@ class MessageLogContentServiceDoTest {
 
     @Test
     void doSaveMessage_success() {
-        when(repository.existsById(dto.getMessageId())).thenReturn(false);
         when(mapper.toEntity(dto)).thenReturn(entity);
 
         MessageLogContentDTO result = service.doSaveMessage(dto);
 
         assertThat(result).isEqualTo(dto);
 
-        verify(repository).saveAndFlush(entity);
+        verify(repository).insert(entity);
         verifyNoMoreInteractions(repository, mapper);
     }
 
     @Test
     void doSaveMessage_exists_throwsException() {
-        when(repository.existsById(dto.getMessageId())).thenReturn(true);
+        when(mapper.toEntity(dto)).thenReturn(entity);
+        doThrow(new DataIntegrityViolationException("duplicate key")).when(repository).insert(entity);
 
         assertThrows(MessageAlreadyLoggedException.class, ()-> service.doSaveMessage(dto));
 
-        verify(repository, never()).saveAndFlush(any());
-        verify(mapper, never()).toEntity(dto);
+        verify(repository, never()).existsById(any());
         verifyNoMoreInteractions(repository, mapper);
     }
 
@@ -106,19 +121,18 @@ class MessageLogContentServiceDoTest {
 
     @Test
     void doUpdateMessage_success() {
-        when(repository.existsById(dto.getMessageId())).thenReturn(true);
-        when(mapper.toEntity(dto)).thenReturn(entity);
+        when(repository.updateContent(dto.getMessageId(), dto.getMessageContent(), dto.getAuthorId())).thenReturn(1);
 
         MessageLogContentDTO result = service.doUpdateMessage(dto);
 
         assertThat(result).isEqualTo(dto);
-        verify(repository).saveAndFlush(entity);
+        verify(repository, never()).existsById(any());
         verifyNoMoreInteractions(repository, mapper);
     }
 
     @Test
     void doUpdateMessage_notFound_throwsException() {
-        when(repository.existsById(dto.getMessageId())).thenReturn(false);
+        when(repository.updateContent(dto.getMessageId(), dto.getMessageContent(), dto.getAuthorId())).thenReturn(0);
 
         assertThrows(MessageNotFoundException.class, ()-> service.doUpdateMessage(dto));
 
@@ -129,18 +143,18 @@ class MessageLogContentServiceDoTest {
 
     @Test
     void doDeleteMessage_success() {
-        when(repository.existsById(dto.getMessageId())).thenReturn(true);
+        when(repository.deleteByMessageId(dto.getMessageId())).thenReturn(1);
 
         service.doDeleteMessage(dto.getMessageId());
 
-        verify(repository).deleteById(dto.getMessageId());
+        verify(repository, never()).existsById(any());
         verifyNoMoreInteractions(repository, mapper);
     }
 
     @Test
     void doDeleteMessage_notFound_throwsException() {
         Long messageId = dto.getMessageId();
-        when(repository.existsById(messageId)).thenReturn(false);
+        when(repository.deleteByMessageId(messageId)).thenReturn(0);
 
         assertThrows(MessageNotFoundException.class, ()-> service.doDeleteMessage(messageId));
 
@@ -148,5 +162,61 @@ class MessageLogContentServiceDoTest {
         verifyNoMoreInteractions(repository, mapper);
     }
 
+    @Test
+    void doDeleteMessages_success() {
+        Long unloggedMessageId = 1245879561245253L;
+        List<Long> messageIds = List.of(dto.getMessageId(), unloggedMessageId);
+        when(repository.findAllById(messageIds)).thenReturn(List.of(entity));
+        when(mapper.toDTO(entity)).thenReturn(dto);
+
+        List<MessageLogContentDTO> result = service.doDeleteMessages(messageIds);
+
+        assertThat(result).containsExactly(dto);
+        verify(repository).deleteAllByIdInBatch(List.of(dto.getMessageId()));
+        verifyNoMoreInteractions(repository, mapper, cacheOperations);
+    }
+
+    @Test
+    void doDeleteMessages_noneLogged_returnsEmpty() {
+        List<Long> messageIds = List.of(dto.getMessageId());
+        when(repository.findAllById(messageIds)).thenReturn(List.of());
+
+        List<MessageLogContentDTO> result = service.doDeleteMessages(messageIds);
+
+        assertThat(result).isEmpty();
+        verify(repository, never()).deleteAllByIdInBatch(any());
+        verifyNoMoreInteractions(repository, mapper, cacheOperations);
+    }
+
+    @Test
+    void doSaveMessages_success_reportsConflicts() {
+        MessageLogContentDTO loggedDTO = new MessageLogContentDTO();
+        loggedDTO.setMessageId(1245879561245253L);
+        loggedDTO.setMessageContent("Logged Message");
+        loggedDTO.setAuthorId(dto.getAuthorId());
+
+        List<MessageLogContentDTO> batch = List.of(dto, loggedDTO, dto);
+        when(repository.findLoggedMessageIds(List.of(dto.getMessageId(), loggedDTO.getMessageId(), dto.getMessageId())))
+                .thenReturn(List.of(loggedDTO.getMessageId()));
+        when(mapper.toEntity(dto)).thenReturn(entity);
+
+        MessageLogContentBatchResultDTO result = service.doSaveMessages(batch);
 
+        assertThat(result.getSaved()).containsExactly(dto);
+        assertThat(result.getConflicts()).containsExactly(loggedDTO.getMessageId(), dto.getMessageId());
+        verify(repository).insertAll(List.of(entity));
+        verifyNoMoreInteractions(repository, mapper, cacheOperations);
+    }
+
+    @Test
+    void doFindMessagesByIds_success() {
+        List<Long> messageIds = List.of(dto.getMessageId(), 1245879561245253L);
+        when(repository.findAllById(messageIds)).thenReturn(List.of(entity));
+        when(mapper.toDTO(entity)).thenReturn(dto);
+
+        List<MessageLogContentDTO> result = service.doFindMessagesByIds(messageIds);
+
+        assertThat(result).containsExactly(dto);
+        verifyNoMoreInteractions(repository, mapper, cacheOperations);
+    }
 }
@@ -1,9 +1,19 @@
 package io.github.eggy03.papertrail.api.unit;
 
+import io.github.eggy03.papertrail.api.cache.MessageIdBloomFilter;
+import io.github.eggy03.papertrail.api.cache.RedisCacheOperations;
+import io.github.eggy03.papertrail.api.dto.MessageLogContentBatchResultDTO;
 import io.github.eggy03.papertrail.api.dto.MessageLogContentDTO;
+import io.github.eggy03.papertrail.api.exceptions.LockAcquisitionTimeoutException;
+import io.github.eggy03.papertrail.api.exceptions.MessageNotFoundException;
+import io.github.eggy03.papertrail.api.lock.MessageLock;
+import io.github.eggy03.papertrail.api.lock.MessageLockProvider;
 import io.github.eggy03.papertrail.api.mapper.MessageLogContentMapper;
 import io.github.eggy03.papertrail.api.repository.MessageLogContentRepository;
+import io.github.eggy03.papertrail.api.service.MessageEditCoalescer;
 import io.github.eggy03.papertrail.api.service.MessageLogContentService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,24 +21,39 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class MessageLogContentServiceLockTest {
 
     @Mock
-    private RedissonClient redissonClient;
+    private MessageLockProvider lockProvider;
+
+    @Mock
+    private MessageLock lock;
 
     @Mock
-    private RLock rLock;
+    private MessageLock multiLock;
 
     @Mock
     private MessageLogContentRepository repository;
@@ -36,9 +61,21 @@ class MessageLogContentServiceLockTest {
     @Mock
     private MessageLogContentMapper mapper;
 
+    @Mock
+    private RedisCacheOperations cacheOperations;
+
+    @Mock
+    private MessageIdBloomFilter messageIdFilter;
+
+    @Mock
+    private MessageEditCoalescer editCoalescer;
+
     @Mock
     private ObjectProvider<MessageLogContentService> serviceObjectProvider;
 
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @Spy
     @InjectMocks
     private MessageLogContentService service;
@@ -49,62 +86,302 @@ class MessageLogContentServiceLockTest {
     @BeforeEach
     void setup() {
         dto = new MessageLogContentDTO();
-        when(serviceObjectProvider.getIfAvailable()).thenReturn(service);
+        // lenient since tests served entirely from the cache never call back into the proxy
+        lenient().when(serviceObjectProvider.getIfAvailable()).thenReturn(service);
+        lenient().when(messageIdFilter.mightContain(any())).thenReturn(true);
+        ReflectionTestUtils.setField(service, "readLockWaitTime", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(service, "readLockLeaseTime", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(service, "writeLockWaitTime", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(service, "writeLockLeaseTime", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(service, "batchLockWaitTime", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(service, "batchLockLeaseTime", Duration.ofSeconds(60));
     }
 
     @Test
-    void saveMessage_acquireAndReleaseLock() {
-        when(redissonClient.getFairLock(String.valueOf(dto.getMessageId()))).thenReturn(rLock);
+    void saveMessage_acquireAndReleaseLock() throws InterruptedException {
+        when(lockProvider.getLock(dto.getMessageId())).thenReturn(lock);
+        when(lock.tryLock(anyLong(), anyLong(), eq(TimeUnit.NANOSECONDS))).thenReturn(true);
         doReturn(dto).when(service).doSaveMessage(dto);
 
         MessageLogContentDTO result = service.saveMessage(dto);
 
         assertThat(result).isEqualTo(dto);
 
-        verify(rLock).lock();
+        verify(lock).tryLock(anyLong(), anyLong(), eq(TimeUnit.NANOSECONDS));
         verify(service).doSaveMessage(dto);
-        verify(rLock).unlock();
+        verify(lock).unlock();
     }
 
     @Test
-    void findMessageById_acquireAndReleaseLock() {
-        when(redissonClient.getFairLock(String.valueOf(dto.getMessageId()))).thenReturn(rLock);
+    void findMessageById_acquireAndReleaseLock() throws InterruptedException {
+        when(lockProvider.getLock(dto.getMessageId())).thenReturn(lock);
+        when(lock.tryLock(anyLong(), anyLong(), eq(TimeUnit.NANOSECONDS))).thenReturn(true);
         doReturn(dto).when(service).doFindMessageById(dto.getMessageId());
 
         MessageLogContentDTO result = service.findMessageById(dto.getMessageId());
 
         assertThat(result).isEqualTo(dto);
 
-        verify(rLock).lock();
+        verify(lock).tryLock(anyLong(), anyLong(), eq(TimeUnit.NANOSECONDS));
         verify(service).doFindMessageById(dto.getMessageId());
-        verify(rLock).unlock();
+        verify(lock).unlock();
 
     }
 
     @Test
-    void updateMessage_acquireAndReleaseLock() {
-        when(redissonClient.getFairLock(String.valueOf(dto.getMessageId()))).thenReturn(rLock);
+    void updateMessage_acquireAndReleaseLock() throws InterruptedException {
+        when(lockProvider.getLock(dto.getMessageId())).thenReturn(lock);
+        when(lock.tryLock(anyLong(), anyLong(), eq(TimeUnit.NANOSECONDS))).thenReturn(true);
         doReturn(dto).when(service).doUpdateMessage(dto);
 
         MessageLogContentDTO result = service.updateMessage(dto);
 
         assertThat(result).isEqualTo(dto);
 
-        verify(rLock).lock();
+        verify(lock).tryLock(anyLong(), anyLong(), eq(TimeUnit.NANOSECONDS));
         verify(service).doUpdateMessage(dto);
-        verify(rLock).unlock();
+        verify(lock).unlock();
     }
 
     @Test
-    void deleteMessage_acquireAndReleaseLock() {
-        when(redissonClient.getFairLock(String.valueOf(dto.getMessageId()))).thenReturn(rLock);
+    void deleteMessage_acquireAndReleaseLock() throws InterruptedException {
+        dto.setMessageId(1L);
+        when(lockProvider.getLock(dto.getMessageId())).thenReturn(lock);
+        when(lock.tryLock(anyLong(), anyLong(), eq(TimeUnit.NANOSECONDS))).thenReturn(true);
         doNothing().when(service).doDeleteMessage(dto.getMessageId());
 
         service.deleteMessage(dto.getMessageId());
 
-        verify(rLock).lock();
+        verify(lock).tryLock(anyLong(), anyLong(), eq(TimeUnit.NANOSECONDS));
         verify(service).doDeleteMessage(dto.getMessageId());
-        verify(rLock).unlock();
+        verify(cacheOperations).evictDeleted("messageContent", List.of(1L));
+        verify(lock).unlock();
     }
-}
 
+    @Test
+    void saveMessage_lockTimeout_throwsException() throws InterruptedException {
+        when(lockProvider.getLock(dto.getMessageId())).thenReturn(lock);
+        when(lock.tryLock(Duration.ofSeconds(5).toNanos(), Duration.ofSeconds(30).toNanos(), TimeUnit.NANOSECONDS)).thenReturn(false);
+
+        assertThrows(LockAcquisitionTimeoutException.class, () -> service.saveMessage(dto));
+
+        assertThat(meterRegistry.get("papertrail.lock.timeouts").tag("operation", "save").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("papertrail.lock.wait").tag("operation", "save").timer().count()).isEqualTo(1);
+        verify(service, never()).doSaveMessage(any());
+        verify(lock, never()).unlock();
+    }
+
+    @Test
+    void updateMessage_leaseExpired_keepsResult() throws InterruptedException {
+        when(lockProvider.getLock(dto.getMessageId())).thenReturn(lock);
+        when(lock.tryLock(anyLong(), anyLong(), eq(TimeUnit.NANOSECONDS))).thenReturn(true);
+        doThrow(new IllegalMonitorStateException("not locked by current thread")).when(lock).unlock();
+        doReturn(dto).when(service).doUpdateMessage(dto);
+
+        MessageLogContentDTO result = service.updateMessage(dto);
+
+        assertThat(result).isEqualTo(dto);
+        assertThat(meterRegistry.get("papertrail.lock.hold").tag("operation", "update").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void updateMessage_unchangedInCache_skipsLockAndDatabase() {
+        dto.setMessageId(1L);
+        dto.setMessageContent("Test Message");
+        dto.setAuthorId(2L);
+        MessageLogContentDTO cachedMessage = new MessageLogContentDTO();
+        cachedMessage.setMessageId(1L);
+        cachedMessage.setMessageContent("Test Message");
+        cachedMessage.setAuthorId(2L);
+        when(cacheOperations.get("messageContent", 1L, MessageLogContentDTO.class)).thenReturn(cachedMessage);
+
+        MessageLogContentDTO result = service.updateMessage(dto);
+
+        assertThat(result).isEqualTo(dto);
+        assertThat(meterRegistry.get("papertrail.writes.suppressed").tag("entity", "message_content").counter().count()).isEqualTo(1);
+        verifyNoInteractions(lockProvider, repository);
+        verify(service, never()).doUpdateMessage(any());
+    }
+
+    @Test
+    void updateMessage_notInBloomFilter_skipsLockAndDatabase() {
+        dto.setMessageId(1L);
+        when(messageIdFilter.mightContain(1L)).thenReturn(false);
+
+        assertThrows(MessageNotFoundException.class, () -> service.updateMessage(dto));
+
+        verifyNoInteractions(lockProvider, repository);
+        verify(service, never()).doUpdateMessage(any());
+    }
+
+    @Test
+    void deleteMessage_notInBloomFilter_skipsLockAndDatabase() {
+        when(messageIdFilter.mightContain(1L)).thenReturn(false);
+
+        assertThrows(MessageNotFoundException.class, () -> service.deleteMessage(1L));
+
+        verifyNoInteractions(lockProvider, repository);
+        verify(service, never()).doDeleteMessage(any());
+    }
+
+    @Test
+    void deleteMessages_acquireAndReleaseMultiLock() throws InterruptedException {
+        dto.setMessageId(1L);
+        List<Long> messageIds = List.of(2L, 1L, 2L);
+        List<MessageLogContentDTO> deleted = List.of(dto);
+        when(lockProvider.getMultiLock(List.of(1L, 2L))).thenReturn(multiLock);
+        when(multiLock.tryLock(anyLong(), anyLong(), eq(TimeUnit.NANOSECONDS))).thenReturn(true);
+        doReturn(deleted).when(service).doDeleteMessages(List.of(1L, 2L));
+
+        List<MessageLogContentDTO> result = service.deleteMessages(messageIds);
+
+        assertThat(result).isEqualTo(deleted);
+
+        verify(multiLock).tryLock(anyLong(), anyLong(), eq(TimeUnit.NANOSECONDS));
+        verify(service).doDeleteMessages(List.of(1L, 2L));
+        verify(cacheOperations).evictDeleted("messageContent", List.of(1L));
+        verify(multiLock).unlock();
+    }
+
+    @Test
+    void saveMessages_acquireAndReleaseMultiLock() throws InterruptedException {
+        dto.setMessageId(1L);
+        List<MessageLogContentDTO> batch = List.of(dto);
+        MessageLogContentBatchResultDTO batchResult = new MessageLogContentBatchResultDTO(List.of(dto), List.of());
+        when(lockProvider.getMultiLock(List.of(1L))).thenReturn(multiLock);
+        when(multiLock.tryLock(anyLong(), anyLong(), eq(TimeUnit.NANOSECONDS))).thenReturn(true);
+        doReturn(batchResult).when(service).doSaveMessages(batch);
+
+        MessageLogContentBatchResultDTO result = service.saveMessages(batch);
+
+        assertThat(result).isEqualTo(batchResult);
+
+        verify(multiLock).tryLock(anyLong(), anyLong(), eq(TimeUnit.NANOSECONDS));
+        verify(service).doSaveMessages(batch);
+        verify(cacheOperations).putAll("messageContent", Map.of(1L, dto));
+        verify(multiLock).unlock();
+    }
+
+    @Test
+    void findMessagesByIds_allCached_skipsLock() {
+        dto.setMessageId(1L);
+        when(cacheOperations.getAll("messageContent", List.of(1L), MessageLogContentDTO.class)).thenReturn(Map.of(1L, dto));
+
+        List<MessageLogContentDTO> result = service.findMessagesByIds(List.of(1L, 1L));
+
+        assertThat(result).containsExactly(dto);
+
+        verify(lockProvider, never()).getMultiLock(any());
+        verify(service, never()).doFindMessagesByIds(any());
+    }
+
+    @Test
+    void findMessagesByIds_cacheMiss_acquireAndReleaseMultiLock() throws InterruptedException {
+        MessageLogContentDTO cachedDTO = new MessageLogContentDTO();
+        cachedDTO.setMessageId(2L);
+        dto.setMessageId(1L);
+
+        when(cacheOperations.getAll("messageContent", List.of(2L, 1L), MessageLogContentDTO.class)).thenReturn(Map.of(2L, cachedDTO));
+        when(lockProvider.getMultiLock(List.of(1L))).thenReturn(multiLock);
+        when(multiLock.tryLock(anyLong(), anyLong(), eq(TimeUnit.NANOSECONDS))).thenReturn(true);
+        doReturn(List.of(dto)).when(service).doFindMessagesByIds(List.of(1L));
+
+        List<MessageLogContentDTO> result = service.findMessagesByIds(List.of(2L, 1L));
+
+        assertThat(result).containsExactly(cachedDTO, dto);
+
+        verify(multiLock).tryLock(anyLong(), anyLong(), eq(TimeUnit.NANOSECONDS));
+        verify(service).doFindMessagesByIds(List.of(1L));
+        verify(cacheOperations).putAll("messageContent", Map.of(1L, dto));
+        verify(multiLock).unlock();
+    }
+
+    @Test
+    void saveMessage_lockFree_skipsLock() {
+        ReflectionTestUtils.setField(service, "lockFree", true);
+        doReturn(dto).when(service).doSaveMessage(dto);
+
+        MessageLogContentDTO result = service.saveMessage(dto);
+
+        assertThat(result).isEqualTo(dto);
+
+        verify(service).doSaveMessage(dto);
+        verifyNoInteractions(lockProvider);
+    }
+
+    @Test
+    void findMessageById_lockFree_cacheHit_skipsDatabase() {
+        ReflectionTestUtils.setField(service, "lockFree", true);
+        when(cacheOperations.get("messageContent", dto.getMessageId(), MessageLogContentDTO.class)).thenReturn(dto);
+
+        MessageLogContentDTO result = service.findMessageById(dto.getMessageId());
+
+        assertThat(result).isEqualTo(dto);
+
+        verify(service, never()).doLoadMessageById(any());
+        verify(cacheOperations, never()).acquireLease(any(), any());
+        verifyNoInteractions(lockProvider);
+    }
+
+    @Test
+    void findMessageById_lockFree_cacheMiss_fillsCacheWithLease() {
+        ReflectionTestUtils.setField(service, "lockFree", true);
+        when(cacheOperations.acquireLease("messageContent", dto.getMessageId())).thenReturn("lease");
+        doReturn(dto).when(service).doLoadMessageById(dto.getMessageId());
+        when(cacheOperations.putIfLeased("messageContent", dto.getMessageId(), dto, "lease")).thenReturn(false);
+
+        MessageLogContentDTO result = service.findMessageById(dto.getMessageId());
+
+        assertThat(result).isEqualTo(dto);
+
+        verify(service).doLoadMessageById(dto.getMessageId());
+        verify(cacheOperations).putIfLeased("messageContent", dto.getMessageId(), dto, "lease");
+        verifyNoInteractions(lockProvider);
+    }
+
+    @Test
+    void updateMessage_lockFree_revokesLease() {
+        ReflectionTestUtils.setField(service, "lockFree", true);
+        doReturn(dto).when(service).doWriteMessageUpdate(dto);
+
+        MessageLogContentDTO result = service.updateMessage(dto);
+
+        assertThat(result).isEqualTo(dto);
+
+        // not through the @CachePut of doUpdateMessage, which would put even after a concurrent delete
+        verify(service).doWriteMessageUpdate(dto);
+        verify(service, never()).doUpdateMessage(any());
+        verify(cacheOperations).revokeLeaseAndPut("messageContent", dto.getMessageId(), dto);
+        verifyNoInteractions(lockProvider);
+    }
+
+    @Test
+    void deleteMessage_lockFree_evictsAndRevokesLease() {
+        ReflectionTestUtils.setField(service, "lockFree", true);
+        dto.setMessageId(1L);
+        doNothing().when(service).doDeleteMessage(1L);
+
+        service.deleteMessage(1L);
+
+        verify(service).doDeleteMessage(1L);
+        verify(cacheOperations).evictDeleted("messageContent", List.of(1L));
+        verifyNoInteractions(lockProvider);
+    }
+
+    @Test
+    void writeEdits_lockFree_cachesOnlyEditsOfExistingMessages() {
+        ReflectionTestUtils.setField(service, "lockFree", true);
+        dto.setMessageId(1L);
+        MessageLogContentDTO deletedEdit = new MessageLogContentDTO();
+        deletedEdit.setMessageId(2L);
+        List<MessageLogContentDTO> edits = List.of(dto, deletedEdit);
+        doReturn(List.of(2L)).when(service).doUpdateMessages(edits);
+
+        service.writeEdits(edits);
+
+        verify(cacheOperations).evictDeleted("messageContent", List.of(2L));
+        verify(editCoalescer).cacheIfLatest(dto);
+        verify(editCoalescer, never()).cacheIfLatest(deletedEdit);
+        verifyNoInteractions(lockProvider);
+    }
+}
@@ -1,5 +1,8 @@
 package io.github.eggy03.papertrail.api.unit;
 
+import io.github.eggy03.papertrail.api.cache.RedisCacheOperations;
+import io.github.eggy03.papertrail.api.cache.RegistrationSnapshot;
+import io.github.eggy03.papertrail.api.cache.RegistrationSnapshot.Registration;
 import io.github.eggy03.papertrail.api.dto.MessageLogRegistrationDTO;
 import io.github.eggy03.papertrail.api.entity.MessageLogRegistration;
 import io.github.eggy03.papertrail.api.exceptions.GuildAlreadyRegisteredException;
@@ -7,20 +10,32 @@ import io.github.eggy03.papertrail.api.exceptions.GuildNotFoundException;
 import io.github.eggy03.papertrail.api.mapper.MessageLogRegistrationMapper;
 import io.github.eggy03.papertrail.api.repository.MessageLogRegistrationRepository;
 import io.github.eggy03.papertrail.api.service.MessageLogRegistrationService;
+import io.github.eggy03.papertrail.api.util.DiscordSnowflake;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
@@ -33,6 +48,18 @@ class MessageLogRegistrationServiceTest {
     @Mock
     private MessageLogRegistrationMapper mapper;
 
+    @Mock
+    private RegistrationSnapshot snapshot;
+
+    @Mock
+    private RedisCacheOperations cacheOperations;
+
+    @Mock
+    private ObjectProvider<MessageLogRegistrationService> selfProvider;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private MessageLogRegistrationService service;
 
@@ -55,90 +82,210 @@ class MessageLogRegistrationServiceTest {
 
     @Test
     void registerGuild_success() {
-        when(repository.existsById(dto.getGuildId())).thenReturn(false);
+        when(selfProvider.getIfAvailable()).thenReturn(service);
         when(mapper.toEntity(dto)).thenReturn(entity);
 
         MessageLogRegistrationDTO result = service.registerGuild(dto);
 
         assertThat(result).isEqualTo(dto);
-        verify(repository).saveAndFlush(entity);
+        verify(repository).insert(entity);
+        verify(snapshot).recordRegistration(Registration.MESSAGE_LOG, GUILD_ID, CHANNEL_ID);
         verifyNoMoreInteractions(repository, mapper);
     }
 
     @Test
     void registerGuild_exists_throwsException() {
-        when(repository.existsById(dto.getGuildId())).thenReturn(true);
+        when(selfProvider.getIfAvailable()).thenReturn(service);
+        when(mapper.toEntity(dto)).thenReturn(entity);
+        doThrow(new DataIntegrityViolationException("duplicate key")).when(repository).insert(entity);
+        when(repository.existsById(GUILD_ID)).thenReturn(true);
 
         assertThrows(GuildAlreadyRegisteredException.class, () -> service.registerGuild(dto));
 
-        verify(mapper, never()).toEntity(any());
-        verify(repository, never()).saveAndFlush(any());
+        verify(snapshot, never()).recordRegistration(any(), anyLong(), anyLong());
         verifyNoMoreInteractions(repository, mapper);
     }
 
     @Test
-    void findByGuild_success() {
+    void registerGuild_channelTaken_rethrowsViolation() {
+        when(selfProvider.getIfAvailable()).thenReturn(service);
+        when(mapper.toEntity(dto)).thenReturn(entity);
+        doThrow(new DataIntegrityViolationException("duplicate key")).when(repository).insert(entity);
+        when(repository.existsById(GUILD_ID)).thenReturn(false);
+
+        assertThrows(DataIntegrityViolationException.class, ()-> service.registerGuild(dto));
+
+        verify(snapshot, never()).recordRegistration(any(), anyLong(), anyLong());
+        verifyNoMoreInteractions(repository, mapper);
+    }
+
+    @Test
+    void findByGuild_snapshotLoaded_servesFromSnapshot() {
+        when(snapshot.isLoaded(Registration.MESSAGE_LOG)).thenReturn(true);
+        when(snapshot.findChannel(Registration.MESSAGE_LOG, GUILD_ID)).thenReturn(CHANNEL_ID);
+
+        Optional<MessageLogRegistrationDTO> result = service.findByGuild(GUILD_ID);
+
+        assertThat(result).contains(dto);
+        verifyNoInteractions(repository, mapper, selfProvider);
+    }
+
+    @Test
+    void findByGuild_snapshotLoaded_notRegistered_returnsEmpty() {
+        when(snapshot.isLoaded(Registration.MESSAGE_LOG)).thenReturn(true);
+        when(snapshot.findChannel(Registration.MESSAGE_LOG, GUILD_ID)).thenReturn(null);
+
+        assertThat(service.findByGuild(GUILD_ID)).isEmpty();
+
+        verifyNoInteractions(repository, mapper, selfProvider);
+    }
+
+    @Test
+    void findByGuild_snapshotNotLoaded_loadsGuild() {
+        when(snapshot.isLoaded(Registration.MESSAGE_LOG)).thenReturn(false);
+        when(selfProvider.getIfAvailable()).thenReturn(service);
+        when(repository.findById(GUILD_ID)).thenReturn(Optional.of(entity));
+        when(mapper.toDTO(entity)).thenReturn(dto);
+
+        assertThat(service.findByGuild(GUILD_ID)).contains(dto);
+
+        verify(snapshot, never()).findChannel(any(), anyLong());
+    }
+
+    @Test
+    void loadByGuild_success() {
         when(repository.findById(dto.getGuildId())).thenReturn(Optional.of(entity));
         when(mapper.toDTO(entity)).thenReturn(dto);
 
-        MessageLogRegistrationDTO result = service.findByGuild(dto.getGuildId());
+        Optional<MessageLogRegistrationDTO> result = service.loadByGuild(dto.getGuildId());
 
-        assertThat(result).isEqualTo(dto);
+        assertThat(result).contains(dto);
         verifyNoMoreInteractions(repository, mapper);
     }
 
     @Test
-    void findByGuild_notFound_throwsException() {
+    void loadByGuild_notFound_returnsEmpty() {
         Long guildId = dto.getGuildId();
         when(repository.findById(guildId)).thenReturn(Optional.empty());
 
-        assertThrows(GuildNotFoundException.class, () -> service.findByGuild(guildId));
+        assertThat(service.loadByGuild(guildId)).isEmpty();
 
         verify(mapper, never()).toDTO(any());
         verifyNoMoreInteractions(repository, mapper);
     }
 
+    @Test
+    void findByGuilds_snapshotLoaded_servesFromSnapshot() {
+        Long unregisteredGuildId = GUILD_ID + 1;
+        when(snapshot.isLoaded(Registration.MESSAGE_LOG)).thenReturn(true);
+        when(snapshot.findChannel(Registration.MESSAGE_LOG, GUILD_ID)).thenReturn(CHANNEL_ID);
+        when(snapshot.findChannel(Registration.MESSAGE_LOG, unregisteredGuildId)).thenReturn(null);
+
+        List<MessageLogRegistrationDTO> result = service.findByGuilds(List.of(GUILD_ID, unregisteredGuildId, GUILD_ID));
+
+        assertThat(result).containsExactly(dto);
+        verifyNoInteractions(repository, mapper, cacheOperations);
+    }
+
+    @Test
+    void findByGuilds_snapshotNotLoaded_loadsCacheMisses() {
+        Long cachedGuildId = GUILD_ID + 1;
+        Long unregisteredGuildId = GUILD_ID + 2;
+        MessageLogRegistrationDTO cached = new MessageLogRegistrationDTO();
+        cached.setGuildId(cachedGuildId);
+        cached.setChannelId(CHANNEL_ID + 1);
+
+        when(snapshot.isLoaded(Registration.MESSAGE_LOG)).thenReturn(false);
+        when(selfProvider.getIfAvailable()).thenReturn(service);
+        when(cacheOperations.getAll("messageLog", List.of(GUILD_ID, cachedGuildId, unregisteredGuildId), MessageLogRegistrationDTO.class))
+                .thenReturn(Map.of(cachedGuildId, cached));
+        when(repository.findAllById(List.of(GUILD_ID, unregisteredGuildId))).thenReturn(List.of(entity));
+        when(mapper.toDTO(entity)).thenReturn(dto);
+
+        List<MessageLogRegistrationDTO> result = service.findByGuilds(List.of(GUILD_ID, cachedGuildId, unregisteredGuildId));
+
+        assertThat(result).containsExactly(dto, cached);
+        verify(cacheOperations).putAll("messageLog", Map.of(GUILD_ID, dto));
+        verifyNoMoreInteractions(repository, mapper);
+    }
+
+    @Test
+    void findByShard_snapshotLoaded_servesFromSnapshot() {
+        when(snapshot.isLoaded(Registration.MESSAGE_LOG)).thenReturn(true);
+        when(snapshot.findChannels(eq(Registration.MESSAGE_LOG), any())).thenReturn(Map.of(GUILD_ID, CHANNEL_ID));
+
+        assertThat(service.findByShard(0, 1)).containsExactly(dto);
+        verifyNoInteractions(repository, mapper);
+    }
+
+    @Test
+    void findByShard_snapshotNotLoaded_filtersTable() {
+        MessageLogRegistration otherShard = new MessageLogRegistration();
+        // one more step in the timestamp bits moves a guild to the next shard
+        otherShard.setGuildId(GUILD_ID + (1L << 22));
+        otherShard.setChannelId(CHANNEL_ID + 1);
+        int shardId = DiscordSnowflake.shardOf(GUILD_ID, 2);
+
+        when(snapshot.isLoaded(Registration.MESSAGE_LOG)).thenReturn(false);
+        when(selfProvider.getIfAvailable()).thenReturn(service);
+        when(repository.findAll()).thenReturn(List.of(entity, otherShard));
+        when(mapper.toDTO(entity)).thenReturn(dto);
+
+        assertThat(service.findByShard(shardId, 2)).containsExactly(dto);
+        verifyNoMoreInteractions(mapper);
+    }
+
     @Test
     void updateGuild_success() {
-        when(repository.existsById(dto.getGuildId())).thenReturn(true);
-        when(mapper.toEntity(dto)).thenReturn(entity);
+        when(repository.updateChannel(GUILD_ID, CHANNEL_ID)).thenReturn(1);
 
         MessageLogRegistrationDTO result = service.updateGuild(dto);
 
         assertThat(result).isEqualTo(dto);
-        verify(repository).save(entity);
+        verify(snapshot).recordRegistration(Registration.MESSAGE_LOG, GUILD_ID, CHANNEL_ID);
         verifyNoMoreInteractions(repository, mapper);
     }
 
+    @Test
+    void updateGuild_unchangedInDatabase_skipsWrite() {
+        when(repository.updateChannel(GUILD_ID, CHANNEL_ID)).thenReturn(0);
+        when(repository.existsById(GUILD_ID)).thenReturn(true);
+
+        MessageLogRegistrationDTO result = service.updateGuild(dto);
+
+        assertThat(result).isEqualTo(dto);
+        assertThat(meterRegistry.get("papertrail.writes.suppressed").tag("entity", "message_log").counter().count()).isEqualTo(1);
+        verifyNoInteractions(mapper, snapshot);
+    }
+
     @Test
     void updateGuild_notFound_throwsException() {
-        when(repository.existsById(dto.getGuildId())).thenReturn(false);
+        when(repository.updateChannel(GUILD_ID, CHANNEL_ID)).thenReturn(0);
+        when(repository.existsById(GUILD_ID)).thenReturn(false);
 
         assertThrows(GuildNotFoundException.class, () -> service.updateGuild(dto));
 
-        verify(mapper, never()).toDTO(any());
-        verify(repository, never()).save(any());
+        verify(snapshot, never()).recordRegistration(any(), anyLong(), anyLong());
         verifyNoMoreInteractions(repository, mapper);
     }
 
     @Test
     void unregisterGuild_success() {
-        when(repository.findById(dto.getGuildId())).thenReturn(Optional.of(entity));
+        when(repository.deleteByGuildId(GUILD_ID)).thenReturn(1);
 
-        service.unregisterGuild(dto.getGuildId());
+        service.unregisterGuild(GUILD_ID);
 
-        verify(repository).delete(entity);
+        verify(snapshot).recordUnregistration(Registration.MESSAGE_LOG, GUILD_ID);
         verifyNoMoreInteractions(repository, mapper);
     }
 
     @Test
     void unregisterGuild_notFound_throwsException() {
-        Long guildId = dto.getGuildId();
-        when(repository.findById(guildId)).thenReturn(Optional.empty());
+        when(repository.deleteByGuildId(GUILD_ID)).thenReturn(0);
 
-        assertThrows(GuildNotFoundException.class, () -> service.unregisterGuild(guildId));
+        assertThrows(GuildNotFoundException.class, () -> service.unregisterGuild(GUILD_ID));
 
-        verify(repository, never()).delete(any());
+        verify(snapshot, never()).recordUnregistration(any(), anyLong());
         verifyNoMoreInteractions(repository, mapper);
     }
 }
@@ -0,0 +1,93 @@
+package io.github.eggy03.papertrail.api.unit;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.eggy03.papertrail.api.cache.CacheInvalidationTopic;
+import io.github.eggy03.papertrail.api.cache.TwoLevelCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TwoLevelCacheTest {
+
+    @Mock
+    private Cache remoteCache;
+
+    @Mock
+    private CacheInvalidationTopic invalidationTopic;
+
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new TwoLevelCache(remoteCache, Caffeine.newBuilder().maximumSize(10).build(), invalidationTopic);
+    }
+
+    @Test
+    void get_remoteHit_servedFromNearCacheAfterwards() {
+
+        when(remoteCache.get(1L)).thenReturn(new SimpleValueWrapper("value"));
+
+        assertThat(cache.get(1L, String.class)).isEqualTo("value");
+        assertThat(cache.get(1L, String.class)).isEqualTo("value");
+
+        verify(remoteCache, times(1)).get(1L);
+    }
+
+    @Test
+    void get_remoteMiss_notStoredInNearCache() {
+
+        when(remoteCache.get(1L)).thenReturn(null);
+
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.get(1L)).isNull();
+
+        verify(remoteCache, times(2)).get(1L);
+    }
+
+    @Test
+    void put_writesRemoteAndPublishesInvalidation() {
+
+        cache.put(1L, "value");
+
+        assertThat(cache.get(1L, String.class)).isEqualTo("value");
+        verify(remoteCache).put(1L, "value");
+        verify(invalidationTopic).publishInvalidate(cache.getName(), List.of(1L));
+    }
+
+    @Test
+    void evict_dropsNearEntryAndPublishesInvalidation() {
+
+        when(remoteCache.get(1L)).thenReturn(new SimpleValueWrapper("value"), (Cache.ValueWrapper) null);
+        cache.get(1L);
+
+        cache.evict(1L);
+
+        assertThat(cache.get(1L)).isNull();
+        verify(remoteCache).evict(1L);
+        verify(invalidationTopic).publishInvalidate(cache.getName(), List.of(1L));
+    }
+
+    @Test
+    void invalidateNear_dropsNearEntryOnly() {
+
+        when(remoteCache.get(1L)).thenReturn(new SimpleValueWrapper("old"), new SimpleValueWrapper("new"));
+        cache.get(1L);
+
+        cache.invalidateNear(List.of("1"));
+
+        assertThat(cache.get(1L, String.class)).isEqualTo("new");
+        verify(remoteCache, times(2)).get(1L);
+    }
+}